@@ -0,0 +1,39 @@
+package com.reactivespring.codec;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.springframework.boot.web.codec.CodecCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.codec.json.Jackson2SmileDecoder;
+import org.springframework.http.codec.json.Jackson2SmileEncoder;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+/**
+ * Jackson codecs shared by the services. Codec customizers apply to the server codecs and to the
+ * auto-configured {@code WebClient.Builder} alike.
+ */
+@Configuration(proxyBeanMethods = false)
+public class CodecAutoConfiguration {
+
+    // Runs after Boot's own Jackson customizer (order 0), so this encoder is the one that stays registered
+    @Bean
+    @Order(10)
+    public CodecCustomizer streamingJsonArrayCodecCustomizer(ObjectMapper objectMapper) {
+        return configurer -> configurer.defaultCodecs()
+                .jackson2JsonEncoder(new StreamingJsonArrayEncoder(objectMapper));
+    }
+
+    // Binary Jackson for service-to-service calls that ask for it; built from Boot's builder so that it
+    // shares the JSON mapper's modules and date handling
+    @Bean
+    @Order(10)
+    public CodecCustomizer smileCodecCustomizer(Jackson2ObjectMapperBuilder objectMapperBuilder) {
+        ObjectMapper smileMapper = objectMapperBuilder.factory(new SmileFactory()).build();
+        return configurer -> {
+            configurer.defaultCodecs().jackson2SmileEncoder(new Jackson2SmileEncoder(smileMapper));
+            configurer.defaultCodecs().jackson2SmileDecoder(new Jackson2SmileDecoder(smileMapper));
+        };
+    }
+}
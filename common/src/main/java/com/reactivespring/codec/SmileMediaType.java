@@ -0,0 +1,32 @@
+package com.reactivespring.codec;
+
+import org.springframework.http.MediaType;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The media type of Jackson's binary Smile format, offered next to JSON for service-to-service calls.
+ */
+public final class SmileMediaType {
+    public static final String APPLICATION_SMILE_VALUE = "application/x-jackson-smile";
+    public static final MediaType APPLICATION_SMILE = MediaType.parseMediaType(APPLICATION_SMILE_VALUE);
+
+    private SmileMediaType() {
+    }
+
+    /**
+     * The type the codecs will pick for a handler producing JSON or Smile, given the request's Accept header.
+     * Content negotiation only runs once the body is written; this lets a handler tag the representation before.
+     */
+    public static MediaType negotiate(List<MediaType> accepted) {
+        List<MediaType> sorted = new ArrayList<>(accepted);
+        MediaType.sortBySpecificityAndQuality(sorted);
+        return sorted.stream()
+                .filter(mediaType -> mediaType.isCompatibleWith(MediaType.APPLICATION_JSON)
+                        || mediaType.isCompatibleWith(APPLICATION_SMILE))
+                .findFirst()
+                .filter(mediaType -> mediaType.equalsTypeAndSubtype(APPLICATION_SMILE))
+                .orElse(MediaType.APPLICATION_JSON);
+    }
+}
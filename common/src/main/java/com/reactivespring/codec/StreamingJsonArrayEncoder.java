@@ -0,0 +1,55 @@
+package com.reactivespring.codec;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.reactivestreams.Publisher;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.http.codec.json.Jackson2JsonEncoder;
+import org.springframework.lang.Nullable;
+import org.springframework.util.MimeType;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Map;
+
+/**
+ * Writes a {@link Flux} as a JSON array one element at a time. The stock encoder collects the
+ * whole Flux into a List before serializing it, so large listings would be held in memory.
+ * Streaming media types (NDJSON) and single values are left to the stock encoder.
+ */
+public class StreamingJsonArrayEncoder extends Jackson2JsonEncoder {
+    private static final byte[] START_ARRAY = {'['};
+    private static final byte[] SEPARATOR = {','};
+    private static final byte[] END_ARRAY = {']'};
+
+    public StreamingJsonArrayEncoder(ObjectMapper objectMapper) {
+        super(objectMapper);
+    }
+
+    @Override
+    public Flux<DataBuffer> encode(Publisher<?> inputStream, DataBufferFactory bufferFactory,
+                                   ResolvableType elementType, @Nullable MimeType mimeType,
+                                   @Nullable Map<String, Object> hints) {
+        if (inputStream instanceof Mono || isStreamingMimeType(mimeType)) {
+            return super.encode(inputStream, bufferFactory, elementType, mimeType, hints);
+        }
+        Flux<DataBuffer> elements = Flux.from(inputStream)
+                .index()
+                .concatMap(indexed -> {
+                    DataBuffer value = encodeValue(indexed.getT2(), bufferFactory, elementType, mimeType, hints);
+                    return indexed.getT1() == 0
+                            ? Mono.just(value)
+                            : Flux.just(bufferFactory.wrap(SEPARATOR), value);
+                });
+        return Flux.concat(
+                Mono.fromCallable(() -> bufferFactory.wrap(START_ARRAY)),
+                elements,
+                Mono.fromCallable(() -> bufferFactory.wrap(END_ARRAY)));
+    }
+
+    private boolean isStreamingMimeType(@Nullable MimeType mimeType) {
+        return mimeType != null && getStreamingMediaTypes().stream()
+                .anyMatch(streamingMediaType -> streamingMediaType.isCompatibleWith(mimeType));
+    }
+}
@@ -0,0 +1,92 @@
+package com.reactivespring.http;
+
+import org.springframework.http.MediaType;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Strong ETags derived from a document's {@code @Version}, used for {@code If-Match} checks on updates
+ * and {@code If-None-Match} checks on reads.
+ */
+public final class VersionETag {
+    // Parsed from an If-Match value that cannot be one of ours, so the precondition fails
+    private static final long NO_MATCH = -1L;
+    // A version, optionally followed by the representation suffix added by of(Long, MediaType)
+    private static final Pattern VERSION = Pattern.compile("(\\d+)(-[a-z][a-z0-9.+-]*)?");
+
+    private VersionETag() {
+    }
+
+    public static String of(Long version) {
+        return "\"" + (version == null ? 0L : version) + "\"";
+    }
+
+    /**
+     * The ETag of one encoding of a document. Other encodings than JSON carry the same version but
+     * different bytes, so they get a suffix to keep strong ETags distinct per representation.
+     */
+    public static String of(Long version, MediaType contentType) {
+        if (contentType == null || contentType.isCompatibleWith(MediaType.APPLICATION_JSON)) {
+            return of(version);
+        }
+        return "\"" + (version == null ? 0L : version) + "-" + contentType.getSubtype() + "\"";
+    }
+
+    /**
+     * A strong ETag for a representation assembled from several documents, such as a listing page.
+     * The parts should identify every document with its version, plus anything else that shapes the
+     * body; changing any part, or their order, changes the tag.
+     */
+    public static String ofParts(List<String> parts) {
+        MessageDigest digest = sha256();
+        for (String part : parts) {
+            digest.update(String.valueOf(part).getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+        }
+        byte[] hash = Arrays.copyOf(digest.digest(), 16);
+        return "\"" + Base64.getUrlEncoder().withoutPadding().encodeToString(hash) + "\"";
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException("SHA-256 is not available", ex);
+        }
+    }
+
+    /**
+     * The version an {@code If-Match} header requires, or null when there is no precondition
+     * (header absent or {@code *}).
+     */
+    public static Long parseIfMatch(String ifMatch) {
+        if (ifMatch == null || ifMatch.isBlank() || ifMatch.trim().equals("*")) {
+            return null;
+        }
+        String value = ifMatch.trim();
+        if (value.startsWith("W/")) {
+            // Weak validators never satisfy If-Match
+            return NO_MATCH;
+        }
+        if (value.length() >= 2 && value.startsWith("\"") && value.endsWith("\"")) {
+            value = value.substring(1, value.length() - 1);
+        }
+        // Any representation of the expected version satisfies the precondition
+        Matcher matcher = VERSION.matcher(value);
+        if (!matcher.matches()) {
+            return NO_MATCH;
+        }
+        try {
+            return Long.parseLong(matcher.group(1));
+        } catch (NumberFormatException ex) {
+            return NO_MATCH;
+        }
+    }
+}
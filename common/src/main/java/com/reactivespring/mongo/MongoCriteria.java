@@ -0,0 +1,60 @@
+package com.reactivespring.mongo;
+
+import org.bson.BsonType;
+import org.bson.types.ObjectId;
+import org.springframework.data.mongodb.core.query.Criteria;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Query criteria shared by the services' custom repositories.
+ */
+public final class MongoCriteria {
+
+    private MongoCriteria() {
+    }
+
+    /**
+     * Matches documents at {@code version}. Documents written before the field existed have none and
+     * are tagged as version 0, so version 0 also matches a missing field.
+     */
+    public static Criteria versionIs(String field, long version) {
+        return version == 0
+                ? new Criteria().orOperator(Criteria.where(field).is(0L), Criteria.where(field).exists(false))
+                : Criteria.where(field).is(version);
+    }
+
+    /**
+     * Matches ids after {@code afterId} up to and including {@code lastId}, either bound being optional.
+     * Ids that are valid ObjectId hex strings are stored as ObjectIds, all others as strings, and range
+     * operators only match values of their operand's BSON type. Strings sort before ObjectIds, so a range
+     * is split into its string part and its ObjectId part.
+     */
+    public static Criteria idRange(String idField, String afterId, String lastId) {
+        boolean afterObjectId = afterId != null && ObjectId.isValid(afterId);
+        boolean lastObjectId = lastId == null || ObjectId.isValid(lastId);
+        List<Criteria> parts = new ArrayList<>(2);
+        if (!afterObjectId) {
+            Criteria strings = Criteria.where(idField).type(BsonType.STRING.getValue());
+            if (afterId != null) {
+                strings.gt(afterId);
+            }
+            if (!lastObjectId) {
+                strings.lte(lastId);
+            }
+            parts.add(strings);
+        }
+        if (lastObjectId) {
+            Criteria objectIds = Criteria.where(idField).type(BsonType.OBJECT_ID.getValue());
+            if (afterObjectId) {
+                objectIds.gt(new ObjectId(afterId));
+            }
+            if (lastId != null) {
+                objectIds.lte(new ObjectId(lastId));
+            }
+            parts.add(objectIds);
+        }
+        return parts.size() == 1 ? parts.get(0) : new Criteria().orOperator(parts.toArray(new Criteria[0]));
+    }
+}
@@ -0,0 +1,60 @@
+package com.reactivespring.mongo;
+
+import lombok.extern.log4j.Log4j2;
+import org.springframework.boot.autoconfigure.AutoConfigureAfter;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.data.mongo.MongoReactiveDataAutoConfiguration;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mapping.PersistentEntity;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.index.IndexResolver;
+import org.springframework.data.mongodb.core.index.MongoPersistentEntityIndexResolver;
+import org.springframework.data.mongodb.core.index.ReactiveIndexOperations;
+import org.springframework.data.mongodb.core.mapping.Document;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+
+/**
+ * Creates the indexes declared on every {@code @Document} type of the mapping context, including in
+ * {@code @DataMongoTest} slices.
+ */
+@Configuration(proxyBeanMethods = false)
+@ConditionalOnClass(ReactiveMongoTemplate.class)
+@ConditionalOnBean(ReactiveMongoTemplate.class)
+@AutoConfigureAfter(MongoReactiveDataAutoConfiguration.class)
+@Log4j2
+public class MongoIndexAutoConfiguration {
+    private static final Duration INDEX_TIMEOUT = Duration.ofSeconds(30);
+
+    private final ReactiveMongoTemplate reactiveMongoTemplate;
+
+    public MongoIndexAutoConfiguration(ReactiveMongoTemplate reactiveMongoTemplate) {
+        this.reactiveMongoTemplate = reactiveMongoTemplate;
+    }
+
+    // Index auto-creation is off by default, so create the indexes declared on the entities before taking traffic.
+    // ensureIndex fails if an index with the same name exists with a different definition, which stops startup.
+    @EventListener(ContextRefreshedEvent.class)
+    public void ensureIndexes() {
+        Flux.fromIterable(reactiveMongoTemplate.getConverter().getMappingContext().getPersistentEntities())
+                .<Class<?>>map(PersistentEntity::getType)
+                .filter(type -> type.isAnnotationPresent(Document.class))
+                .concatMap(this::ensureIndexes)
+                .then()
+                .block(INDEX_TIMEOUT);
+    }
+
+    private Mono<Void> ensureIndexes(Class<?> entityType) {
+        IndexResolver indexResolver = new MongoPersistentEntityIndexResolver(reactiveMongoTemplate.getConverter().getMappingContext());
+        ReactiveIndexOperations indexOperations = reactiveMongoTemplate.indexOps(entityType);
+        return Flux.fromIterable(indexResolver.resolveIndexFor(entityType))
+                .concatMap(indexOperations::ensureIndex)
+                .doOnNext(indexName -> log.info("Index on {}: {}", entityType.getSimpleName(), indexName))
+                .then();
+    }
+}
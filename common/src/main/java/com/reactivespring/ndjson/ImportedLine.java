@@ -0,0 +1,16 @@
+package com.reactivespring.ndjson;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * One non-blank input line of an {@link NdjsonBatchImport}: its 1-based line number, the record parsed
+ * from it (null when it could not be parsed), and why it was not written, null once it was.
+ */
+@Getter
+@AllArgsConstructor
+public class ImportedLine<T> {
+    private final long line;
+    private final T record;
+    private final String error;
+}
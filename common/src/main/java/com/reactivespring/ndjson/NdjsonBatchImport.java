@@ -0,0 +1,98 @@
+package com.reactivespring.ndjson;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.function.Tuples;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Imports records sent as NDJSON, one per line. Lines are parsed and validated one by one, the valid
+ * records grouped into batches written with one call each, and a bounded number of batches is in flight
+ * at a time. Every non-blank line comes back as an {@link ImportedLine}, batch by batch in input order.
+ * A batch that could not be written at all fails its lines, not the whole import.
+ */
+public class NdjsonBatchImport<T> {
+    private final ObjectMapper objectMapper;
+    private final Class<T> recordType;
+    private final String recordName;
+    private final Function<T, String> violations;
+    private final int batchSize;
+    private final int concurrency;
+
+    /**
+     * @param recordName used in the error of lines that are not a {@code recordType}, e.g. "malformed review: ..."
+     * @param violations the constraint violations of a parsed record as one message, or null when it is valid
+     */
+    public NdjsonBatchImport(ObjectMapper objectMapper, Class<T> recordType, String recordName,
+                             Function<T, String> violations, int batchSize, int concurrency) {
+        this.objectMapper = objectMapper;
+        this.recordType = recordType;
+        this.recordName = recordName;
+        this.violations = violations;
+        this.batchSize = batchSize;
+        this.concurrency = concurrency;
+    }
+
+    /**
+     * @param writeBatch writes the valid records of a batch and emits the write errors by their position
+     *                   in the given list; records missing from the map were written
+     */
+    public Flux<List<ImportedLine<T>>> importLines(Flux<String> lines, Function<List<T>, Mono<Map<Integer, String>>> writeBatch) {
+        return lines
+                .index((index, line) -> Tuples.of(index + 1, line))
+                .filter(line -> !line.getT2().isBlank())
+                .map(line -> parse(line.getT1(), line.getT2()))
+                .buffer(batchSize)
+                .flatMapSequential(batch -> writeBatch(batch, writeBatch), concurrency);
+    }
+
+    private ImportedLine<T> parse(long line, String json) {
+        T record;
+        try {
+            record = objectMapper.readValue(json, recordType);
+        } catch (JsonProcessingException ex) {
+            return new ImportedLine<>(line, null, "malformed " + recordName + ": " + ex.getOriginalMessage());
+        }
+        if (record == null) {
+            return new ImportedLine<>(line, null, "malformed " + recordName + ": null");
+        }
+        return new ImportedLine<>(line, record, violations.apply(record));
+    }
+
+    private Mono<List<ImportedLine<T>>> writeBatch(List<ImportedLine<T>> batch,
+                                                  Function<List<T>, Mono<Map<Integer, String>>> writeBatch) {
+        List<T> records = batch.stream()
+                .filter(line -> line.getError() == null)
+                .map(ImportedLine::getRecord)
+                .collect(Collectors.toList());
+        if (records.isEmpty()) {
+            return Mono.just(batch);
+        }
+        return writeBatch.apply(records)
+                .map(writeErrors -> withWriteErrors(batch, writeErrors, null))
+                .onErrorResume(ex -> Mono.just(withWriteErrors(batch, Map.of(), ex.getMessage())));
+    }
+
+    private List<ImportedLine<T>> withWriteErrors(List<ImportedLine<T>> batch, Map<Integer, String> writeErrors,
+                                                  String batchError) {
+        List<ImportedLine<T>> written = new ArrayList<>(batch.size());
+        int position = 0;
+        for (ImportedLine<T> line : batch) {
+            if (line.getError() != null) {
+                written.add(line);
+                continue;
+            }
+            String writeError = batchError != null ? batchError : writeErrors.get(position);
+            written.add(writeError != null ? new ImportedLine<>(line.getLine(), line.getRecord(), writeError) : line);
+            position++;
+        }
+        return written;
+    }
+}
@@ -0,0 +1,35 @@
+package com.reactivespring.pagination;
+
+import lombok.Value;
+import reactor.core.publisher.Flux;
+
+import java.util.List;
+import java.util.function.Function;
+
+@Value
+public class Page<T> {
+    Flux<T> items;
+    String nextCursor;
+
+    /**
+     * Builds a page from the keys of up to {@code pageSize + 1} documents, read ahead of the body so the
+     * next cursor is known before anything is written; the extra key only signals that another page
+     * exists. The items are streamed by {@code range}, given the id of the page's last document.
+     */
+    public static <K, T> Page<T> of(List<K> fetchedKeys, int pageSize, Function<K, String> idExtractor,
+                                    Function<String, Flux<T>> range) {
+        List<K> keys = keys(fetchedKeys, pageSize);
+        if (keys.isEmpty()) {
+            return new Page<>(Flux.empty(), null);
+        }
+        String lastId = idExtractor.apply(keys.get(keys.size() - 1));
+        return new Page<>(range.apply(lastId), fetchedKeys.size() > pageSize ? PageCursor.encode(lastId) : null);
+    }
+
+    /**
+     * The keys that belong to the page, without the one fetched to detect a next page.
+     */
+    public static <K> List<K> keys(List<K> fetchedKeys, int pageSize) {
+        return fetchedKeys.size() > pageSize ? fetchedKeys.subList(0, pageSize) : fetchedKeys;
+    }
+}
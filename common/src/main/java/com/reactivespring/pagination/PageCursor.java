@@ -0,0 +1,34 @@
+package com.reactivespring.pagination;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Opaque continuation token for keyset pagination. It carries the id of the last document on the
+ * previous page, so the next page is a range scan on {@code _id} rather than a skip.
+ */
+public final class PageCursor {
+    public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+    private static final String PREFIX = "v1:";
+
+    private PageCursor() {
+    }
+
+    public static String encode(String lastId) {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString((PREFIX + lastId).getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static String decode(String cursor) {
+        String decoded;
+        try {
+            decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException ex) {
+            throw new IllegalArgumentException("Invalid cursor: " + cursor);
+        }
+        if (!decoded.startsWith(PREFIX) || decoded.length() == PREFIX.length()) {
+            throw new IllegalArgumentException("Invalid cursor: " + cursor);
+        }
+        return decoded.substring(PREFIX.length());
+    }
+}
@@ -0,0 +1,40 @@
+package com.reactivespring.projection;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Parses a {@code fields=} request parameter into the document properties to read. An empty result
+ * means "all fields". Only properties declared on the document type are accepted.
+ */
+public final class FieldProjection {
+
+    private FieldProjection() {
+    }
+
+    public static Set<String> parse(String fields, Class<?> documentType) {
+        if (fields == null || fields.isBlank()) {
+            return Set.of();
+        }
+        Set<String> knownFields = Arrays.stream(documentType.getDeclaredFields())
+                .filter(field -> !Modifier.isStatic(field.getModifiers()))
+                .map(Field::getName)
+                .collect(Collectors.toSet());
+        Set<String> selected = new LinkedHashSet<>();
+        for (String field : fields.split(",")) {
+            String name = field.trim();
+            if (name.isEmpty()) {
+                continue;
+            }
+            if (!knownFields.contains(name)) {
+                throw new IllegalArgumentException("Unknown field: " + name);
+            }
+            selected.add(name);
+        }
+        return selected;
+    }
+}
@@ -0,0 +1,58 @@
+package com.reactivespring.http;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class VersionETagTest {
+    private static final MediaType SMILE = MediaType.parseMediaType("application/x-jackson-smile");
+
+    @Test
+    void jsonRepresentationHasThePlainVersion() {
+        assertEquals("\"3\"", VersionETag.of(3L));
+        assertEquals("\"3\"", VersionETag.of(3L, MediaType.APPLICATION_JSON));
+        assertEquals("\"0\"", VersionETag.of(null));
+    }
+
+    @Test
+    void otherRepresentationsAreDistinct() {
+        assertEquals("\"3-x-jackson-smile\"", VersionETag.of(3L, SMILE));
+    }
+
+    @Test
+    void ifMatchAcceptsEveryRepresentationOfTheVersion() {
+        assertEquals(3L, VersionETag.parseIfMatch(VersionETag.of(3L)));
+        assertEquals(3L, VersionETag.parseIfMatch(VersionETag.of(3L, SMILE)));
+        assertEquals(3L, VersionETag.parseIfMatch(" 3 "));
+    }
+
+    @Test
+    void ifMatchWithoutPrecondition() {
+        assertNull(VersionETag.parseIfMatch(null));
+        assertNull(VersionETag.parseIfMatch(" "));
+        assertNull(VersionETag.parseIfMatch("*"));
+    }
+
+    @Test
+    void ifMatchNeverMatchesForeignTags() {
+        assertEquals(-1L, VersionETag.parseIfMatch("W/\"3\""));
+        assertEquals(-1L, VersionETag.parseIfMatch("\"abc\""));
+        assertEquals(-1L, VersionETag.parseIfMatch("\"3-\""));
+        assertEquals(-1L, VersionETag.parseIfMatch(VersionETag.ofParts(List.of("a:1", "b:2"))));
+    }
+
+    @Test
+    void partsTagChangesWithAnyPartAndTheirOrder() {
+        String tag = VersionETag.ofParts(List.of("a:1", "b:2"));
+
+        assertEquals(tag, VersionETag.ofParts(List.of("a:1", "b:2")));
+        assertNotEquals(tag, VersionETag.ofParts(List.of("a:1", "b:3")));
+        assertNotEquals(tag, VersionETag.ofParts(List.of("b:2", "a:1")));
+        assertNotEquals(tag, VersionETag.ofParts(List.of("a:1b:2")));
+    }
+}
@@ -0,0 +1,44 @@
+package com.reactivespring.mongo;
+
+import org.bson.BsonType;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class MongoCriteriaTest {
+
+    @Test
+    void versionZeroAlsoMatchesDocumentsWithoutTheField() {
+        Document expected = new Document("$or", List.of(
+                new Document("version", 0L),
+                new Document("version", new Document("$exists", false))));
+
+        assertEquals(expected, MongoCriteria.versionIs("version", 0).getCriteriaObject());
+    }
+
+    @Test
+    void laterVersionsMatchExactly() {
+        assertEquals(new Document("version", 3L), MongoCriteria.versionIs("version", 3).getCriteriaObject());
+    }
+
+    @Test
+    void idRangeAfterAnObjectIdSkipsTheStringIds() {
+        ObjectId after = new ObjectId();
+        Document expected = new Document("_id", new Document("$type", BsonType.OBJECT_ID.getValue()).append("$gt", after));
+
+        assertEquals(expected, MongoCriteria.idRange("_id", after.toHexString(), null).getCriteriaObject());
+    }
+
+    @Test
+    void idRangeFromAStringSpansBothTypes() {
+        Document expected = new Document("$or", List.of(
+                new Document("_id", new Document("$type", BsonType.STRING.getValue()).append("$gt", "abc")),
+                new Document("_id", new Document("$type", BsonType.OBJECT_ID.getValue()))));
+
+        assertEquals(expected, MongoCriteria.idRange("_id", "abc", null).getCriteriaObject());
+    }
+}
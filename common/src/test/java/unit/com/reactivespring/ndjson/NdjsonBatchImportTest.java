@@ -0,0 +1,66 @@
+package com.reactivespring.ndjson;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class NdjsonBatchImportTest {
+    private final NdjsonBatchImport<Map<String, Object>> ndjsonImport = new NdjsonBatchImport<>(new ObjectMapper(),
+            mapType(), "record", record -> record.containsKey("name") ? null : "name is missing", 2, 2);
+
+    @SuppressWarnings("unchecked")
+    private static Class<Map<String, Object>> mapType() {
+        return (Class<Map<String, Object>>) (Class<?>) Map.class;
+    }
+
+    private static List<String> errors(List<ImportedLine<Map<String, Object>>> batch) {
+        return batch.stream().map(ImportedLine::getError).collect(Collectors.toList());
+    }
+
+    @Test
+    void everyNonBlankLineIsReportedInInputOrder() {
+        Flux<String> lines = Flux.just("{\"name\":\"a\"}", "", "not json", "{}", "{\"name\":\"b\"}");
+
+        StepVerifier.create(ndjsonImport.importLines(lines, records -> Mono.just(Map.of())))
+                .assertNext(batch -> {
+                    assertEquals(List.of(1L, 3L), batch.stream().map(ImportedLine::getLine).collect(Collectors.toList()));
+                    assertNull(batch.get(0).getError());
+                    assertEquals("malformed record", batch.get(1).getError().split(":")[0]);
+                })
+                .assertNext(batch -> assertEquals(Arrays.asList("name is missing", null), errors(batch)))
+                .verifyComplete();
+    }
+
+    @Test
+    void writeErrorsLandOnTheirLines() {
+        Flux<String> lines = Flux.just("{}", "{\"name\":\"a\"}", "{\"name\":\"b\"}");
+
+        StepVerifier.create(ndjsonImport.importLines(lines, records -> Mono.just(Map.of(records.size() - 1, "duplicate"))))
+                .assertNext(batch -> assertEquals(List.of("name is missing", "duplicate"), errors(batch)))
+                .assertNext(batch -> assertEquals(List.of("duplicate"), errors(batch)))
+                .verifyComplete();
+    }
+
+    @Test
+    void failedBatchFailsItsLinesOnly() {
+        Flux<String> lines = Flux.just("{\"name\":\"a\"}", "{\"name\":\"b\"}", "{\"name\":\"c\"}");
+
+        StepVerifier.create(ndjsonImport.importLines(lines, records -> records.size() == 2
+                        ? Mono.error(new IllegalStateException("database down"))
+                        : Mono.just(Map.of())))
+                .assertNext(batch -> assertEquals(List.of("database down", "database down"), errors(batch)))
+                .assertNext(batch -> assertEquals(Collections.singletonList(null), errors(batch)))
+                .verifyComplete();
+    }
+}
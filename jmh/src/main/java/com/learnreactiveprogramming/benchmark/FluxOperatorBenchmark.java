@@ -0,0 +1,71 @@
+package com.learnreactiveprogramming.benchmark;
+
+import com.learnreactiveprogramming.service.FluxAndMonoGeneratorService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import reactor.test.scheduler.VirtualTimeScheduler;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Assembly plus subscription cost of the operator chains in {@link FluxAndMonoGeneratorService}.
+ * fluxMerge delays its elements by up to 375ms; it runs on virtual time so the benchmark measures
+ * merge and timer scheduling rather than sleeping.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class FluxOperatorBenchmark {
+    private final FluxAndMonoGeneratorService service = new FluxAndMonoGeneratorService();
+    private VirtualTimeScheduler virtualTime;
+
+    @Setup(Level.Trial)
+    public void enableVirtualTime() {
+        virtualTime = VirtualTimeScheduler.getOrSet();
+    }
+
+    @TearDown(Level.Trial)
+    public void resetVirtualTime() {
+        VirtualTimeScheduler.reset();
+    }
+
+    @Benchmark
+    public void namesFluxFlatMap(Blackhole blackhole) {
+        service.namesFluxFlatMap().subscribe(blackhole::consume);
+    }
+
+    @Benchmark
+    public void namesFluxTransform(Blackhole blackhole) {
+        service.namesFluxTransform(3).subscribe(blackhole::consume);
+    }
+
+    // Every name filtered out, so the chain ends in defaultIfEmpty
+    @Benchmark
+    public void namesFluxTransformDefault(Blackhole blackhole) {
+        service.namesFluxTransform(10).subscribe(blackhole::consume);
+    }
+
+    // The virtual clock is shared, so this one cannot run on several benchmark threads
+    @Benchmark
+    @Threads(1)
+    public void fluxMerge(Blackhole blackhole) {
+        service.fluxMerge().subscribe(blackhole::consume);
+        virtualTime.advanceTimeBy(Duration.ofMillis(375));
+    }
+}
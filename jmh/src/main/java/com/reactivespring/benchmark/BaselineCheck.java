@@ -0,0 +1,151 @@
+package com.reactivespring.benchmark;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Compares JMH JSON results against a saved baseline and exits non-zero on a regression.
+ * Checked per benchmark, mode and parameter set:
+ * <ul>
+ *     <li>the primary score: throughput must not drop, sample time must not grow, by more than the threshold
+ *     and by more than the two runs' error margins together</li>
+ *     <li>the p99 of sample time runs, by the threshold</li>
+ *     <li>allocation per operation (gc.alloc.rate.norm), by the threshold and at least {@value #ALLOCATION_SLACK_BYTES}
+ *     bytes; it hardly varies between runs, so it is the most reliable signal of the three</li>
+ * </ul>
+ * Usage: {@code BaselineCheck <results dir> <baseline dir> <threshold>}.
+ */
+public class BaselineCheck {
+    private static final double ALLOCATION_SLACK_BYTES = 16;
+    private static final String P99 = "99.0";
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final double threshold;
+    private final List<String> regressions = new ArrayList<>();
+
+    BaselineCheck(double threshold) {
+        this.threshold = threshold;
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 3) {
+            System.err.println("Usage: BaselineCheck <results dir> <baseline dir> <threshold>");
+            System.exit(2);
+        }
+        File resultsDir = new File(args[0]);
+        File baselineDir = new File(args[1]);
+        BaselineCheck check = new BaselineCheck(Double.parseDouble(args[2]));
+
+        File[] results = resultsDir.listFiles((dir, name) -> name.endsWith(".json"));
+        if (results == null || results.length == 0) {
+            System.out.println("No benchmark results in " + resultsDir + ", run the jmh tasks first");
+            return;
+        }
+        for (File result : results) {
+            File baseline = new File(baselineDir, result.getName());
+            if (!baseline.isFile()) {
+                System.out.println("No baseline for " + result.getName() + ", record one with jmhSaveBaseline");
+                continue;
+            }
+            check.compare(result, baseline);
+        }
+        if (!check.regressions.isEmpty()) {
+            System.out.println();
+            System.out.println(check.regressions.size() + " regression(s) against the baseline:");
+            check.regressions.forEach(regression -> System.out.println("  " + regression));
+            System.exit(1);
+        }
+        System.out.println("No regressions against the baseline");
+    }
+
+    void compare(File resultFile, File baselineFile) throws IOException {
+        Map<String, JsonNode> baseline = index(objectMapper.readTree(baselineFile));
+        for (Map.Entry<String, JsonNode> entry : index(objectMapper.readTree(resultFile)).entrySet()) {
+            JsonNode before = baseline.get(entry.getKey());
+            if (before == null) {
+                System.out.println("new       " + entry.getKey());
+                continue;
+            }
+            compare(entry.getKey(), entry.getValue(), before);
+        }
+    }
+
+    private void compare(String key, JsonNode current, JsonNode baseline) {
+        boolean higherIsBetter = current.path("mode").asText().equals("thrpt");
+        JsonNode currentMetric = current.path("primaryMetric");
+        JsonNode baselineMetric = baseline.path("primaryMetric");
+        double score = currentMetric.path("score").asDouble();
+        double baselineScore = baselineMetric.path("score").asDouble();
+        double errors = error(currentMetric) + error(baselineMetric);
+        double change = relativeChange(score, baselineScore);
+        boolean regressed = (higherIsBetter ? -change : change) > threshold && Math.abs(score - baselineScore) > errors;
+        report(regressed, key, "score", baselineScore, score, currentMetric.path("scoreUnit").asText());
+
+        if (currentMetric.path("scorePercentiles").has(P99) && baselineMetric.path("scorePercentiles").has(P99)) {
+            double p99 = currentMetric.path("scorePercentiles").path(P99).asDouble();
+            double baselineP99 = baselineMetric.path("scorePercentiles").path(P99).asDouble();
+            report(relativeChange(p99, baselineP99) > threshold, key, "p99", baselineP99, p99,
+                    currentMetric.path("scoreUnit").asText());
+        }
+
+        JsonNode allocation = allocationPerOp(current);
+        JsonNode baselineAllocation = allocationPerOp(baseline);
+        if (allocation != null && baselineAllocation != null) {
+            double bytes = allocation.path("score").asDouble();
+            double baselineBytes = baselineAllocation.path("score").asDouble();
+            report(relativeChange(bytes, baselineBytes) > threshold && bytes - baselineBytes > ALLOCATION_SLACK_BYTES,
+                    key, "alloc", baselineBytes, bytes, "B/op");
+        }
+    }
+
+    private void report(boolean regressed, String key, String metric, double baseline, double current, String unit) {
+        String line = String.format("%-9s %s %s: %.3f -> %.3f %s (%+.1f%%)", regressed ? "REGRESSED" : "ok",
+                key, metric, baseline, current, unit, relativeChange(current, baseline) * 100);
+        System.out.println(line);
+        if (regressed) {
+            regressions.add(line.substring(10));
+        }
+    }
+
+    // Older JMH versions prefix profiler metrics with a middle dot
+    private static JsonNode allocationPerOp(JsonNode result) {
+        Iterator<Map.Entry<String, JsonNode>> metrics = result.path("secondaryMetrics").fields();
+        while (metrics.hasNext()) {
+            Map.Entry<String, JsonNode> metric = metrics.next();
+            if (metric.getKey().replace("·", "").equals("gc.alloc.rate.norm")) {
+                return metric.getValue();
+            }
+        }
+        return null;
+    }
+
+    private static Map<String, JsonNode> index(JsonNode results) {
+        Map<String, JsonNode> byKey = new LinkedHashMap<>();
+        for (JsonNode result : results) {
+            Map<String, String> params = new TreeMap<>();
+            result.path("params").fields().forEachRemaining(param -> params.put(param.getKey(), param.getValue().asText()));
+            byKey.put(result.path("benchmark").asText() + " [" + result.path("mode").asText() + "]"
+                    + (params.isEmpty() ? "" : " " + params), result);
+        }
+        return byKey;
+    }
+
+    // NaN when a run had too few iterations to compute one
+    private static double error(JsonNode metric) {
+        double error = metric.path("scoreError").asDouble(0);
+        return Double.isNaN(error) ? 0 : error;
+    }
+
+    private static double relativeChange(double current, double baseline) {
+        return baseline == 0 ? 0 : (current - baseline) / baseline;
+    }
+}
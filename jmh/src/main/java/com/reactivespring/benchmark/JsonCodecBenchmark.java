@@ -0,0 +1,91 @@
+package com.reactivespring.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.reactivespring.domain.Movie;
+import com.reactivespring.domain.MovieInfo;
+import com.reactivespring.domain.Review;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Jackson encode and decode of the payloads movies-service reads from its downstream services and
+ * writes to its clients, for both wire formats it speaks.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class JsonCodecBenchmark {
+    @Param({"json", "smile"})
+    public String format;
+
+    @Param({"2", "100"})
+    public int reviewCount;
+
+    private ObjectMapper objectMapper;
+    private MovieInfo movieInfo;
+    private Review review;
+    private Movie movie;
+    private byte[] movieInfoBytes;
+    private byte[] reviewBytes;
+    private byte[] movieBytes;
+
+    @Setup
+    public void setUp() throws IOException {
+        // Configured like the application's mappers, including the JSR-310 module for release_date
+        objectMapper = format.equals("smile")
+                ? Jackson2ObjectMapperBuilder.smile().build()
+                : Jackson2ObjectMapperBuilder.json().build();
+        movieInfo = Payloads.movieInfo("1");
+        review = Payloads.review("1", 1L);
+        movie = new Movie(movieInfo, Payloads.reviews(1L, reviewCount));
+        movieInfoBytes = objectMapper.writeValueAsBytes(movieInfo);
+        reviewBytes = objectMapper.writeValueAsBytes(review);
+        movieBytes = objectMapper.writeValueAsBytes(movie);
+    }
+
+    @Benchmark
+    public byte[] encodeMovieInfo() throws IOException {
+        return objectMapper.writeValueAsBytes(movieInfo);
+    }
+
+    @Benchmark
+    public MovieInfo decodeMovieInfo() throws IOException {
+        return objectMapper.readValue(movieInfoBytes, MovieInfo.class);
+    }
+
+    @Benchmark
+    public byte[] encodeReview() throws IOException {
+        return objectMapper.writeValueAsBytes(review);
+    }
+
+    @Benchmark
+    public Review decodeReview() throws IOException {
+        return objectMapper.readValue(reviewBytes, Review.class);
+    }
+
+    @Benchmark
+    public byte[] encodeMovie() throws IOException {
+        return objectMapper.writeValueAsBytes(movie);
+    }
+
+    @Benchmark
+    public Movie decodeMovie() throws IOException {
+        return objectMapper.readValue(movieBytes, Movie.class);
+    }
+}
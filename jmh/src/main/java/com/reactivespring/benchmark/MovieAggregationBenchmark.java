@@ -0,0 +1,111 @@
+package com.reactivespring.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.reactivespring.client.MovieReviewsRestClient;
+import com.reactivespring.client.MoviesInfoRestClient;
+import com.reactivespring.config.HedgingProperties;
+import com.reactivespring.config.LoadBalancerProperties;
+import com.reactivespring.config.MovieInfoCacheProperties;
+import com.reactivespring.config.RetryProperties;
+import com.reactivespring.controller.MoviesController;
+import com.reactivespring.domain.Movie;
+import com.reactivespring.tracing.SignalTracer;
+import com.reactivespring.tracing.SignalTracingProperties;
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeFunction;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@code GET /v1/movies/{id}} from controller to encoded body, through the real rest clients with their
+ * retry, circuit breaker, bulkhead and decoding, against downstream services answered in memory.
+ * Network time is left out on purpose: this is the CPU and allocation cost movies-service adds per request.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class MovieAggregationBenchmark {
+    private static final String MOVIES_INFO_URL = "http://movies-info/v1/movies-info";
+    private static final String REVIEWS_URL = "http://reviews/v1/reviews";
+
+    @Param({"true", "false"})
+    public boolean parallel;
+
+    // With the cache on, movie info is a cache hit after the first call and only reviews go downstream
+    @Param({"false", "true"})
+    public boolean cached;
+
+    @Param({"2", "100"})
+    public int reviewCount;
+
+    private MoviesController moviesController;
+    private ObjectMapper objectMapper;
+    private HttpHeaders requestHeaders;
+
+    @Setup
+    public void setUp() throws IOException {
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        requestHeaders = new HttpHeaders();
+        requestHeaders.setAccept(List.of(MediaType.APPLICATION_JSON));
+        String movieInfoBody = objectMapper.writeValueAsString(Payloads.movieInfo("1"));
+        String reviewsBody = objectMapper.writeValueAsString(Payloads.reviews(1L, reviewCount));
+        ExchangeFunction downstream = request -> Mono.just(ClientResponse.create(HttpStatus.OK)
+                .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                .body(request.url().toString().startsWith(MOVIES_INFO_URL) ? movieInfoBody : reviewsBody)
+                .build());
+        WebClient webClient = WebClient.builder().exchangeFunction(downstream).build();
+
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        SignalTracer signalTracer = new SignalTracer(new SignalTracingProperties());
+        MovieInfoCacheProperties cacheProperties = new MovieInfoCacheProperties();
+        cacheProperties.setEnabled(cached);
+        MoviesInfoRestClient moviesInfoRestClient = new MoviesInfoRestClient(webClient, meterRegistry, cacheProperties,
+                new RetryProperties(), CircuitBreakerRegistry.ofDefaults(), BulkheadRegistry.ofDefaults(),
+                new HedgingProperties(), new LoadBalancerProperties(), signalTracer);
+        ReflectionTestUtils.setField(moviesInfoRestClient, "moviesInfoUrl", MOVIES_INFO_URL);
+        MovieReviewsRestClient movieReviewsRestClient = new MovieReviewsRestClient(webClient, meterRegistry,
+                new RetryProperties(), CircuitBreakerRegistry.ofDefaults(), BulkheadRegistry.ofDefaults(), signalTracer);
+        ReflectionTestUtils.setField(movieReviewsRestClient, "reviewsUrl", REVIEWS_URL);
+
+        moviesController = new MoviesController(moviesInfoRestClient, movieReviewsRestClient);
+        ReflectionTestUtils.setField(moviesController, "parallelAggregation", parallel);
+        ReflectionTestUtils.setField(moviesController, "movieMaxAge", Duration.ofSeconds(30));
+        ReflectionTestUtils.setField(moviesController, "maxBatchSize", 200);
+        ReflectionTestUtils.setField(moviesController, "reviewsTimeout", Duration.ofSeconds(1));
+    }
+
+    // The body is encoded here the way the JSON codec would, so the figure still covers the encoded response
+    @Benchmark
+    public byte[] getMovieById() throws IOException {
+        ResponseEntity<Movie> response = moviesController.getMovieById("1", requestHeaders).block();
+        return objectMapper.writeValueAsBytes(response.getBody());
+    }
+}
@@ -0,0 +1,31 @@
+package com.reactivespring.benchmark;
+
+import com.reactivespring.domain.MovieInfo;
+import com.reactivespring.domain.Review;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+// Same shape as the WireMock fixtures in movies-service's integration tests
+final class Payloads {
+
+    private Payloads() {
+    }
+
+    static MovieInfo movieInfo(String movieInfoId) {
+        return new MovieInfo(movieInfoId, "Batman Begins", 2005, List.of("Christian Bale", "Michael Cane"),
+                LocalDate.parse("2005-06-15"), 1L);
+    }
+
+    static Review review(String reviewId, Long movieInfoId) {
+        return new Review(reviewId, movieInfoId, "Awesome Movie", 9.0, 1L);
+    }
+
+    static List<Review> reviews(Long movieInfoId, int count) {
+        return LongStream.rangeClosed(1, count)
+                .mapToObj(id -> review(String.valueOf(id), movieInfoId))
+                .collect(Collectors.toList());
+    }
+}
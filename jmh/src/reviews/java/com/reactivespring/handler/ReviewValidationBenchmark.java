@@ -0,0 +1,72 @@
+package com.reactivespring.handler;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.reactivespring.domain.Review;
+import com.reactivespring.exception.ReviewDataException;
+import com.reactivespring.tracing.SignalTracer;
+import com.reactivespring.tracing.SignalTracingProperties;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.validation.beanvalidation.LocalValidatorFactoryBean;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bean validation of an incoming review, as done by {@link ReviewHandler} before every save, for a
+ * valid review and for one violating both constraints (which also builds the error message).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class ReviewValidationBenchmark {
+    private final Review validReview = new Review(null, 1L, "Awesome Movie", 9.0, null);
+    private final Review invalidReview = new Review(null, null, "Awesome Movie", -9.0, null);
+
+    private LocalValidatorFactoryBean validator;
+    private ReviewHandler reviewHandler;
+
+    @Setup
+    public void setUp() {
+        // The same Spring-wrapped Hibernate Validator the application context injects
+        validator = new LocalValidatorFactoryBean();
+        validator.afterPropertiesSet();
+        // validate touches neither repository
+        reviewHandler = new ReviewHandler(null, null, new ObjectMapper(),
+                new SignalTracer(new SignalTracingProperties()));
+        ReflectionTestUtils.setField(reviewHandler, "validator", validator);
+    }
+
+    @TearDown
+    public void tearDown() {
+        validator.close();
+    }
+
+    @Benchmark
+    public Review validateValid() {
+        reviewHandler.validate(validReview);
+        return validReview;
+    }
+
+    @Benchmark
+    public String validateInvalid() {
+        try {
+            reviewHandler.validate(invalidReview);
+            throw new IllegalStateException("Review should not be valid: " + invalidReview);
+        } catch (ReviewDataException ex) {
+            return ex.getMessage();
+        }
+    }
+}
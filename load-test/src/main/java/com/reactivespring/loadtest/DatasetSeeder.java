@@ -0,0 +1,103 @@
+package com.reactivespring.loadtest;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import lombok.extern.log4j.Log4j2;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.netty.ByteBufFlux;
+import reactor.netty.http.client.HttpClient;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Movie infos with ids 1..movies and reviewsPerMovie reviews each, written through the services' NDJSON
+ * import endpoints, plus the matching payloads for the downstream stubs.
+ */
+@Log4j2
+class DatasetSeeder {
+    private static final String NDJSON = "application/x-ndjson";
+
+    private final ObjectMapper objectMapper;
+    private final HttpClient httpClient;
+    private final LoadTestProperties.Dataset dataset;
+
+    DatasetSeeder(ObjectMapper objectMapper, HttpClient httpClient, LoadTestProperties.Dataset dataset) {
+        this.objectMapper = objectMapper;
+        this.httpClient = httpClient;
+        this.dataset = dataset;
+    }
+
+    void seed(String moviesInfoBaseUrl, String reviewsBaseUrl) {
+        post(moviesInfoBaseUrl + "/v1/movies-info/import", Flux.range(1, dataset.getMovies())
+                .map(id -> toJson(movieInfo(id, "releaseDate"))));
+        post(reviewsBaseUrl + "/v1/reviews/bulk", Flux.range(1, dataset.getMovies())
+                .concatMap(id -> Flux.range(1, dataset.getReviewsPerMovie()).map(review -> toJson(review(id, review)))));
+        log.info("Seeded {} movie infos with {} reviews each", dataset.getMovies(), dataset.getReviewsPerMovie());
+    }
+
+    // movies-service's MovieInfo names the release date release_date, movies-info-service's releaseDate
+    String stubMovieInfo() {
+        return toJson(movieInfo(1, "release_date"));
+    }
+
+    String stubReviews() {
+        List<Map<String, Object>> reviews = IntStream.rangeClosed(1, dataset.getReviewsPerMovie())
+                .mapToObj(review -> {
+                    Map<String, Object> json = review(1, review);
+                    json.put("reviewId", String.valueOf(review));
+                    return json;
+                })
+                .collect(Collectors.toList());
+        return toJson(reviews);
+    }
+
+    private void post(String url, Flux<String> lines) {
+        String results = httpClient.headers(headers -> headers.set(HttpHeaderNames.CONTENT_TYPE, NDJSON))
+                .post()
+                .uri(url)
+                .send(ByteBufFlux.fromString(lines.map(line -> line + "\n")))
+                .responseSingle((response, body) -> {
+                    if (response.status().code() != 200) {
+                        return body.asString().defaultIfEmpty("")
+                                .flatMap(message -> Mono.<String>error(new IllegalStateException(
+                                        "Seeding " + url + " failed with " + response.status() + ": " + message)));
+                    }
+                    return body.asString().defaultIfEmpty("");
+                })
+                .block(Duration.ofMinutes(5));
+        log.debug("Seeded {}: {}", url, results);
+    }
+
+    private Map<String, Object> movieInfo(int id, String releaseDateField) {
+        Map<String, Object> movieInfo = new LinkedHashMap<>();
+        movieInfo.put("movieInfoId", String.valueOf(id));
+        movieInfo.put("name", "Movie " + id);
+        movieInfo.put("year", 1950 + id % 75);
+        movieInfo.put("cast", List.of("Actor " + id, "Actress " + id));
+        movieInfo.put(releaseDateField, (1950 + id % 75) + "-06-15");
+        return movieInfo;
+    }
+
+    private Map<String, Object> review(int movieInfoId, int review) {
+        Map<String, Object> json = new LinkedHashMap<>();
+        json.put("movieInfoId", movieInfoId);
+        json.put("comment", "Review " + review + " of movie " + movieInfoId);
+        json.put("rating", (double) (review % 10));
+        return json;
+    }
+
+    private String toJson(Object value) {
+        try {
+            return objectMapper.writeValueAsString(value);
+        } catch (JsonProcessingException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package com.reactivespring.loadtest;
+
+import com.github.tomakehurst.wiremock.WireMockServer;
+import com.github.tomakehurst.wiremock.client.ResponseDefinitionBuilder;
+import lombok.extern.log4j.Log4j2;
+
+import java.time.Duration;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
+import static com.github.tomakehurst.wiremock.client.WireMock.get;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlPathEqualTo;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlPathMatching;
+import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.options;
+
+/**
+ * Stand-ins for movies-info-service and movies-review-service, answering after a log-normally distributed
+ * delay so movies-service can be measured against a known downstream latency. Responses are sent
+ * asynchronously: a delayed response holds no server thread, and the stubs take an open-model load.
+ */
+@Log4j2
+class DownstreamStubs implements AutoCloseable {
+    private final WireMockServer server;
+
+    private DownstreamStubs(WireMockServer server) {
+        this.server = server;
+    }
+
+    static DownstreamStubs start(LoadTestProperties.Downstream downstream, String movieInfoJson, String reviewsJson) {
+        WireMockServer server = new WireMockServer(options()
+                .dynamicPort()
+                .containerThreads(200)
+                .asynchronousResponseEnabled(true)
+                .asynchronousResponseThreads(50)
+                .disableRequestJournal());
+        server.start();
+        Duration median = downstream.getStubLatencyMedian();
+        double sigma = downstream.getStubLatencySigma();
+        server.stubFor(get(urlPathMatching("/v1/movies-info/[^/]+"))
+                .willReturn(json(movieInfoJson).withLogNormalRandomDelay(median.toMillis(), sigma)));
+        server.stubFor(get(urlPathEqualTo("/v1/reviews"))
+                .willReturn(json(reviewsJson).withLogNormalRandomDelay(median.toMillis(), sigma)));
+        log.info("Downstream stubs on port {}, median latency {} with sigma {}", server.port(), median, sigma);
+        return new DownstreamStubs(server);
+    }
+
+    String baseUrl() {
+        return "http://localhost:" + server.port();
+    }
+
+    @Override
+    public void close() {
+        server.stop();
+    }
+
+    private static ResponseDefinitionBuilder json(String body) {
+        return aResponse()
+                .withHeader("Content-Type", "application/json")
+                .withBody(body);
+    }
+}
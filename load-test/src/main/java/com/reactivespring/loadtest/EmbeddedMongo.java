@@ -0,0 +1,59 @@
+package com.reactivespring.loadtest;
+
+import de.flapdoodle.embed.mongo.MongodExecutable;
+import de.flapdoodle.embed.mongo.MongodProcess;
+import de.flapdoodle.embed.mongo.MongodStarter;
+import de.flapdoodle.embed.mongo.config.MongodConfig;
+import de.flapdoodle.embed.mongo.config.Net;
+import de.flapdoodle.embed.mongo.distribution.Version;
+import de.flapdoodle.embed.process.runtime.Network;
+import lombok.extern.log4j.Log4j2;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * A mongod shared by movies-info-service and movies-review-service, each with a database of its own.
+ * The binary comes from flapdoodle's download cache, which the integration tests fill for the same version.
+ */
+@Log4j2
+class EmbeddedMongo implements AutoCloseable {
+    private final MongodExecutable executable;
+    private final MongodProcess process;
+    private final int port;
+
+    private EmbeddedMongo(MongodExecutable executable, MongodProcess process, int port) {
+        this.executable = executable;
+        this.process = process;
+        this.port = port;
+    }
+
+    static EmbeddedMongo start(String version) throws IOException {
+        int port = Network.getFreeServerPort();
+        MongodConfig config = MongodConfig.builder()
+                .version(mainVersion(version))
+                .net(new Net(port, Network.localhostIsIPv6()))
+                .build();
+        MongodExecutable executable = MongodStarter.getDefaultInstance().prepare(config);
+        MongodProcess process = executable.start();
+        log.info("Embedded Mongo {} listening on port {}", version, port);
+        return new EmbeddedMongo(executable, process, port);
+    }
+
+    int getPort() {
+        return port;
+    }
+
+    @Override
+    public void close() {
+        process.stop();
+        executable.stop();
+    }
+
+    private static Version mainVersion(String version) {
+        return Arrays.stream(Version.values())
+                .filter(candidate -> candidate.asInDownloadPath().equals(version))
+                .findFirst()
+                .orElseThrow(() -> new IllegalArgumentException("Unsupported embedded Mongo version: " + version));
+    }
+}
@@ -0,0 +1,43 @@
+package com.reactivespring.loadtest;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * The routes under load. Movie ids are drawn uniformly from the seeded dataset.
+ */
+public enum Endpoint {
+    MOVIE("movie") {
+        @Override
+        String nextPath(int movies) {
+            return "/v1/movies/" + randomMovieId(movies);
+        }
+    },
+    MOVIES_INFO("movies-info") {
+        @Override
+        String nextPath(int movies) {
+            return "/v1/movies-info";
+        }
+    },
+    REVIEWS("reviews") {
+        @Override
+        String nextPath(int movies) {
+            return "/v1/reviews?movieInfoId=" + randomMovieId(movies);
+        }
+    };
+
+    private final String id;
+
+    Endpoint(String id) {
+        this.id = id;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    abstract String nextPath(int movies);
+
+    private static int randomMovieId(int movies) {
+        return ThreadLocalRandom.current().nextInt(movies) + 1;
+    }
+}
@@ -0,0 +1,13 @@
+package com.reactivespring.loadtest;
+
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.SpringBootApplication;
+
+@SpringBootApplication
+public class LoadTestApplication {
+
+    public static void main(String[] args) {
+        // WireMock and flapdoodle leave non-daemon threads behind, which would keep the JVM alive
+        System.exit(SpringApplication.exit(SpringApplication.run(LoadTestApplication.class, args)));
+    }
+}
@@ -0,0 +1,66 @@
+package com.reactivespring.loadtest;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@Component
+@ConfigurationProperties(prefix = "loadtest")
+public class LoadTestProperties {
+    private String commit = "unknown";
+    private String resultsDir = "build/results/loadtest";
+    private Mongo mongo = new Mongo();
+    private Services services = new Services();
+    private Duration startupTimeout = Duration.ofSeconds(120);
+    private Dataset dataset = new Dataset();
+    private Downstream downstream = new Downstream();
+    private List<Endpoint> endpoints = List.of(Endpoint.MOVIE, Endpoint.MOVIES_INFO, Endpoint.REVIEWS);
+    private List<Integer> rates = List.of(50, 100, 200, 400, 800, 1600);
+    private Duration warmup = Duration.ofSeconds(20);
+    private Duration stepDuration = Duration.ofSeconds(30);
+    private Duration drainTimeout = Duration.ofSeconds(10);
+    private int maxInFlight = 10_000;
+
+    public enum DownstreamMode {
+        SERVICES, STUBS
+    }
+
+    @Data
+    public static class Mongo {
+        private String version = "3.5.5";
+    }
+
+    @Data
+    public static class Services {
+        private Service moviesInfo = new Service();
+        private Service reviews = new Service();
+        private Service movies = new Service();
+    }
+
+    @Data
+    public static class Service {
+        // Boot jar of the service, set by the loadTest task
+        private String jar;
+        private List<String> jvmArgs = new ArrayList<>();
+        // Extra --key=value arguments, e.g. to turn a cache off for one run
+        private List<String> args = new ArrayList<>();
+    }
+
+    @Data
+    public static class Dataset {
+        private int movies = 1000;
+        private int reviewsPerMovie = 10;
+    }
+
+    @Data
+    public static class Downstream {
+        private DownstreamMode mode = DownstreamMode.SERVICES;
+        private Duration stubLatencyMedian = Duration.ofMillis(5);
+        private double stubLatencySigma = 0.5;
+    }
+}
@@ -0,0 +1,138 @@
+package com.reactivespring.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.stereotype.Component;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Boots embedded Mongo, the optional downstream stubs and the three services, seeds the dataset, then
+ * runs a warmup and one measured step per rate against each endpoint. Results go to
+ * {@code results-dir/<commit>}, so runs of different commits sit side by side.
+ */
+@Component
+@Log4j2
+public class LoadTestRunner implements CommandLineRunner {
+    private final LoadTestProperties properties;
+
+    public LoadTestRunner(LoadTestProperties properties) {
+        this.properties = properties;
+    }
+
+    @Override
+    public void run(String... args) throws Exception {
+        ResultWriter resultWriter = new ResultWriter(Paths.get(properties.getResultsDir(), properties.getCommit()));
+        Path logs = resultWriter.getDirectory();
+        ConnectionProvider connectionProvider = ConnectionProvider.builder("loadtest")
+                .maxConnections(properties.getMaxInFlight())
+                .pendingAcquireMaxCount(-1)
+                .build();
+        HttpClient httpClient = HttpClient.create(connectionProvider);
+        DatasetSeeder seeder = new DatasetSeeder(new ObjectMapper(), httpClient, properties.getDataset());
+        boolean stubbed = properties.getDownstream().getMode() == LoadTestProperties.DownstreamMode.STUBS;
+
+        try (EmbeddedMongo mongo = EmbeddedMongo.start(properties.getMongo().getVersion());
+             DownstreamStubs stubs = stubbed
+                     ? DownstreamStubs.start(properties.getDownstream(), seeder.stubMovieInfo(), seeder.stubReviews())
+                     : null;
+             ServiceProcess moviesInfo = ServiceProcess.start("movies-info-service", properties.getServices().getMoviesInfo(),
+                     mongoArgs(mongo, "loadtest-movies-info"), logs.resolve("movies-info-service.log"));
+             ServiceProcess reviews = ServiceProcess.start("movies-review-service", properties.getServices().getReviews(),
+                     mongoArgs(mongo, "loadtest-reviews"), logs.resolve("movies-review-service.log"));
+             ServiceProcess movies = ServiceProcess.start("movies-service", properties.getServices().getMovies(),
+                     moviesArgs(stubs, moviesInfo, reviews), logs.resolve("movies-service.log"))) {
+            for (ServiceProcess service : List.of(moviesInfo, reviews, movies)) {
+                service.awaitHealthy(httpClient, properties.getStartupTimeout());
+            }
+            seeder.seed(moviesInfo.baseUrl(), reviews.baseUrl());
+            resultWriter.writeRun(settings(stubs));
+
+            OpenModelLoadGenerator generator = new OpenModelLoadGenerator(httpClient, properties.getMaxInFlight(),
+                    properties.getDrainTimeout());
+            int datasetMovies = properties.getDataset().getMovies();
+            for (Endpoint endpoint : properties.getEndpoints()) {
+                String baseUrl = baseUrl(endpoint, moviesInfo, reviews, movies);
+                log.info("Warming up {} for {}", endpoint.getId(), properties.getWarmup());
+                generator.run(endpoint, baseUrl, datasetMovies, properties.getRates().get(0), properties.getWarmup());
+
+                List<StepResult> steps = new ArrayList<>();
+                for (int rate : properties.getRates()) {
+                    StepResult step = generator.run(endpoint, baseUrl, datasetMovies, rate, properties.getStepDuration());
+                    log.info("{} at {} rps: {} rps achieved, p99 {} ms, {} failed, {} dropped", endpoint.getId(), rate,
+                            String.format("%.1f", step.achievedThroughput()),
+                            step.getLatencyMicros().getValueAtPercentile(99) / 1000.0, step.getFailed(), step.getDropped());
+                    resultWriter.writeStep(step);
+                    steps.add(step);
+                }
+                resultWriter.writeCurve(endpoint, steps);
+            }
+        } finally {
+            connectionProvider.dispose();
+        }
+        log.info("Load test results in {}", resultWriter.getDirectory().toAbsolutePath());
+    }
+
+    private List<String> mongoArgs(EmbeddedMongo mongo, String database) {
+        return List.of("--spring.profiles.active=local",
+                "--spring.data.mongodb.host=localhost",
+                "--spring.data.mongodb.port=" + mongo.getPort(),
+                "--spring.data.mongodb.database=" + database);
+    }
+
+    private List<String> moviesArgs(DownstreamStubs stubs, ServiceProcess moviesInfo, ServiceProcess reviews) {
+        List<String> args = new ArrayList<>(List.of("--spring.profiles.active=local"));
+        if (stubs != null) {
+            args.add("--restClient.moviesInfoUrl=" + stubs.baseUrl() + "/v1/movies-info");
+            args.add("--restClient.reviewsUrl=" + stubs.baseUrl() + "/v1/reviews");
+            // The stubs publish no change events
+            args.add("--movies.cache.movie-info.invalidation.enabled=false");
+        } else {
+            args.add("--restClient.moviesInfoUrl=" + moviesInfo.baseUrl() + "/v1/movies-info");
+            args.add("--restClient.reviewsUrl=" + reviews.baseUrl() + "/v1/reviews");
+        }
+        return args;
+    }
+
+    private String baseUrl(Endpoint endpoint, ServiceProcess moviesInfo, ServiceProcess reviews, ServiceProcess movies) {
+        switch (endpoint) {
+            case MOVIE:
+                return movies.baseUrl();
+            case MOVIES_INFO:
+                return moviesInfo.baseUrl();
+            case REVIEWS:
+                return reviews.baseUrl();
+            default:
+                throw new IllegalArgumentException("Unknown endpoint " + endpoint);
+        }
+    }
+
+    private Map<String, String> settings(DownstreamStubs stubs) {
+        Map<String, String> settings = new LinkedHashMap<>();
+        settings.put("commit", properties.getCommit());
+        settings.put("java.version", System.getProperty("java.version"));
+        settings.put("available.processors", String.valueOf(Runtime.getRuntime().availableProcessors()));
+        settings.put("dataset.movies", String.valueOf(properties.getDataset().getMovies()));
+        settings.put("dataset.reviews-per-movie", String.valueOf(properties.getDataset().getReviewsPerMovie()));
+        settings.put("downstream.mode", properties.getDownstream().getMode().name().toLowerCase());
+        if (stubs != null) {
+            settings.put("downstream.stub-latency-median", properties.getDownstream().getStubLatencyMedian().toString());
+            settings.put("downstream.stub-latency-sigma", String.valueOf(properties.getDownstream().getStubLatencySigma()));
+        }
+        settings.put("rates", properties.getRates().toString());
+        settings.put("warmup", properties.getWarmup().toString());
+        settings.put("step-duration", properties.getStepDuration().toString());
+        settings.put("services.movies-info.jvm-args", String.join(" ", properties.getServices().getMoviesInfo().getJvmArgs()));
+        settings.put("services.reviews.jvm-args", String.join(" ", properties.getServices().getReviews().getJvmArgs()));
+        settings.put("services.movies.jvm-args", String.join(" ", properties.getServices().getMovies().getJvmArgs()));
+        return settings;
+    }
+}
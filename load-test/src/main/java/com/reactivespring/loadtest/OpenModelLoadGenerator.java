@@ -0,0 +1,89 @@
+package com.reactivespring.loadtest;
+
+import lombok.extern.log4j.Log4j2;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.netty.http.client.HttpClient;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Sends requests at a constant arrival rate whatever the response times (an open model, like independent
+ * users), rather than a fixed number of looping clients that slow down along with the system under test.
+ */
+@Log4j2
+class OpenModelLoadGenerator {
+    private static final Duration IN_FLIGHT_SAMPLE_INTERVAL = Duration.ofMillis(10);
+
+    private final HttpClient httpClient;
+    private final int maxInFlight;
+    private final Duration drainTimeout;
+
+    OpenModelLoadGenerator(HttpClient httpClient, int maxInFlight, Duration drainTimeout) {
+        this.httpClient = httpClient;
+        this.maxInFlight = maxInFlight;
+        this.drainTimeout = drainTimeout;
+    }
+
+    StepResult run(Endpoint endpoint, String baseUrl, int movies, int rate, Duration duration) {
+        Histogram latencyMicros = new ConcurrentHistogram(3);
+        Histogram inFlightSamples = new ConcurrentHistogram(3);
+        AtomicLong inFlight = new AtomicLong();
+        AtomicLong succeeded = new AtomicLong();
+        AtomicLong failed = new AtomicLong();
+        long dropped = 0;
+        long sent = 0;
+
+        Disposable sampler = Flux.interval(IN_FLIGHT_SAMPLE_INTERVAL)
+                .subscribe(tick -> inFlightSamples.recordValue(inFlight.get()));
+        long intervalNanos = TimeUnit.SECONDS.toNanos(1) / rate;
+        long durationNanos = duration.toNanos();
+        long start = System.nanoTime();
+        for (long i = 0; i * intervalNanos < durationNanos; i++) {
+            long scheduled = start + i * intervalNanos;
+            long wait = scheduled - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            if (inFlight.get() >= maxInFlight) {
+                dropped++;
+                continue;
+            }
+            inFlight.incrementAndGet();
+            sent++;
+            httpClient.get()
+                    .uri(baseUrl + endpoint.nextPath(movies))
+                    .responseSingle((response, body) -> body.asByteArray()
+                            .map(bytes -> response.status().code())
+                            .defaultIfEmpty(response.status().code()))
+                    .subscribe(status -> {
+                        latencyMicros.recordValue(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - scheduled));
+                        (status < 400 ? succeeded : failed).incrementAndGet();
+                        inFlight.decrementAndGet();
+                    }, error -> {
+                        latencyMicros.recordValue(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - scheduled));
+                        failed.incrementAndGet();
+                        inFlight.decrementAndGet();
+                    });
+        }
+        double elapsedSeconds = (System.nanoTime() - start) / (double) TimeUnit.SECONDS.toNanos(1);
+
+        long drainDeadline = System.nanoTime() + drainTimeout.toNanos();
+        while (inFlight.get() > 0 && System.nanoTime() < drainDeadline) {
+            LockSupport.parkNanos(IN_FLIGHT_SAMPLE_INTERVAL.toNanos());
+        }
+        sampler.dispose();
+        long outstanding = inFlight.get();
+        if (outstanding > 0) {
+            log.warn("{} requests to {} still outstanding after {}, counted as failed", outstanding, endpoint.getId(),
+                    drainTimeout);
+        }
+        return new StepResult(endpoint, rate, elapsedSeconds, sent, succeeded.get(), failed.get() + outstanding,
+                dropped, latencyMicros.copy(), inFlightSamples.copy());
+    }
+}
@@ -0,0 +1,66 @@
+package com.reactivespring.loadtest;
+
+import org.HdrHistogram.Histogram;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Per step, the full latency distribution as an HdrHistogram percentile file ({@code .hgrm}, in
+ * milliseconds, readable by the HdrHistogram plotter); per endpoint, the throughput-vs-concurrency curve
+ * as CSV, one row per step.
+ */
+class ResultWriter {
+    private static final String CURVE_HEADER = "target_rps,achieved_rps,mean_in_flight,max_in_flight,"
+            + "p50_ms,p90_ms,p99_ms,p999_ms,max_ms,sent,succeeded,failed,dropped";
+
+    private final Path directory;
+
+    ResultWriter(Path directory) throws IOException {
+        this.directory = Files.createDirectories(directory);
+    }
+
+    Path getDirectory() {
+        return directory;
+    }
+
+    void writeRun(Map<String, String> settings) throws IOException {
+        try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(directory.resolve("run.properties")))) {
+            settings.forEach((key, value) -> out.println(key + "=" + value));
+        }
+    }
+
+    void writeStep(StepResult step) throws IOException {
+        Path file = directory.resolve(step.getEndpoint().getId() + "-" + step.getTargetRate() + "rps.hgrm");
+        try (PrintStream out = new PrintStream(Files.newOutputStream(file), false, StandardCharsets.UTF_8)) {
+            step.getLatencyMicros().outputPercentileDistribution(out, 1000.0);
+        }
+    }
+
+    void writeCurve(Endpoint endpoint, List<StepResult> steps) throws IOException {
+        try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(directory.resolve(endpoint.getId() + "-curve.csv")))) {
+            out.println(CURVE_HEADER);
+            for (StepResult step : steps) {
+                Histogram latency = step.getLatencyMicros();
+                out.println(String.format(Locale.ROOT, "%d,%.1f,%.1f,%d,%.3f,%.3f,%.3f,%.3f,%.3f,%d,%d,%d,%d",
+                        step.getTargetRate(), step.achievedThroughput(),
+                        step.getInFlight().getMean(), step.getInFlight().getMaxValue(),
+                        millis(latency.getValueAtPercentile(50)), millis(latency.getValueAtPercentile(90)),
+                        millis(latency.getValueAtPercentile(99)), millis(latency.getValueAtPercentile(99.9)),
+                        millis(latency.getMaxValue()),
+                        step.getSent(), step.getSucceeded(), step.getFailed(), step.getDropped()));
+            }
+        }
+    }
+
+    private static double millis(long micros) {
+        return micros / 1000.0;
+    }
+}
@@ -0,0 +1,92 @@
+package com.reactivespring.loadtest;
+
+import lombok.extern.log4j.Log4j2;
+import reactor.core.publisher.Mono;
+import reactor.netty.http.client.HttpClient;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One service started from its boot jar in a JVM of its own, so the services keep their own classpaths,
+ * heaps and GC and the harness's own load does not skew their numbers. Output goes to a log file.
+ */
+@Log4j2
+class ServiceProcess implements AutoCloseable {
+    private final String name;
+    private final Process process;
+    private final int port;
+
+    private ServiceProcess(String name, Process process, int port) {
+        this.name = name;
+        this.process = process;
+        this.port = port;
+    }
+
+    static ServiceProcess start(String name, LoadTestProperties.Service service, List<String> args, Path logFile)
+            throws IOException {
+        if (service.getJar() == null) {
+            throw new IllegalStateException("No jar for " + name + ", run the harness with the loadTest task");
+        }
+        int port = freePort();
+        List<String> command = new ArrayList<>();
+        command.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+        command.addAll(service.getJvmArgs());
+        command.add("-jar");
+        command.add(service.getJar());
+        command.add("--server.port=" + port);
+        command.addAll(args);
+        command.addAll(service.getArgs());
+        Process process = new ProcessBuilder(command)
+                .redirectErrorStream(true)
+                .redirectOutput(logFile.toFile())
+                .start();
+        log.info("Started {} on port {}, logging to {}", name, port, logFile);
+        return new ServiceProcess(name, process, port);
+    }
+
+    String baseUrl() {
+        return "http://localhost:" + port;
+    }
+
+    void awaitHealthy(HttpClient httpClient, Duration timeout) throws InterruptedException {
+        long deadline = System.nanoTime() + timeout.toNanos();
+        while (System.nanoTime() < deadline) {
+            if (!process.isAlive()) {
+                throw new IllegalStateException(name + " exited with status " + process.exitValue() + " during startup");
+            }
+            Integer status = httpClient.get()
+                    .uri(baseUrl() + "/actuator/health")
+                    .response()
+                    .map(response -> response.status().code())
+                    .onErrorResume(ex -> Mono.empty())
+                    .block(Duration.ofSeconds(5));
+            if (status != null && status == 200) {
+                log.info("{} is up", name);
+                return;
+            }
+            Thread.sleep(500);
+        }
+        throw new IllegalStateException(name + " was not healthy within " + timeout);
+    }
+
+    @Override
+    public void close() throws InterruptedException {
+        process.destroy();
+        if (!process.waitFor(15, TimeUnit.SECONDS)) {
+            process.destroyForcibly().waitFor();
+        }
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+}
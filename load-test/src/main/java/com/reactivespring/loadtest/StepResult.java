@@ -0,0 +1,25 @@
+package com.reactivespring.loadtest;
+
+import lombok.Value;
+import org.HdrHistogram.Histogram;
+
+/**
+ * One constant-rate step. Latencies are in microseconds, measured from each request's scheduled send
+ * time, so a stalled system is charged for the requests it delayed as well (no coordinated omission).
+ */
+@Value
+class StepResult {
+    Endpoint endpoint;
+    int targetRate;
+    double durationSeconds;
+    long sent;
+    long succeeded;
+    long failed;
+    long dropped;
+    Histogram latencyMicros;
+    Histogram inFlight;
+
+    double achievedThroughput() {
+        return succeeded / durationSeconds;
+    }
+}
@@ -1,55 +1,176 @@
 package org.reactivespring.controller;
 
+import com.reactivespring.codec.SmileMediaType;
+import com.reactivespring.http.VersionETag;
+import com.reactivespring.pagination.PageCursor;
+import com.reactivespring.projection.FieldProjection;
+import com.reactivespring.tracing.SignalTracer;
+import org.reactivespring.dto.MovieInfoImportResult;
 import org.reactivespring.entity.MovieInfo;
+import org.reactivespring.event.MovieInfoChangeEvent;
+import org.reactivespring.service.MovieInfoImportService;
 import org.reactivespring.service.MoviesInfoService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ServerWebInputException;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 import javax.validation.Valid;
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
 
 @RestController
 @RequestMapping("/v1")
 public class MoviesInfoController {
     private final MoviesInfoService moviesInfoService;
+    private final MovieInfoImportService movieInfoImportService;
+    private final int defaultPageSize;
+    private final int maxPageSize;
+    private final int maxBatchSize;
+    private final Duration movieInfoMaxAge;
+    private final SignalTracer signalTracer;
 
-    public MoviesInfoController(MoviesInfoService moviesInfoService) {
+    public MoviesInfoController(MoviesInfoService moviesInfoService, MovieInfoImportService movieInfoImportService,
+                                @Value("${movies-info.page.default-size:100}") int defaultPageSize,
+                                @Value("${movies-info.page.max-size:500}") int maxPageSize,
+                                @Value("${movies-info.batch.max-size:200}") int maxBatchSize,
+                                @Value("${movies-info.cache.max-age:60s}") Duration movieInfoMaxAge,
+                                SignalTracer signalTracer) {
         this.moviesInfoService = moviesInfoService;
+        this.movieInfoImportService = movieInfoImportService;
+        this.defaultPageSize = defaultPageSize;
+        this.maxPageSize = maxPageSize;
+        this.maxBatchSize = maxBatchSize;
+        this.movieInfoMaxAge = movieInfoMaxAge;
+        this.signalTracer = signalTracer;
     }
 
-    @GetMapping("/movies-info")
-    public Flux<MovieInfo> getAllMovieInfo(@RequestParam(value = "year", required = false) Integer year) {
-        if (year != null) {
-            return moviesInfoService.getMovieInfoByYear(year);
+    // NDJSON and SSE stream one document per line/event; plain JSON is written as an array element by element
+    @GetMapping(value = "/movies-info", produces = {MediaType.APPLICATION_JSON_VALUE,
+            MediaType.APPLICATION_NDJSON_VALUE, MediaType.TEXT_EVENT_STREAM_VALUE, SmileMediaType.APPLICATION_SMILE_VALUE})
+    public Mono<ResponseEntity<Flux<MovieInfo>>> getAllMovieInfo(@RequestParam(value = "year", required = false) Integer year,
+                                                                 @RequestParam(value = "ids", required = false) List<String> ids,
+                                                                 @RequestParam(value = "cursor", required = false) String cursor,
+                                                                 @RequestParam(value = "limit", required = false) Integer limit,
+                                                                 @RequestParam(value = "fields", required = false) String fields) {
+        Set<String> projectedFields = parseFields(fields);
+        if (ids != null && !ids.isEmpty()) {
+            if (ids.size() > maxBatchSize) {
+                throw new ServerWebInputException("ids must not contain more than " + maxBatchSize + " ids");
+            }
+            // Single $in query instead of one findById per movie
+            return Mono.just(ResponseEntity.ok().body(moviesInfoService.getMovieInfoByIds(ids, projectedFields)
+                    .transform(signalTracer.flux("getMovieInfoByIds", null))));
         }
-        return moviesInfoService.getAllMovieInfo().log();
+        int pageSize = resolvePageSize(limit);
+        String afterMovieInfoId = decodeCursor(cursor);
+        return moviesInfoService.getMovieInfoPage(year, afterMovieInfoId, pageSize, projectedFields)
+                .map(page -> {
+                    ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+                    if (page.getNextCursor() != null) {
+                        response.header(PageCursor.NEXT_CURSOR_HEADER, page.getNextCursor());
+                    }
+                    return response.body(page.getItems());
+                })
+                .transform(signalTracer.mono("getAllMovieInfo", null));
     }
 
-    @GetMapping("/movies-info/{id}")
-    public Mono<ResponseEntity<MovieInfo>> getMovieInfoById(@PathVariable String id) {
+    private int resolvePageSize(Integer limit) {
+        if (limit == null) {
+            return defaultPageSize;
+        }
+        if (limit < 1 || limit > maxPageSize) {
+            throw new ServerWebInputException("limit must be between 1 and " + maxPageSize);
+        }
+        return limit;
+    }
+
+    private Set<String> parseFields(String fields) {
+        try {
+            return FieldProjection.parse(fields, MovieInfo.class);
+        } catch (IllegalArgumentException ex) {
+            throw new ServerWebInputException(ex.getMessage());
+        }
+    }
+
+    private String decodeCursor(String cursor) {
+        if (cursor == null) {
+            return null;
+        }
+        try {
+            return PageCursor.decode(cursor);
+        } catch (IllegalArgumentException ex) {
+            throw new ServerWebInputException(ex.getMessage());
+        }
+    }
+
+    // The version ETag lets a matching If-None-Match be answered with 304 before the body is encoded
+    @GetMapping(value = "/movies-info/{id}", produces = {MediaType.APPLICATION_JSON_VALUE, SmileMediaType.APPLICATION_SMILE_VALUE})
+    public Mono<ResponseEntity<MovieInfo>> getMovieInfoById(@PathVariable String id, @RequestHeader HttpHeaders headers) {
+        MediaType contentType = SmileMediaType.negotiate(headers.getAccept());
         return moviesInfoService.getMovieInfoById(id)
-                        .map(ResponseEntity.ok()::body)
-                                .switchIfEmpty(Mono.just(ResponseEntity.notFound().build())).log();
+                        .map(movieInfo -> ResponseEntity.ok()
+                                .eTag(VersionETag.of(movieInfo.getVersion(), contentType))
+                                .cacheControl(CacheControl.maxAge(movieInfoMaxAge).cachePublic())
+                                .varyBy(HttpHeaders.ACCEPT)
+                                .body(movieInfo))
+                                .switchIfEmpty(Mono.just(ResponseEntity.notFound().build()))
+                                .transform(signalTracer.mono("getMovieInfoById", id));
+    }
+
+    @GetMapping(value = "/movies-info/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public Flux<ServerSentEvent<MovieInfoChangeEvent>> getMovieInfoEvents(
+            @RequestHeader(value = "Last-Event-ID", required = false) String lastEventId) {
+        return moviesInfoService.getMovieInfoEvents(lastEventId);
     }
 
     @PostMapping("/movies-info")
     @ResponseStatus(HttpStatus.CREATED)
     public Mono<MovieInfo> addMovieInfo(@RequestBody @Valid MovieInfo movieInfo) {
-        return moviesInfoService.addMovieInfo(movieInfo).log();
+        return moviesInfoService.addMovieInfo(movieInfo)
+                .transform(signalTracer.mono("addMovieInfo", null));
+    }
+
+    // NDJSON in, one line per failed record plus a closing summary out
+    @PostMapping(value = "/movies-info/import", consumes = MediaType.APPLICATION_NDJSON_VALUE,
+            produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<MovieInfoImportResult> importMovieInfo(@RequestBody Flux<String> lines) {
+        return movieInfoImportService.importMovieInfo(lines);
     }
 
     @PutMapping("/movies-info/{id}")
-    public Mono<ResponseEntity<MovieInfo>> updateMovieInfo(@PathVariable String id, @RequestBody @Valid MovieInfo movieInfo) {
-        return moviesInfoService.updateMovieInfo(id, movieInfo)
-                .map(ResponseEntity.ok()::body)
-                .switchIfEmpty(Mono.just(ResponseEntity.notFound().build())).log();
+    public Mono<ResponseEntity<MovieInfo>> updateMovieInfo(@PathVariable String id, @RequestBody @Valid MovieInfo movieInfo,
+                                                           @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        Long expectedVersion = VersionETag.parseIfMatch(ifMatch);
+        return moviesInfoService.updateMovieInfo(id, movieInfo, expectedVersion)
+                .map(updatedMovieInfo -> ResponseEntity.ok().eTag(VersionETag.of(updatedMovieInfo.getVersion())).body(updatedMovieInfo))
+                .switchIfEmpty(Mono.defer(() -> notUpdated(id, expectedVersion)))
+                .transform(signalTracer.mono("updateMovieInfo", id));
+    }
+
+    // Nothing matched: either the movie info is gone or, with If-Match, someone else updated it first
+    private Mono<ResponseEntity<MovieInfo>> notUpdated(String id, Long expectedVersion) {
+        if (expectedVersion == null) {
+            return Mono.just(ResponseEntity.notFound().build());
+        }
+        return moviesInfoService.existsMovieInfo(id)
+                .map(exists -> exists
+                        ? ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).<MovieInfo>build()
+                        : ResponseEntity.notFound().<MovieInfo>build());
     }
 
     @DeleteMapping("/movies-info/{id}")
     @ResponseStatus(HttpStatus.NO_CONTENT)
     public Mono<Void> deleteMovieInfoById(@PathVariable String id) {
-        return moviesInfoService.deleteMovieInfoById(id).log();
+        return moviesInfoService.deleteMovieInfoById(id)
+                .transform(signalTracer.mono("deleteMovieInfoById", id));
     }
 }
@@ -0,0 +1,38 @@
+package org.reactivespring.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * One line of a movie info import report: either a record that could not be imported, or, as the
+ * last line, the summary of the whole import.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class MovieInfoImportResult {
+    private Long line;
+    private String movieInfoId;
+    private String error;
+    private Summary summary;
+
+    public static MovieInfoImportResult failed(long line, String movieInfoId, String error) {
+        return MovieInfoImportResult.builder().line(line).movieInfoId(movieInfoId).error(error).build();
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Summary {
+        private long records;
+        private long upserted;
+        private long failed;
+        private long elapsedMillis;
+        private double recordsPerSecond;
+    }
+}
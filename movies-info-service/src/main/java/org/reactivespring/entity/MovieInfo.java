@@ -1,10 +1,15 @@
 package org.reactivespring.entity;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.Version;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
+import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 import javax.validation.constraints.NotBlank;
@@ -18,14 +23,25 @@ import java.util.List;
 @AllArgsConstructor
 @Builder
 @Document
+// Fields left out by a projection are null; omit them instead of serializing nulls
+@JsonInclude(JsonInclude.Include.NON_NULL)
+// year_name also serves year-only lookups (prefix); year_id keeps keyset pages within a year free of an in-memory sort
+@CompoundIndexes({
+        @CompoundIndex(name = "year_name", def = "{'year': 1, 'name': 1}"),
+        @CompoundIndex(name = "year_id", def = "{'year': 1, '_id': 1}")
+})
 public class MovieInfo {
     @Id
     private String movieInfoId;
     @NotBlank(message = "name should not be blank")
+    @Indexed(name = "name")
     private String name;
     @NotNull
     @Positive(message = "year should be a positive number")
     private Integer year;
     private List<@NotBlank(message = "cast should not be blank") String> cast;
     private LocalDate releaseDate;
+    // Bumped on every write; exposed as the ETag and checked against If-Match on updates
+    @Version
+    private Long version;
 }
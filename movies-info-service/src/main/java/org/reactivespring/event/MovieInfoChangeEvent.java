@@ -0,0 +1,26 @@
+package org.reactivespring.event;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class MovieInfoChangeEvent {
+    // IMPORTED covers a whole import batch, listed in movieInfoIds
+    public enum Type { CREATED, UPDATED, DELETED, IMPORTED }
+
+    // Random per process start, so subscribers can tell a restart (and its lost history) from a resume
+    private String epoch;
+    private long sequence;
+    private Type type;
+    private String movieInfoId;
+    private List<String> movieInfoIds;
+}
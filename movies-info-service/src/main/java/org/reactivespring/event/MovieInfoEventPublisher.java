@@ -0,0 +1,81 @@
+package org.reactivespring.event;
+
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Publishes movie info changes so that downstream caches can evict entries as they happen.
+ * The last {@code replaySize} events are kept, and a subscriber reconnecting with the SSE
+ * {@code Last-Event-ID} header gets the events it missed. Events are numbered contiguously
+ * per epoch, so a subscriber that sees a gap or a new epoch knows to drop its whole cache.
+ * <p>
+ * Events are kept in memory and only cover changes made through this instance. With several
+ * replicas a subscriber has to follow each of them, as movies-service does for its configured
+ * movies-info endpoints. A MongoDB change stream would cover every writer, but needs a replica set,
+ * which neither the local setup nor the embedded test database provide.
+ */
+@Component
+@Log4j2
+public class MovieInfoEventPublisher {
+    private final String epoch = UUID.randomUUID().toString();
+    private final Sinks.Many<MovieInfoChangeEvent> sink;
+    private final Duration heartbeatInterval;
+    private long sequence;
+
+    public MovieInfoEventPublisher(@Value("${movies-info.events.replay-size:1024}") int replaySize,
+                                   @Value("${movies-info.events.heartbeat-interval:15s}") Duration heartbeatInterval) {
+        this.sink = Sinks.many().replay().limit(replaySize);
+        this.heartbeatInterval = heartbeatInterval;
+    }
+
+    public synchronized void publish(MovieInfoChangeEvent.Type type, String movieInfoId) {
+        emit(new MovieInfoChangeEvent(epoch, ++sequence, type, movieInfoId, null));
+    }
+
+    // One event per import batch, so a bulk import neither floods subscribers nor pushes the other
+    // changes out of the replay buffer
+    public synchronized void publishImported(List<String> movieInfoIds) {
+        emit(new MovieInfoChangeEvent(epoch, ++sequence, MovieInfoChangeEvent.Type.IMPORTED, null, List.copyOf(movieInfoIds)));
+    }
+
+    private void emit(MovieInfoChangeEvent event) {
+        Sinks.EmitResult result = sink.tryEmitNext(event);
+        if (result.isFailure()) {
+            log.warn("Could not publish movie info event {} : {}", event, result);
+        }
+    }
+
+    public Flux<ServerSentEvent<MovieInfoChangeEvent>> events(String lastEventId) {
+        Flux<ServerSentEvent<MovieInfoChangeEvent>> events = Flux.defer(() -> {
+                    long after = resumeAfter(lastEventId);
+                    return sink.asFlux().filter(event -> event.getSequence() > after);
+                })
+                .map(event -> ServerSentEvent.builder(event)
+                        .id(event.getEpoch() + ":" + event.getSequence())
+                        .event(event.getType().name())
+                        .build());
+        Flux<ServerSentEvent<MovieInfoChangeEvent>> heartbeats = Flux.interval(heartbeatInterval)
+                .map(tick -> ServerSentEvent.<MovieInfoChangeEvent>builder().comment("heartbeat").build());
+        return Flux.merge(events, heartbeats);
+    }
+
+    // Resumes after the given event of this epoch; anyone else only gets events from now on
+    private synchronized long resumeAfter(String lastEventId) {
+        if (lastEventId != null && lastEventId.startsWith(epoch + ":")) {
+            try {
+                return Long.parseLong(lastEventId.substring(epoch.length() + 1));
+            } catch (NumberFormatException ex) {
+                log.info("Ignoring malformed Last-Event-ID: {}", lastEventId);
+            }
+        }
+        return sequence;
+    }
+}
@@ -4,8 +4,12 @@ import org.reactivespring.entity.MovieInfo;
 import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
 import reactor.core.publisher.Flux;
 
-public interface MovieInfoRepository extends ReactiveMongoRepository<MovieInfo, String> {
+import java.util.Collection;
+
+public interface MovieInfoRepository extends ReactiveMongoRepository<MovieInfo, String>, MovieInfoRepositoryCustom {
     Flux<MovieInfo> findByYear(Integer year);
 
     Flux<MovieInfo> findByName(String name);
+
+    Flux<MovieInfo> findByMovieInfoIdIn(Collection<String> movieInfoIds);
 }
@@ -0,0 +1,45 @@
+package org.reactivespring.repository;
+
+import org.reactivespring.entity.MovieInfo;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+public interface MovieInfoRepositoryCustom {
+    /**
+     * Keyset page ordered by id: documents after {@code afterMovieInfoId} (from the start when null),
+     * optionally restricted to {@code year}.
+     * Only {@code fields} are read when non-empty; the id is always returned.
+     */
+    Flux<MovieInfo> findPage(Integer year, String afterMovieInfoId, int limit, Set<String> fields);
+
+    /**
+     * The documents of a page whose ids were already read with {@link #findPage}: those after
+     * {@code afterMovieInfoId} up to and including {@code lastMovieInfoId}, in id order. Bounded by ids rather than
+     * a limit, so documents written in the meantime neither push one out of the page nor pull one in twice.
+     */
+    Flux<MovieInfo> findRange(Integer year, String afterMovieInfoId, String lastMovieInfoId, Set<String> fields);
+
+    /**
+     * The movie infos with the given ids, in one $in query. Only {@code fields} are read when non-empty.
+     */
+    Flux<MovieInfo> findByIds(Collection<String> movieInfoIds, Set<String> fields);
+
+    /**
+     * Sets name, year, cast and release date of one movie info and bumps its version in a single
+     * findAndModify. When {@code expectedVersion} is given the update only applies to that version.
+     * Emits the updated document, or nothing when no document matched.
+     */
+    Mono<MovieInfo> updateMovieInfo(String movieInfoId, MovieInfo changes, Long expectedVersion);
+
+    /**
+     * Replaces each movie info by id, inserting it when absent, in one unordered bulk write.
+     * Ids are generated for movie infos without one and set on them; the result maps the position of
+     * each movie info that could not be written to the reason.
+     */
+    Mono<Map<Integer, String>> upsertAll(List<MovieInfo> movieInfos);
+}
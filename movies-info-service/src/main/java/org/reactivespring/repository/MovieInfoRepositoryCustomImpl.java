@@ -0,0 +1,126 @@
+package org.reactivespring.repository;
+
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.client.model.BulkWriteOptions;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.UpdateOneModel;
+import com.mongodb.client.model.UpdateOptions;
+import com.reactivespring.mongo.MongoCriteria;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.reactivespring.entity.MovieInfo;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mapping.PropertyHandler;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.mapping.MongoPersistentEntity;
+import org.springframework.data.mongodb.core.mapping.MongoPersistentProperty;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+public class MovieInfoRepositoryCustomImpl implements MovieInfoRepositoryCustom {
+    private final ReactiveMongoTemplate reactiveMongoTemplate;
+
+    public MovieInfoRepositoryCustomImpl(ReactiveMongoTemplate reactiveMongoTemplate) {
+        this.reactiveMongoTemplate = reactiveMongoTemplate;
+    }
+
+    @Override
+    public Flux<MovieInfo> findPage(Integer year, String afterMovieInfoId, int limit, Set<String> fields) {
+        Query query = pageQuery(year, afterMovieInfoId, null, fields);
+        query.limit(limit);
+        return reactiveMongoTemplate.find(query, MovieInfo.class);
+    }
+
+    @Override
+    public Flux<MovieInfo> findRange(Integer year, String afterMovieInfoId, String lastMovieInfoId, Set<String> fields) {
+        return reactiveMongoTemplate.find(pageQuery(year, afterMovieInfoId, lastMovieInfoId, fields), MovieInfo.class);
+    }
+
+    @Override
+    public Flux<MovieInfo> findByIds(Collection<String> movieInfoIds, Set<String> fields) {
+        Query query = Query.query(Criteria.where("movieInfoId").in(movieInfoIds));
+        fields.forEach(field -> query.fields().include(field));
+        return reactiveMongoTemplate.find(query, MovieInfo.class);
+    }
+
+    // Shared by findPage and findRange; the index tests explain this exact query
+    static Query pageQuery(Integer year, String afterMovieInfoId, String lastMovieInfoId, Set<String> fields) {
+        Query query = new Query();
+        if (year != null) {
+            query.addCriteria(Criteria.where("year").is(year));
+        }
+        if (afterMovieInfoId != null || lastMovieInfoId != null) {
+            query.addCriteria(MongoCriteria.idRange("movieInfoId", afterMovieInfoId, lastMovieInfoId));
+        }
+        fields.forEach(field -> query.fields().include(field));
+        return query.with(Sort.by(Sort.Direction.ASC, "movieInfoId"));
+    }
+
+    @Override
+    public Mono<MovieInfo> updateMovieInfo(String movieInfoId, MovieInfo changes, Long expectedVersion) {
+        Query query = Query.query(Criteria.where("movieInfoId").is(movieInfoId));
+        if (expectedVersion != null) {
+            query.addCriteria(MongoCriteria.versionIs("version", expectedVersion));
+        }
+        Update update = new Update()
+                .set("name", changes.getName())
+                .set("year", changes.getYear())
+                .set("cast", changes.getCast())
+                .set("releaseDate", changes.getReleaseDate())
+                .inc("version", 1);
+        return reactiveMongoTemplate.findAndModify(query, update, FindAndModifyOptions.options().returnNew(true), MovieInfo.class);
+    }
+
+    @Override
+    public Mono<Map<Integer, String>> upsertAll(List<MovieInfo> movieInfos) {
+        MongoPersistentEntity<?> persistentEntity = reactiveMongoTemplate.getConverter().getMappingContext()
+                .getRequiredPersistentEntity(MovieInfo.class);
+        List<Object> ids = new ArrayList<>(movieInfos.size());
+        List<UpdateOneModel<Document>> upserts = new ArrayList<>(movieInfos.size());
+        for (MovieInfo movieInfo : movieInfos) {
+            Document document = new Document();
+            reactiveMongoTemplate.getConverter().write(movieInfo, document);
+            Object id = document.containsKey("_id") ? document.remove("_id") : new ObjectId();
+            document.remove(persistentEntity.getRequiredVersionProperty().getFieldName());
+            // Replace semantics: properties missing from the record are cleared, and the version keeps counting
+            Document unset = new Document();
+            persistentEntity.doWithProperties((PropertyHandler<MongoPersistentProperty>) property -> {
+                if (!property.isIdProperty() && !property.isVersionProperty() && !document.containsKey(property.getFieldName())) {
+                    unset.append(property.getFieldName(), "");
+                }
+            });
+            Document update = new Document("$set", document)
+                    .append("$inc", new Document(persistentEntity.getRequiredVersionProperty().getFieldName(), 1L));
+            if (!unset.isEmpty()) {
+                update.append("$unset", unset);
+            }
+            ids.add(id);
+            upserts.add(new UpdateOneModel<>(Filters.eq("_id", id), update, new UpdateOptions().upsert(true)));
+        }
+        return reactiveMongoTemplate.getCollection(reactiveMongoTemplate.getCollectionName(MovieInfo.class))
+                .flatMap(collection -> Mono.from(collection.bulkWrite(upserts, new BulkWriteOptions().ordered(false))))
+                .map(result -> Map.<Integer, String>of())
+                .onErrorResume(MongoBulkWriteException.class, ex -> Mono.just(ex.getWriteErrors().stream()
+                        .collect(Collectors.toMap(BulkWriteError::getIndex, BulkWriteError::getMessage))))
+                .doOnNext(writeErrors -> {
+                    for (int i = 0; i < movieInfos.size(); i++) {
+                        if (!writeErrors.containsKey(i)) {
+                            Object id = ids.get(i);
+                            movieInfos.get(i).setMovieInfoId(id instanceof ObjectId ? ((ObjectId) id).toHexString() : String.valueOf(id));
+                        }
+                    }
+                });
+    }
+}
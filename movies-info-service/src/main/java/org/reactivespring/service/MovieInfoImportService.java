@@ -0,0 +1,96 @@
+package org.reactivespring.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.reactivespring.ndjson.NdjsonBatchImport;
+import lombok.extern.log4j.Log4j2;
+import org.reactivespring.dto.MovieInfoImportResult;
+import org.reactivespring.entity.MovieInfo;
+import org.reactivespring.event.MovieInfoEventPublisher;
+import org.reactivespring.repository.MovieInfoRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import javax.validation.ConstraintViolation;
+import javax.validation.Validator;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Imports movie infos from NDJSON lines. Records are validated, grouped into batches and upserted by
+ * id with one unordered bulk write per batch, with a bounded number of batches in flight. Only failed
+ * records are reported, followed by a summary with the throughput of the whole import.
+ */
+@Service
+@Log4j2
+public class MovieInfoImportService {
+    private final MovieInfoRepository movieInfoRepository;
+    private final MovieInfoEventPublisher movieInfoEventPublisher;
+    private final NdjsonBatchImport<MovieInfo> ndjsonImport;
+
+    public MovieInfoImportService(MovieInfoRepository movieInfoRepository, MovieInfoEventPublisher movieInfoEventPublisher,
+                                  ObjectMapper objectMapper, Validator validator,
+                                  @Value("${movies-info.import.batch-size:500}") int batchSize,
+                                  @Value("${movies-info.import.concurrency:4}") int concurrency) {
+        this.movieInfoRepository = movieInfoRepository;
+        this.movieInfoEventPublisher = movieInfoEventPublisher;
+        this.ndjsonImport = new NdjsonBatchImport<>(objectMapper, MovieInfo.class, "movie info",
+                movieInfo -> constraintViolationMessage(validator, movieInfo), batchSize, concurrency);
+    }
+
+    public Flux<MovieInfoImportResult> importMovieInfo(Flux<String> lines) {
+        return Flux.defer(() -> {
+            long start = System.nanoTime();
+            AtomicLong records = new AtomicLong();
+            AtomicLong failed = new AtomicLong();
+            Flux<MovieInfoImportResult> failures = ndjsonImport.importLines(lines, this::upsertBatch)
+                    .doOnNext(batch -> records.addAndGet(batch.size()))
+                    .flatMapIterable(batch -> batch)
+                    .filter(line -> line.getError() != null)
+                    .map(line -> MovieInfoImportResult.failed(line.getLine(),
+                            line.getRecord() == null ? null : line.getRecord().getMovieInfoId(), line.getError()))
+                    .doOnNext(failure -> failed.incrementAndGet());
+            Mono<MovieInfoImportResult> summary = Mono.fromCallable(() -> {
+                long elapsedNanos = Math.max(System.nanoTime() - start, 1);
+                MovieInfoImportResult.Summary importSummary = new MovieInfoImportResult.Summary(records.get(),
+                        records.get() - failed.get(), failed.get(), TimeUnit.NANOSECONDS.toMillis(elapsedNanos),
+                        records.get() * (double) TimeUnit.SECONDS.toNanos(1) / elapsedNanos);
+                log.info("Movie info import finished: {}", importSummary);
+                return MovieInfoImportResult.builder().summary(importSummary).build();
+            });
+            return failures.concatWith(summary);
+        });
+    }
+
+    private static String constraintViolationMessage(Validator validator, MovieInfo movieInfo) {
+        var constraintViolations = validator.validate(movieInfo);
+        if (constraintViolations.isEmpty()) {
+            return null;
+        }
+        return constraintViolations.stream()
+                .map(ConstraintViolation::getMessage)
+                .sorted()
+                .collect(Collectors.joining(","));
+    }
+
+    private Mono<Map<Integer, String>> upsertBatch(List<MovieInfo> movieInfos) {
+        return movieInfoRepository.upsertAll(movieInfos)
+                // Downstream caches evict the imported ids, announced once for the whole batch
+                .doOnNext(writeErrors -> {
+                    List<String> importedIds = new ArrayList<>(movieInfos.size());
+                    for (int i = 0; i < movieInfos.size(); i++) {
+                        if (!writeErrors.containsKey(i)) {
+                            importedIds.add(movieInfos.get(i).getMovieInfoId());
+                        }
+                    }
+                    if (!importedIds.isEmpty()) {
+                        movieInfoEventPublisher.publishImported(importedIds);
+                    }
+                });
+    }
+}
@@ -1,48 +1,69 @@
 package org.reactivespring.service;
 
+import com.reactivespring.pagination.Page;
 import org.reactivespring.entity.MovieInfo;
+import org.reactivespring.event.MovieInfoChangeEvent;
+import org.reactivespring.event.MovieInfoEventPublisher;
 import org.reactivespring.repository.MovieInfoRepository;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.stereotype.Service;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.util.Collection;
+import java.util.Set;
+
 @Service
 public class MoviesInfoService {
 
     private MovieInfoRepository movieInfoRepository;
+    private MovieInfoEventPublisher movieInfoEventPublisher;
 
-    public MoviesInfoService(MovieInfoRepository movieInfoRepository) {
+    public MoviesInfoService(MovieInfoRepository movieInfoRepository, MovieInfoEventPublisher movieInfoEventPublisher) {
         this.movieInfoRepository = movieInfoRepository;
+        this.movieInfoEventPublisher = movieInfoEventPublisher;
     }
 
     public Mono<MovieInfo> addMovieInfo(MovieInfo movieInfo) {
-        return movieInfoRepository.save(movieInfo);
+        // Published too, so callers drop a cached NOT_FOUND for this id
+        return movieInfoRepository.save(movieInfo)
+                .doOnNext(savedMovieInfo -> movieInfoEventPublisher.publish(MovieInfoChangeEvent.Type.CREATED,
+                        savedMovieInfo.getMovieInfoId()));
+    }
+
+    public Mono<Page<MovieInfo>> getMovieInfoPage(Integer year, String afterMovieInfoId, int pageSize, Set<String> fields) {
+        // Ids first, one extra telling whether a next page exists without a count query; the page itself then
+        // streams from the database with demand reaching the cursor
+        return movieInfoRepository.findPage(year, afterMovieInfoId, pageSize + 1, Set.of("movieInfoId"))
+                .collectList()
+                .map(keys -> Page.of(keys, pageSize, MovieInfo::getMovieInfoId, lastMovieInfoId ->
+                        movieInfoRepository.findRange(year, afterMovieInfoId, lastMovieInfoId, fields)));
     }
 
-    public Flux<MovieInfo> getAllMovieInfo() {
-        return movieInfoRepository.findAll();
+    public Flux<MovieInfo> getMovieInfoByIds(Collection<String> ids, Set<String> fields) {
+        return movieInfoRepository.findByIds(ids, fields);
     }
 
     public Mono<MovieInfo> getMovieInfoById(String id) {
         return movieInfoRepository.findById(id);
     }
 
-    public Mono<MovieInfo> updateMovieInfo(String id, MovieInfo movieInfo) {
-        return movieInfoRepository.findById(id)
-                .flatMap(movieInfo1 -> {
-                    movieInfo1.setName(movieInfo.getName());
-                    movieInfo1.setYear(movieInfo.getYear());
-                    movieInfo1.setCast(movieInfo.getCast());
-                    movieInfo1.setReleaseDate(movieInfo.getReleaseDate());
-                    return movieInfoRepository.save(movieInfo1);
-                });
+    // Single findAndModify; with expectedVersion the update only applies if nobody else changed the document
+    public Mono<MovieInfo> updateMovieInfo(String id, MovieInfo movieInfo, Long expectedVersion) {
+        return movieInfoRepository.updateMovieInfo(id, movieInfo, expectedVersion)
+                .doOnNext(savedMovieInfo -> movieInfoEventPublisher.publish(MovieInfoChangeEvent.Type.UPDATED, id));
+    }
+
+    public Mono<Boolean> existsMovieInfo(String id) {
+        return movieInfoRepository.existsById(id);
     }
 
     public Mono<Void> deleteMovieInfoById(String id) {
-        return movieInfoRepository.deleteById(id);
+        return movieInfoRepository.deleteById(id)
+                .doOnSuccess(unused -> movieInfoEventPublisher.publish(MovieInfoChangeEvent.Type.DELETED, id));
     }
 
-    public Flux<MovieInfo> getMovieInfoByYear(Integer year) {
-        return movieInfoRepository.findByYear(year).log();
+    public Flux<ServerSentEvent<MovieInfoChangeEvent>> getMovieInfoEvents(String lastEventId) {
+        return movieInfoEventPublisher.events(lastEventId);
     }
 }
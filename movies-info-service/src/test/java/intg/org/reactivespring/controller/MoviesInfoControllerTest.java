@@ -1,22 +1,36 @@
 package org.reactivespring.controller;
 
+import com.reactivespring.pagination.PageCursor;
 import io.netty.handler.codec.http.HttpScheme;
+import org.bson.Document;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.reactivespring.dto.MovieInfoImportResult;
 import org.reactivespring.entity.MovieInfo;
 import org.reactivespring.repository.MovieInfoRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.metrics.AutoConfigureMetrics;
 import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.reactive.server.EntityExchangeResult;
 import org.springframework.test.web.reactive.server.WebTestClient;
 import org.springframework.web.util.UriComponentsBuilder;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
 
 import java.net.URI;
+import java.time.Duration;
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Objects;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -24,6 +38,7 @@ import static org.junit.jupiter.api.Assertions.*;
 //Below mentioned profile should be different from all profiles mentioned in application.yaml
 @ActiveProfiles("test")
 @AutoConfigureWebTestClient
+@AutoConfigureMetrics
 class MoviesInfoControllerTest {
     @Autowired
     MovieInfoRepository movieInfoRepository;
@@ -31,6 +46,9 @@ class MoviesInfoControllerTest {
     @Autowired
     WebTestClient webTestClient;
 
+    @Autowired
+    ReactiveMongoTemplate reactiveMongoTemplate;
+
     private final String MOVIES_INFO_URI = "/v1/movies-info";
 
     @BeforeEach
@@ -102,6 +120,147 @@ class MoviesInfoControllerTest {
                 .hasSize(3);
     }
 
+    @Test
+    void getAllMoviesInfoPaged() {
+        List<String> firstPageIds = new ArrayList<>();
+        String nextCursor = webTestClient
+                .get()
+                .uri(MOVIES_INFO_URI + "?limit=2")
+                .exchange()
+                .expectStatus()
+                .is2xxSuccessful()
+                .expectBodyList(MovieInfo.class)
+                .hasSize(2)
+                .consumeWith(result -> result.getResponseBody()
+                        .forEach(movieInfo -> firstPageIds.add(movieInfo.getMovieInfoId())))
+                .returnResult()
+                .getResponseHeaders()
+                .getFirst(PageCursor.NEXT_CURSOR_HEADER);
+        assertNotNull(nextCursor);
+
+        webTestClient
+                .get()
+                .uri(uriBuilder -> uriBuilder.path(MOVIES_INFO_URI)
+                        .queryParam("limit", 2)
+                        .queryParam("cursor", nextCursor)
+                        .build())
+                .exchange()
+                .expectStatus()
+                .is2xxSuccessful()
+                .expectHeader()
+                .doesNotExist(PageCursor.NEXT_CURSOR_HEADER)
+                .expectBodyList(MovieInfo.class)
+                .hasSize(1)
+                .consumeWith(result -> assertFalse(firstPageIds.contains(result.getResponseBody().get(0).getMovieInfoId())));
+    }
+
+    @Test
+    void getAllMoviesInfoWithFieldProjection() {
+        webTestClient
+                .get()
+                .uri(MOVIES_INFO_URI + "?fields=name,year")
+                .exchange()
+                .expectStatus()
+                .is2xxSuccessful()
+                .expectBody()
+                .jsonPath("$.length()").isEqualTo(3)
+                .jsonPath("$[0].movieInfoId").exists()
+                .jsonPath("$[0].name").exists()
+                .jsonPath("$[0].year").exists()
+                .jsonPath("$[0].cast").doesNotExist()
+                .jsonPath("$[0].releaseDate").doesNotExist();
+    }
+
+    @Test
+    void getAllMoviesInfoWithUnknownField() {
+        webTestClient
+                .get()
+                .uri(MOVIES_INFO_URI + "?fields=name,budget")
+                .exchange()
+                .expectStatus()
+                .isBadRequest();
+    }
+
+    @Test
+    void getAllMoviesInfoAsNdjsonStream() {
+        Flux<MovieInfo> movieInfoFlux = webTestClient
+                .get()
+                .uri(MOVIES_INFO_URI)
+                .accept(MediaType.APPLICATION_NDJSON)
+                .exchange()
+                .expectStatus()
+                .is2xxSuccessful()
+                .expectHeader()
+                .contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON)
+                .returnResult(MovieInfo.class)
+                .getResponseBody();
+
+        StepVerifier.create(movieInfoFlux)
+                .expectNextCount(3)
+                .verifyComplete();
+    }
+
+    @Test
+    void getAllMoviesInfoAsEventStream() {
+        Flux<MovieInfo> movieInfoFlux = webTestClient
+                .get()
+                .uri(MOVIES_INFO_URI)
+                .accept(MediaType.TEXT_EVENT_STREAM)
+                .exchange()
+                .expectStatus()
+                .is2xxSuccessful()
+                .expectHeader()
+                .contentTypeCompatibleWith(MediaType.TEXT_EVENT_STREAM)
+                .returnResult(MovieInfo.class)
+                .getResponseBody();
+
+        StepVerifier.create(movieInfoFlux)
+                .expectNextCount(3)
+                .verifyComplete();
+    }
+
+    @Test
+    void importMovieInfo() {
+        String ndjson = String.join("\n",
+                "{\"movieInfoId\":\"abc\",\"name\":\"The Dark Knight\",\"year\":2008,\"cast\":[\"Christian Bale\"]}",
+                "{\"name\":\"Batman v Superman\",\"year\":2016,\"cast\":[\"Ben Affleck\"]}",
+                "{\"name\":\"\",\"year\":-1}",
+                "not json") + "\n";
+
+        Flux<MovieInfoImportResult> results = webTestClient
+                .post()
+                .uri(MOVIES_INFO_URI + "/import")
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .bodyValue(ndjson)
+                .exchange()
+                .expectStatus()
+                .is2xxSuccessful()
+                .returnResult(MovieInfoImportResult.class)
+                .getResponseBody();
+
+        StepVerifier.create(results)
+                .expectNextMatches(result -> result.getLine() == 3
+                        && result.getError().equals("name should not be blank,year should be a positive number"))
+                .expectNextMatches(result -> result.getLine() == 4 && result.getError().startsWith("malformed movie info"))
+                .expectNextMatches(result -> result.getSummary().getRecords() == 4
+                        && result.getSummary().getUpserted() == 2
+                        && result.getSummary().getFailed() == 2)
+                .verifyComplete();
+
+        webTestClient
+                .get()
+                .uri(MOVIES_INFO_URI + "/{id}", "abc")
+                .exchange()
+                .expectStatus()
+                .is2xxSuccessful()
+                .expectBody()
+                .jsonPath("$.name").isEqualTo("The Dark Knight");
+
+        StepVerifier.create(movieInfoRepository.count())
+                .expectNext(4L)
+                .verifyComplete();
+    }
+
     @Test
     void getMovieInfoByYear() {
         // Build URL with query parameter
@@ -138,6 +297,66 @@ class MoviesInfoControllerTest {
 //                });
     }
 
+    @Test
+    void getMovieInfoByIdNotModified() {
+        String movieInfoId = "abc";
+        String eTag = webTestClient
+                .get()
+                .uri(MOVIES_INFO_URI+"/{id}", movieInfoId)
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectHeader()
+                .cacheControl(CacheControl.maxAge(Duration.ofSeconds(60)).cachePublic())
+                .expectBody(MovieInfo.class)
+                .returnResult()
+                .getResponseHeaders()
+                .getETag();
+        assertNotNull(eTag);
+
+        webTestClient
+                .get()
+                .uri(MOVIES_INFO_URI+"/{id}", movieInfoId)
+                .ifNoneMatch(eTag)
+                .exchange()
+                .expectStatus()
+                .isNotModified()
+                .expectHeader()
+                .valueEquals(HttpHeaders.ETAG, eTag)
+                .expectBody()
+                .isEmpty();
+    }
+
+    @Test
+    void getMovieInfoByIdAsSmile() {
+        String movieInfoId = "abc";
+        MediaType smile = MediaType.parseMediaType("application/x-jackson-smile");
+        EntityExchangeResult<MovieInfo> result = webTestClient
+                .get()
+                .uri(MOVIES_INFO_URI+"/{id}", movieInfoId)
+                .accept(smile, MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectHeader()
+                .contentTypeCompatibleWith(smile)
+                .expectBody(MovieInfo.class)
+                .returnResult();
+
+        assertEquals("Batman Dark Knight", Objects.requireNonNull(result.getResponseBody()).getName());
+        assertEquals(LocalDate.parse("2008-07-18"), result.getResponseBody().getReleaseDate());
+        // Same version, different bytes: the JSON ETag must not validate the Smile representation
+        String jsonETag = webTestClient
+                .get()
+                .uri(MOVIES_INFO_URI+"/{id}", movieInfoId)
+                .exchange()
+                .expectBody(MovieInfo.class)
+                .returnResult()
+                .getResponseHeaders()
+                .getETag();
+        assertNotEquals(jsonETag, result.getResponseHeaders().getETag());
+    }
+
     @Test
     void getMovieInfoByIdNotFound() {
         String movieInfoId = "def";
@@ -171,6 +390,74 @@ class MoviesInfoControllerTest {
                 .jsonPath("$.releaseDate").isEqualTo("2005-06-18");
     }
 
+    @Test
+    void updateMovieInfoIfMatch() {
+        String movieInfoId = "abc";
+        MovieInfo batman = MovieInfo.builder()
+                .name("Batman Begins Updated")
+                .year(2005)
+                .cast(List.of("Christian Bale", "Cillian Murphy", "Katie Holmes"))
+                .releaseDate(LocalDate.parse("2005-06-18"))
+                .build();
+        String currentETag = webTestClient
+                .put()
+                .uri(MOVIES_INFO_URI+"/{id}", movieInfoId)
+                .bodyValue(batman)
+                .exchange()
+                .expectStatus()
+                .is2xxSuccessful()
+                .expectBody(MovieInfo.class)
+                .returnResult()
+                .getResponseHeaders()
+                .getETag();
+        assertNotNull(currentETag);
+
+        webTestClient
+                .put()
+                .uri(MOVIES_INFO_URI+"/{id}", movieInfoId)
+                .header(HttpHeaders.IF_MATCH, currentETag)
+                .bodyValue(batman)
+                .exchange()
+                .expectStatus()
+                .is2xxSuccessful()
+                .expectHeader()
+                .value(HttpHeaders.ETAG, eTag -> assertNotEquals(currentETag, eTag));
+
+        // currentETag is stale now, so a concurrent writer holding it must not overwrite the update
+        webTestClient
+                .put()
+                .uri(MOVIES_INFO_URI+"/{id}", movieInfoId)
+                .header(HttpHeaders.IF_MATCH, currentETag)
+                .bodyValue(batman)
+                .exchange()
+                .expectStatus()
+                .isEqualTo(HttpStatus.PRECONDITION_FAILED);
+    }
+
+    @Test
+    void updateMovieInfoIfMatchWithoutStoredVersion() {
+        // Written before movie infos were versioned: tagged as version 0
+        reactiveMongoTemplate.insert(new Document("_id", "legacy").append("name", "Batman").append("year", 1989),
+                reactiveMongoTemplate.getCollectionName(MovieInfo.class)).block();
+        MovieInfo batman = MovieInfo.builder()
+                .name("Batman Updated")
+                .year(1989)
+                .build();
+
+        webTestClient
+                .put()
+                .uri(MOVIES_INFO_URI+"/{id}", "legacy")
+                .header(HttpHeaders.IF_MATCH, "\"0\"")
+                .bodyValue(batman)
+                .exchange()
+                .expectStatus()
+                .is2xxSuccessful()
+                .expectHeader()
+                .valueEquals(HttpHeaders.ETAG, "\"1\"")
+                .expectBody()
+                .jsonPath("$.name").isEqualTo("Batman Updated");
+    }
+
     @Test
     void updateMovieInfoNotFound() {
         String movieInfoId = "def";
@@ -199,4 +486,31 @@ class MoviesInfoControllerTest {
                 .expectStatus()
                 .isNoContent();
     }
-}
\ No newline at end of file
+
+    @Test
+    void prometheusEndpointHasRouteAndRepositoryHistograms() {
+        webTestClient
+                .get()
+                .uri(MOVIES_INFO_URI+"/{id}", "abc")
+                .exchange()
+                .expectStatus()
+                .isOk();
+
+        String scrape = webTestClient
+                .get()
+                .uri("/actuator/prometheus")
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectBody(String.class)
+                .returnResult()
+                .getResponseBody();
+
+        assertNotNull(scrape);
+        assertTrue(scrape.contains("http_server_requests_seconds_bucket{"));
+        assertTrue(scrape.contains("uri=\"/v1/movies-info/{id}\""));
+        assertTrue(scrape.contains("movies_repository_flow_duration_seconds_bucket{"));
+        assertTrue(scrape.contains("method=\"findById\""));
+        assertTrue(scrape.contains("repository=\"MovieInfoRepository\""));
+    }
+}
@@ -0,0 +1,163 @@
+package org.reactivespring.repository;
+
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.reactivespring.entity.MovieInfo;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.data.mongo.DataMongoTest;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.convert.QueryMapper;
+import org.springframework.data.mongodb.core.index.IndexInfo;
+import org.springframework.data.mongodb.core.mapping.MongoPersistentEntity;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@DataMongoTest
+@ActiveProfiles("test")
+class MovieInfoIndexIntgTest {
+    @Autowired
+    MovieInfoRepository movieInfoRepository;
+
+    @Autowired
+    ReactiveMongoTemplate reactiveMongoTemplate;
+
+    @BeforeEach
+    void setUp() {
+        MovieInfo batman1 = MovieInfo.builder()
+                .name("Batman Begins")
+                .year(2005)
+                .cast(List.of("Christian Bale", "Cillian Murphy", "Katie Holmes"))
+                .releaseDate(LocalDate.parse("2005-06-17"))
+                .build();
+
+        MovieInfo batman2 = MovieInfo.builder()
+                .name("Batman Dark Knight")
+                .year(2008)
+                .cast(List.of("Christian Bale", "Heath Ledger", "Gary Oldman"))
+                .releaseDate(LocalDate.parse("2008-07-18"))
+                .build();
+
+        movieInfoRepository.saveAll(List.of(batman1, batman2))
+                .blockLast();
+    }
+
+    @AfterEach
+    void tearDown() {
+        movieInfoRepository.deleteAll().block();
+    }
+
+    @Test
+    void indexesCreatedAtStartup() {
+        List<String> indexNames = reactiveMongoTemplate.indexOps(MovieInfo.class).getIndexInfo()
+                .map(IndexInfo::getName)
+                .collectList()
+                .block();
+
+        assertTrue(indexNames.containsAll(List.of("name", "year_name", "year_id")));
+    }
+
+    @Test
+    void findByYearUsesIndex() {
+        List<String> stages = planStages(new Document("year", 2005), null);
+
+        assertTrue(stages.contains("IXSCAN"));
+        assertFalse(stages.contains("COLLSCAN"));
+    }
+
+    @Test
+    void findByNameUsesIndex() {
+        List<String> stages = planStages(new Document("name", "Batman Begins"), null);
+
+        assertTrue(stages.contains("IXSCAN"));
+        assertFalse(stages.contains("COLLSCAN"));
+    }
+
+    @Test
+    void findByYearAndNameUsesIndex() {
+        List<String> stages = planStages(new Document("year", 2005).append("name", "Batman Begins"), null);
+
+        assertTrue(stages.contains("IXSCAN"));
+        assertFalse(stages.contains("COLLSCAN"));
+    }
+
+    @Test
+    void yearPageNeedsNoInMemorySort() {
+        List<String> stages = planStages(new Document("year", 2005), new Document("_id", 1));
+
+        assertTrue(stages.contains("IXSCAN"));
+        assertFalse(stages.contains("SORT"));
+    }
+
+    @Test
+    void pageAfterStringCursorNeedsNoInMemorySort() {
+        assertIndexedWithoutSort(MovieInfoRepositoryCustomImpl.pageQuery(null, "abc", null, Set.of()));
+        assertIndexedWithoutSort(MovieInfoRepositoryCustomImpl.pageQuery(2005, "abc", null, Set.of()));
+    }
+
+    @Test
+    void pageAfterObjectIdCursorNeedsNoInMemorySort() {
+        String cursor = new ObjectId().toHexString();
+
+        assertIndexedWithoutSort(MovieInfoRepositoryCustomImpl.pageQuery(null, cursor, null, Set.of()));
+        assertIndexedWithoutSort(MovieInfoRepositoryCustomImpl.pageQuery(2005, cursor, null, Set.of()));
+    }
+
+    @Test
+    void rangeUpToTheLastIdNeedsNoInMemorySort() {
+        assertIndexedWithoutSort(MovieInfoRepositoryCustomImpl.pageQuery(2005, "abc", new ObjectId().toHexString(), Set.of()));
+    }
+
+    private void assertIndexedWithoutSort(Query query) {
+        List<String> stages = planStages(query);
+
+        assertTrue(stages.contains("IXSCAN"), stages::toString);
+        assertFalse(stages.contains("COLLSCAN"), stages::toString);
+        assertFalse(stages.contains("SORT"), stages::toString);
+    }
+
+    private List<String> planStages(Query query) {
+        MongoPersistentEntity<?> entity = reactiveMongoTemplate.getConverter().getMappingContext()
+                .getRequiredPersistentEntity(MovieInfo.class);
+        QueryMapper queryMapper = new QueryMapper(reactiveMongoTemplate.getConverter());
+        return planStages(queryMapper.getMappedObject(query.getQueryObject(), entity),
+                queryMapper.getMappedSort(query.getSortObject(), entity));
+    }
+
+    private List<String> planStages(Document filter, Document sort) {
+        Document find = new Document("find", reactiveMongoTemplate.getCollectionName(MovieInfo.class))
+                .append("filter", filter);
+        if (sort != null) {
+            find.append("sort", sort);
+        }
+        Document explain = reactiveMongoTemplate
+                .executeCommand(new Document("explain", find).append("verbosity", "queryPlanner"))
+                .block();
+        List<String> stages = new ArrayList<>();
+        collectStages(explain.get("queryPlanner", Document.class).get("winningPlan"), stages);
+        return stages;
+    }
+
+    private void collectStages(Object node, List<String> stages) {
+        if (node instanceof Map) {
+            Map<?, ?> plan = (Map<?, ?>) node;
+            if (plan.get("stage") instanceof String) {
+                stages.add((String) plan.get("stage"));
+            }
+            plan.values().forEach(child -> collectStages(child, stages));
+        } else if (node instanceof List) {
+            ((List<?>) node).forEach(child -> collectStages(child, stages));
+        }
+    }
+}
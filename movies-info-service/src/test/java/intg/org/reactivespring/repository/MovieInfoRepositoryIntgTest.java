@@ -13,6 +13,7 @@ import reactor.test.StepVerifier;
 
 import java.time.LocalDate;
 import java.util.List;
+import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
@@ -95,6 +96,48 @@ class MovieInfoRepositoryIntgTest {
                 .verifyComplete();
     }
 
+    @Test
+    void findByMovieInfoIdInTest() {
+        Flux<MovieInfo> moviesInfoFlux = movieInfoRepository.findByMovieInfoIdIn(List.of("abc", "xyz")).log();
+
+        StepVerifier.create(moviesInfoFlux)
+                .assertNext(movieInfo -> assertEquals("Batman Dark Knight", movieInfo.getName()))
+                .verifyComplete();
+    }
+
+    @Test
+    void findPageAfterStringIdTest() {
+        // "abc" is stored as a string and sorts before the generated ObjectIds, so it ends the first page
+        Flux<MovieInfo> firstPage = movieInfoRepository.findPage(null, null, 1, Set.of());
+
+        StepVerifier.create(firstPage)
+                .assertNext(movieInfo -> assertEquals("abc", movieInfo.getMovieInfoId()))
+                .verifyComplete();
+
+        Flux<MovieInfo> nextPage = movieInfoRepository.findPage(null, "abc", 10, Set.of());
+
+        StepVerifier.create(nextPage)
+                .expectNextCount(2)
+                .verifyComplete();
+    }
+
+    @Test
+    void findRangeAcrossIdTypesTest() {
+        List<String> ids = movieInfoRepository.findPage(null, null, 10, Set.of("movieInfoId"))
+                .map(MovieInfo::getMovieInfoId)
+                .collectList()
+                .block();
+        assert ids != null;
+
+        // From the string id at the start up to the first ObjectId
+        Flux<String> range = movieInfoRepository.findRange(null, null, ids.get(1), Set.of())
+                .map(MovieInfo::getMovieInfoId);
+
+        StepVerifier.create(range)
+                .expectNext("abc", ids.get(1))
+                .verifyComplete();
+    }
+
     @Test
     void saveMovieInfoTest() {
         MovieInfo batman1 = MovieInfo.builder()
@@ -1,8 +1,10 @@
 package org.reactivespring.controller;
 
+import com.reactivespring.pagination.Page;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.reactivespring.entity.MovieInfo;
+import org.reactivespring.service.MovieInfoImportService;
 import org.reactivespring.service.MoviesInfoService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
@@ -13,11 +15,14 @@ import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 import java.time.LocalDate;
+import java.util.Collections;
 import java.util.List;
+import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.mockito.ArgumentMatchers.isA;
+import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.Mockito.when;
 
 @WebFluxTest(controllers = MoviesInfoController.class)
@@ -30,6 +35,9 @@ class MoviesInfoControllerUnitTest {
     @MockBean
     private MoviesInfoService moviesInfoServiceMock;
 
+    @MockBean
+    private MovieInfoImportService movieInfoImportServiceMock;
+
     private final String MOVIES_INFO_URI = "/v1/movies-info";
 
     MoviesInfoControllerUnitTest(MoviesInfoService moviesInfoServiceMock) {
@@ -59,7 +67,7 @@ class MoviesInfoControllerUnitTest {
                 .build();
         List<MovieInfo> moviesInfo = List.of(batman1, batman2, batman3);
 
-        when(moviesInfoServiceMock.getAllMovieInfo()).thenReturn(Flux.fromIterable(moviesInfo));
+        when(moviesInfoServiceMock.getMovieInfoPage(null, null, 100, Set.of())).thenReturn(Mono.just(new Page<>(Flux.fromIterable(moviesInfo), null)));
 
         webTestClient
                 .get()
@@ -72,6 +80,89 @@ class MoviesInfoControllerUnitTest {
                 .hasSize(3);
     }
 
+    @Test
+    void getAllMoviesInfoPageSizeAboveMax() {
+        webTestClient
+                .get()
+                .uri(MOVIES_INFO_URI + "?limit=501")
+                .exchange()
+                .expectStatus()
+                .isBadRequest();
+    }
+
+    @Test
+    void getAllMoviesInfoInvalidCursor() {
+        webTestClient
+                .get()
+                .uri(MOVIES_INFO_URI + "?cursor=not-a-cursor")
+                .exchange()
+                .expectStatus()
+                .isBadRequest();
+    }
+
+    @Test
+    void getMovieInfoByIds() {
+        MovieInfo batman1 = MovieInfo.builder()
+                .movieInfoId("abc")
+                .name("Batman Dark Knight")
+                .year(2008)
+                .cast(List.of("Christian Bale", "Heath Ledger", "Gary Oldman"))
+                .releaseDate(LocalDate.parse("2008-07-18"))
+                .build();
+        MovieInfo batman2 = MovieInfo.builder()
+                .movieInfoId("def")
+                .name("Batman Dark Knight Rises")
+                .year(2012)
+                .cast(List.of("Christian Bale", "Joseph Gorden Levitt", "Anne Hathaway"))
+                .releaseDate(LocalDate.parse("2012-07-20"))
+                .build();
+
+        when(moviesInfoServiceMock.getMovieInfoByIds(List.of("abc", "def"), Set.of()))
+                .thenReturn(Flux.just(batman1, batman2));
+
+        webTestClient
+                .get()
+                .uri(MOVIES_INFO_URI + "?ids=abc,def")
+                .exchange()
+                .expectStatus()
+                .is2xxSuccessful()
+                .expectBodyList(MovieInfo.class)
+                .hasSize(2);
+    }
+
+    @Test
+    void getMovieInfoByIdsWithFieldProjection() {
+        MovieInfo batman = MovieInfo.builder()
+                .movieInfoId("abc")
+                .name("Batman Dark Knight")
+                .build();
+
+        when(moviesInfoServiceMock.getMovieInfoByIds(List.of("abc"), Set.of("name")))
+                .thenReturn(Flux.just(batman));
+
+        webTestClient
+                .get()
+                .uri(MOVIES_INFO_URI + "?ids=abc&fields=name")
+                .exchange()
+                .expectStatus()
+                .is2xxSuccessful()
+                .expectBody()
+                .jsonPath("$[0].name").isEqualTo("Batman Dark Knight")
+                .jsonPath("$[0].year").doesNotExist();
+    }
+
+    @Test
+    void getMovieInfoByIdsAboveMax() {
+        String ids = String.join(",", Collections.nCopies(201, "abc"));
+
+        webTestClient
+                .get()
+                .uri(MOVIES_INFO_URI + "?ids=" + ids)
+                .exchange()
+                .expectStatus()
+                .isBadRequest();
+    }
+
     @Test
     void getMovieInfoById() {
         MovieInfo batman = MovieInfo.builder()
@@ -135,7 +226,7 @@ class MoviesInfoControllerUnitTest {
                 .releaseDate(LocalDate.parse("2005-06-18"))
                 .build();
 
-        when(moviesInfoServiceMock.updateMovieInfo(isA(String.class), isA(MovieInfo.class))).thenReturn(Mono.just(batman));
+        when(moviesInfoServiceMock.updateMovieInfo(isA(String.class), isA(MovieInfo.class), isNull())).thenReturn(Mono.just(batman));
 
         webTestClient
                 .put()
@@ -0,0 +1,60 @@
+package org.reactivespring.event;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.codec.ServerSentEvent;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class MovieInfoEventPublisherTest {
+    private final MovieInfoEventPublisher publisher = new MovieInfoEventPublisher(16, Duration.ofHours(1));
+
+    @Test
+    void newSubscriberOnlyGetsLiveEvents() {
+        publisher.publish(MovieInfoChangeEvent.Type.UPDATED, "abc");
+
+        StepVerifier.create(publisher.events(null).map(ServerSentEvent::data))
+                .then(() -> publisher.publish(MovieInfoChangeEvent.Type.DELETED, "def"))
+                .assertNext(event -> {
+                    assertEquals("def", event.getMovieInfoId());
+                    assertEquals(2, event.getSequence());
+                })
+                .thenCancel()
+                .verify(Duration.ofSeconds(5));
+    }
+
+    @Test
+    void importBatchIsOneEvent() {
+        StepVerifier.create(publisher.events(null).map(ServerSentEvent::data))
+                .then(() -> publisher.publishImported(List.of("abc", "def")))
+                .assertNext(event -> {
+                    assertEquals(MovieInfoChangeEvent.Type.IMPORTED, event.getType());
+                    assertEquals(List.of("abc", "def"), event.getMovieInfoIds());
+                    assertEquals(1, event.getSequence());
+                })
+                .thenCancel()
+                .verify(Duration.ofSeconds(5));
+    }
+
+    @Test
+    void resumesAfterLastEventId() {
+        String[] firstEventId = new String[1];
+        StepVerifier.create(publisher.events(null))
+                .then(() -> publisher.publish(MovieInfoChangeEvent.Type.UPDATED, "abc"))
+                .assertNext(event -> firstEventId[0] = event.id())
+                .thenCancel()
+                .verify(Duration.ofSeconds(5));
+
+        publisher.publish(MovieInfoChangeEvent.Type.UPDATED, "def");
+        publisher.publish(MovieInfoChangeEvent.Type.DELETED, "ghi");
+
+        StepVerifier.create(publisher.events(firstEventId[0]).map(ServerSentEvent::data))
+                .assertNext(event -> assertEquals("def", event.getMovieInfoId()))
+                .assertNext(event -> assertEquals("ghi", event.getMovieInfoId()))
+                .thenCancel()
+                .verify(Duration.ofSeconds(5));
+    }
+}
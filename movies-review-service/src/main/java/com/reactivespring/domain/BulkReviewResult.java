@@ -0,0 +1,27 @@
+package com.reactivespring.domain;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Outcome of one input line of a bulk review import: the stored review id, or why the line was rejected.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class BulkReviewResult {
+    private long line;
+    private String reviewId;
+    private String error;
+
+    public static BulkReviewResult inserted(long line, String reviewId) {
+        return new BulkReviewResult(line, reviewId, null);
+    }
+
+    public static BulkReviewResult rejected(long line, String error) {
+        return new BulkReviewResult(line, null, error);
+    }
+}
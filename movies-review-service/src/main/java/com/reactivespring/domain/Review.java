@@ -1,11 +1,15 @@
 package com.reactivespring.domain;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import lombok.NonNull;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.Version;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 import javax.validation.constraints.Min;
@@ -15,7 +19,15 @@ import javax.validation.constraints.NotNull;
 @NoArgsConstructor
 @AllArgsConstructor
 @Document
+// Fields left out by a projection are null; omit them instead of serializing nulls
+@JsonInclude(JsonInclude.Include.NON_NULL)
 @Builder
+// Both start with movieInfoId, so lookups by movieInfoId need no index of their own;
+// movieInfoId_id also keeps keyset pages for one movie free of an in-memory sort
+@CompoundIndexes({
+        @CompoundIndex(name = "movieInfoId_id", def = "{'movieInfoId': 1, '_id': 1}"),
+        @CompoundIndex(name = "movieInfoId_rating", def = "{'movieInfoId': 1, 'rating': 1}")
+})
 public class Review {
 
     @Id
@@ -25,4 +37,7 @@ public class Review {
     private String comment;
     @Min(value = 0L, message = "rating: please pass a non-negative value")
     private Double rating;
+    // Bumped on every write; exposed as the ETag and checked against If-Match on updates
+    @Version
+    private Long version;
 }
@@ -0,0 +1,52 @@
+package com.reactivespring.domain;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.util.Map;
+
+/**
+ * Rating aggregates for one movie, kept up to date as reviews are added, updated and deleted, so a
+ * rating badge is a single point read. Reviews without a rating are not counted.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Document
+@JsonInclude(JsonInclude.Include.NON_NULL)
+@Builder
+public class ReviewSummary {
+
+    @Id
+    private Long movieInfoId;
+    private long count;
+    private double sum;
+    private Double min;
+    private Double max;
+    // Rated reviews per whole-number bucket, e.g. "8" counts ratings in [8, 9)
+    private Map<String, Long> histogram;
+    // Bumped by every write, so a recompute only replaces the summary it read
+    @JsonIgnore
+    private long revision;
+
+    public static ReviewSummary empty(Long movieInfoId) {
+        return ReviewSummary.builder()
+                .movieInfoId(movieInfoId)
+                .histogram(Map.of())
+                .build();
+    }
+
+    public Double getAverage() {
+        return count == 0 ? null : sum / count;
+    }
+
+    public static String bucket(double rating) {
+        return String.valueOf((long) Math.floor(rating));
+    }
+}
@@ -1,11 +1,26 @@
 package com.reactivespring.handler;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.reactivespring.codec.SmileMediaType;
+import com.reactivespring.domain.BulkReviewResult;
 import com.reactivespring.domain.Review;
+import com.reactivespring.domain.ReviewSummary;
 import com.reactivespring.exception.ReviewDataException;
+import com.reactivespring.http.VersionETag;
+import com.reactivespring.ndjson.NdjsonBatchImport;
+import com.reactivespring.pagination.Page;
+import com.reactivespring.pagination.PageCursor;
+import com.reactivespring.projection.FieldProjection;
 import com.reactivespring.repository.MovieReviewRepository;
+import com.reactivespring.repository.ReviewSummaryRepository;
+import com.reactivespring.tracing.SignalTracer;
 import lombok.extern.log4j.Log4j2;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.stereotype.Component;
 import org.springframework.web.reactive.function.server.ServerRequest;
 import org.springframework.web.reactive.function.server.ServerResponse;
@@ -14,75 +29,319 @@ import reactor.core.publisher.Mono;
 
 import javax.validation.ConstraintViolation;
 import javax.validation.Validator;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 @Component
 @Log4j2
 public class ReviewHandler {
+    private static final List<MediaType> LISTING_TYPES = List.of(MediaType.APPLICATION_NDJSON, MediaType.TEXT_EVENT_STREAM,
+            SmileMediaType.APPLICATION_SMILE);
+    private static final List<MediaType> BODY_TYPES = List.of(SmileMediaType.APPLICATION_SMILE);
 
     @Autowired
     private Validator validator;
 
+    @Value("${reviews.page.default-size:100}")
+    private int defaultPageSize;
+
+    @Value("${reviews.page.max-size:500}")
+    private int maxPageSize;
+
+    @Value("${reviews.cache.max-age:30s}")
+    private Duration listingMaxAge;
+
+    @Value("${reviews.bulk.batch-size:500}")
+    private int bulkBatchSize;
+
+    @Value("${reviews.bulk.concurrency:4}")
+    private int bulkConcurrency;
+
     private final MovieReviewRepository movieReviewRepository;
+    private final ReviewSummaryRepository reviewSummaryRepository;
+    private final ObjectMapper objectMapper;
+    private final SignalTracer signalTracer;
 
-    public ReviewHandler(MovieReviewRepository movieReviewRepository) {
+    public ReviewHandler(MovieReviewRepository movieReviewRepository, ReviewSummaryRepository reviewSummaryRepository,
+                         ObjectMapper objectMapper, SignalTracer signalTracer) {
         this.movieReviewRepository = movieReviewRepository;
+        this.reviewSummaryRepository = reviewSummaryRepository;
+        this.objectMapper = objectMapper;
+        this.signalTracer = signalTracer;
     }
 
-    private void validate(Review review) {
-        var constraintViolations = validator.validate(review);
-        log.info("Constraint Violations: {}", constraintViolations);
-        if (!constraintViolations.isEmpty()) {
-            String errorMessage = constraintViolations.stream()
-                    .map(ConstraintViolation::getMessage)
-                    .sorted()
-                    .collect(Collectors.joining(","));
+    // Package-private for the benchmarks in the jmh module
+    void validate(Review review) {
+        String errorMessage = constraintViolationMessage(review);
+        if (errorMessage != null) {
             throw new ReviewDataException(errorMessage);
         }
     }
 
+    private String constraintViolationMessage(Review review) {
+        var constraintViolations = validator.validate(review);
+        log.debug("Constraint Violations: {}", constraintViolations);
+        if (constraintViolations.isEmpty()) {
+            return null;
+        }
+        return constraintViolations.stream()
+                .map(ConstraintViolation::getMessage)
+                .sorted()
+                .collect(Collectors.joining(","));
+    }
+
     public Mono<ServerResponse> addReview(ServerRequest request) {
         return request.bodyToMono(Review.class)
                 .doOnNext(this::validate)
                 .flatMap(movieReviewRepository::save)
+                .flatMap(savedReview -> repairOnError(reviewSummaryRepository.recordAdded(savedReview.getMovieInfoId(),
+                                savedReview.getRating()), List.of(savedReview.getMovieInfoId()))
+                        .thenReturn(savedReview))
                 .flatMap(ServerResponse.status(HttpStatus.CREATED)::bodyValue)
-                .log();
+                .transform(signalTracer.mono("addReview", null));
+    }
+
+    /**
+     * Imports reviews sent as NDJSON, one review per line. Lines are parsed and validated one by one,
+     * grouped into batches written with an unordered insertMany, and a result per line is streamed
+     * back as NDJSON in input order. Only a bounded number of batches is in memory at a time.
+     */
+    public Mono<ServerResponse> addReviewsBulk(ServerRequest request) {
+        NdjsonBatchImport<Review> bulkImport = new NdjsonBatchImport<>(objectMapper, Review.class, "review",
+                this::constraintViolationMessage, bulkBatchSize, bulkConcurrency);
+        Flux<BulkReviewResult> results = bulkImport.importLines(request.bodyToFlux(String.class), this::insertBulkBatch)
+                .flatMapIterable(batch -> batch)
+                .map(line -> line.getError() != null
+                        ? BulkReviewResult.rejected(line.getLine(), line.getError())
+                        : BulkReviewResult.inserted(line.getLine(), line.getRecord().getReviewId()));
+        return ServerResponse.ok().contentType(MediaType.APPLICATION_NDJSON).body(results, BulkReviewResult.class);
+    }
+
+    private Mono<Map<Integer, String>> insertBulkBatch(List<Review> reviews) {
+        return movieReviewRepository.insertUnordered(reviews)
+                .flatMap(writeErrors -> {
+                    List<Review> inserted = new ArrayList<>();
+                    for (int i = 0; i < reviews.size(); i++) {
+                        if (!writeErrors.containsKey(i)) {
+                            inserted.add(reviews.get(i));
+                        }
+                    }
+                    List<Long> movieInfoIds = inserted.stream().map(Review::getMovieInfoId).distinct().collect(Collectors.toList());
+                    return repairOnError(reviewSummaryRepository.recordAddedAll(inserted), movieInfoIds)
+                            .thenReturn(writeErrors);
+                });
     }
 
     public Mono<ServerResponse> getReviews(ServerRequest request) {
-        var movieInfoId = request.queryParam("movieInfoId");
-        Flux<Review> movieReviews;
-        if (movieInfoId.isPresent()) {
-            movieReviews = movieReviewRepository.findByMovieInfoId(Long.valueOf(movieInfoId.get()));
+        Long movieInfoId = request.queryParam("movieInfoId").map(id -> parseMovieInfoId("movieInfoId", id)).orElse(null);
+        int pageSize = resolvePageSize(request);
+        String afterReviewId = request.queryParam("cursor").map(this::decodeCursor).orElse(null);
+        Set<String> fields = parseFields(request.queryParam("fields").orElse(null));
+        MediaType contentType = negotiateListingType(request);
+        // Ids and versions first, one extra telling whether a next page exists without a count query. They give the
+        // next cursor and the ETag before anything is written; the reviews then stream from the database in a second
+        // read, which is why the tag is only weak.
+        return movieReviewRepository.findPage(movieInfoId, afterReviewId, pageSize + 1, Set.of("version"))
+                .collectList()
+                .flatMap(keys -> {
+                    Page<Review> page = Page.of(keys, pageSize, Review::getReviewId, lastReviewId ->
+                            movieReviewRepository.findRange(movieInfoId, afterReviewId, lastReviewId, fields));
+                    String eTag = listingETag(Page.keys(keys, pageSize), page.getNextCursor(), fields, contentType);
+                    // A matching If-None-Match answers 304 before the reviews are read
+                    return request.checkNotModified(eTag)
+                            .switchIfEmpty(Mono.defer(() -> ServerResponse.ok()
+                                    .contentType(contentType)
+                                    .eTag(eTag)
+                                    .cacheControl(CacheControl.maxAge(listingMaxAge).cachePublic())
+                                    .varyBy(HttpHeaders.ACCEPT)
+                                    .headers(headers -> {
+                                        if (page.getNextCursor() != null) {
+                                            headers.set(PageCursor.NEXT_CURSOR_HEADER, page.getNextCursor());
+                                        }
+                                    })
+                                    .body(page.getItems(), Review.class)));
+                })
+                .transform(signalTracer.mono("getReviews", movieInfoId));
+    }
+
+    // Weak: the tag is taken from the keys read, but the body from a later read of the same range, so a review
+    // updated in between goes out under the older tag. The next revalidation sees the new version and gets a
+    // fresh page; the body is never vouched for byte for byte.
+    private String listingETag(List<Review> keys, String nextCursor, Set<String> fields, MediaType contentType) {
+        List<String> parts = new ArrayList<>(keys.size() + 3);
+        parts.add(contentType.toString());
+        parts.add(String.join(",", fields));
+        parts.add(nextCursor);
+        keys.forEach(review -> parts.add(review.getReviewId() + ":" + review.getVersion()));
+        return "W/" + VersionETag.ofParts(parts);
+    }
+
+    private int resolvePageSize(ServerRequest request) {
+        Optional<String> limit = request.queryParam("limit");
+        if (limit.isEmpty()) {
+            return defaultPageSize;
+        }
+        int pageSize;
+        try {
+            pageSize = Integer.parseInt(limit.get());
+        } catch (NumberFormatException ex) {
+            throw new ReviewDataException("limit must be a number");
+        }
+        if (pageSize < 1 || pageSize > maxPageSize) {
+            throw new ReviewDataException("limit must be between 1 and " + maxPageSize);
+        }
+        return pageSize;
+    }
+
+    private Long parseMovieInfoId(String parameter, String movieInfoId) {
+        try {
+            return Long.valueOf(movieInfoId.trim());
+        } catch (NumberFormatException ex) {
+            throw new ReviewDataException(parameter + " must contain numeric movie info ids");
+        }
+    }
+
+    private Set<String> parseFields(String fields) {
+        try {
+            return FieldProjection.parse(fields, Review.class);
+        } catch (IllegalArgumentException ex) {
+            throw new ReviewDataException(ex.getMessage());
         }
-        else {
-            movieReviews = movieReviewRepository.findAll();
+    }
+
+    private String decodeCursor(String cursor) {
+        try {
+            return PageCursor.decode(cursor);
+        } catch (IllegalArgumentException ex) {
+            throw new ReviewDataException(ex.getMessage());
         }
-        return ServerResponse.ok().body(movieReviews, Review.class)
-                .log();
+    }
+
+    // Functional endpoints pick the first writer for the body type, so honour Accept explicitly for streaming
+    // and binary clients
+    private MediaType negotiateListingType(ServerRequest request) {
+        return negotiateContentType(request, LISTING_TYPES);
+    }
+
+    private MediaType negotiateContentType(ServerRequest request, List<MediaType> alternatives) {
+        List<MediaType> accepted = new ArrayList<>(request.headers().accept());
+        MediaType.sortBySpecificityAndQuality(accepted);
+        return accepted.stream()
+                .filter(mediaType -> mediaType.isCompatibleWith(MediaType.APPLICATION_JSON)
+                        || alternatives.stream().anyMatch(mediaType::equalsTypeAndSubtype))
+                .findFirst()
+                .flatMap(mediaType -> alternatives.stream().filter(mediaType::equalsTypeAndSubtype).findFirst())
+                .orElse(MediaType.APPLICATION_JSON);
+    }
+
+    public Mono<ServerResponse> getReviewsByMovieInfoIds(ServerRequest request) {
+        List<Long> movieInfoIds = request.queryParams().getOrDefault("movieInfoIds", List.of()).stream()
+                .flatMap(ids -> Arrays.stream(ids.split(",")))
+                .filter(id -> !id.isBlank())
+                .map(id -> parseMovieInfoId("movieInfoIds", id))
+                .distinct()
+                .collect(Collectors.toList());
+        if (movieInfoIds.isEmpty()) {
+            return Mono.error(new ReviewDataException("movieInfoIds must be present"));
+        }
+        // One $in query for the whole batch, grouped by movieInfoId for the caller
+        return movieReviewRepository.findByMovieInfoIdIn(movieInfoIds)
+                .collectMultimap(Review::getMovieInfoId)
+                .flatMap(ServerResponse.ok().contentType(negotiateContentType(request, BODY_TYPES))::bodyValue);
+    }
+
+    public Mono<ServerResponse> getReviewSummary(ServerRequest request) {
+        Long movieInfoId = request.queryParam("movieInfoId")
+                .map(id -> parseMovieInfoId("movieInfoId", id))
+                .orElseThrow(() -> new ReviewDataException("movieInfoId must be present"));
+        // Summaries missing for older reviews are built on first read
+        return reviewSummaryRepository.findById(movieInfoId)
+                .switchIfEmpty(Mono.defer(() -> reviewSummaryRepository.recompute(movieInfoId)))
+                .defaultIfEmpty(ReviewSummary.empty(movieInfoId))
+                .flatMap(ServerResponse.ok()::bodyValue);
+    }
+
+    // Rebuilds one summary from its reviews, e.g. after a failed update
+    public Mono<ServerResponse> recomputeReviewSummary(ServerRequest request) {
+        Long movieInfoId = request.queryParam("movieInfoId")
+                .map(id -> parseMovieInfoId("movieInfoId", id))
+                .orElseThrow(() -> new ReviewDataException("movieInfoId must be present"));
+        return reviewSummaryRepository.recompute(movieInfoId)
+                .defaultIfEmpty(ReviewSummary.empty(movieInfoId))
+                .flatMap(ServerResponse.ok()::bodyValue);
     }
 
     public Mono<ServerResponse> updateReview(ServerRequest request) {
         String reviewId = request.pathVariable("id");
-        return movieReviewRepository.findById(reviewId)
-                .flatMap(review -> request.bodyToMono(Review.class)
-                .map(requestReview -> {
-                    review.setComment(requestReview.getComment());
-                    review.setMovieInfoId(requestReview.getMovieInfoId());
-                    review.setRating(requestReview.getRating());
-                    return review;
-                })
-                        .flatMap(movieReviewRepository::save)
-                        .flatMap(savedReview -> ServerResponse.ok().bodyValue(savedReview)))
+        Long expectedVersion = VersionETag.parseIfMatch(request.headers().firstHeader(HttpHeaders.IF_MATCH));
+        return request.bodyToMono(Review.class)
+                .flatMap(requestReview -> movieReviewRepository.updateReview(reviewId, requestReview, expectedVersion)
+                        .flatMap(previousReview -> {
+                            // The update is a plain $set plus a version bump, so the stored result is known without re-reading it
+                            Review updatedReview = Review.builder()
+                                    .reviewId(reviewId)
+                                    .movieInfoId(requestReview.getMovieInfoId())
+                                    .comment(requestReview.getComment())
+                                    .rating(requestReview.getRating())
+                                    .version(previousReview.getVersion() == null ? 1L : previousReview.getVersion() + 1)
+                                    .build();
+                            return updateSummary(previousReview.getMovieInfoId(), previousReview.getRating(), updatedReview)
+                                    .thenReturn(updatedReview);
+                        }))
+                .flatMap(updatedReview -> ServerResponse.ok().eTag(VersionETag.of(updatedReview.getVersion())).bodyValue(updatedReview))
 //                .switchIfEmpty(Mono.error(new ReviewNotFoundException("Review not found for given reviewId:" + reviewId)));
-                .switchIfEmpty(ServerResponse.notFound().build());
+                .switchIfEmpty(Mono.defer(() -> notUpdated(reviewId, expectedVersion)));
+
+    }
 
+    // Nothing matched: either the review is gone or, with If-Match, someone else updated it first
+    private Mono<ServerResponse> notUpdated(String reviewId, Long expectedVersion) {
+        if (expectedVersion == null) {
+            return ServerResponse.notFound().build();
+        }
+        return movieReviewRepository.existsById(reviewId)
+                .flatMap(exists -> exists
+                        ? ServerResponse.status(HttpStatus.PRECONDITION_FAILED).build()
+                        : ServerResponse.notFound().build());
+    }
+
+    private Mono<Void> updateSummary(Long previousMovieInfoId, Double previousRating, Review savedReview) {
+        if (Objects.equals(previousMovieInfoId, savedReview.getMovieInfoId())
+                && Objects.equals(previousRating, savedReview.getRating())) {
+            return Mono.empty();
+        }
+        return repairOnError(reviewSummaryRepository.recordRemoved(previousMovieInfoId, previousRating)
+                        .then(reviewSummaryRepository.recordAdded(savedReview.getMovieInfoId(), savedReview.getRating())),
+                List.of(previousMovieInfoId, savedReview.getMovieInfoId()));
     }
 
     public Mono<ServerResponse> deleteReview(ServerRequest request) {
         String reviewId = request.pathVariable("id");
-        return movieReviewRepository.findById(reviewId)
-                .flatMap(review -> movieReviewRepository.deleteById(reviewId))
+        return movieReviewRepository.findAndRemoveById(reviewId)
+                .flatMap(review -> repairOnError(reviewSummaryRepository.recordRemoved(review.getMovieInfoId(), review.getRating()),
+                        List.of(review.getMovieInfoId())))
                 .then(ServerResponse.noContent().build());
     }
+
+    // The review itself is stored, so a failed summary update does not fail the request: the affected summaries are
+    // rebuilt from the reviews instead. If that fails too they stay off until POST /v1/reviews/summary/recompute for the movie.
+    private Mono<Void> repairOnError(Mono<Void> summaryUpdate, Collection<Long> movieInfoIds) {
+        return summaryUpdate.onErrorResume(ex -> {
+            log.warn("Review summary update failed for movies {}, recomputing", movieInfoIds, ex);
+            return Flux.fromIterable(new LinkedHashSet<>(movieInfoIds))
+                    .concatMap(reviewSummaryRepository::recompute)
+                    .doOnError(recomputeEx -> log.error("Review summary recompute failed for movies {}", movieInfoIds, recomputeEx))
+                    .onErrorResume(recomputeEx -> Mono.empty())
+                    .then();
+        });
+    }
 }
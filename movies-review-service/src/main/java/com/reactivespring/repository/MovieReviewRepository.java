@@ -4,6 +4,10 @@ import com.reactivespring.domain.Review;
 import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
 import reactor.core.publisher.Flux;
 
-public interface MovieReviewRepository extends ReactiveMongoRepository<Review, String> {
+import java.util.Collection;
+
+public interface MovieReviewRepository extends ReactiveMongoRepository<Review, String>, MovieReviewRepositoryCustom {
     Flux<Review> findByMovieInfoId(Long movieInfoId);
+
+    Flux<Review> findByMovieInfoIdIn(Collection<Long> movieInfoIds);
 }
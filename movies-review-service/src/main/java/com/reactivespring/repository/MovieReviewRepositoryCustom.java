@@ -0,0 +1,46 @@
+package com.reactivespring.repository;
+
+import com.reactivespring.domain.Review;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+public interface MovieReviewRepositoryCustom {
+    /**
+     * Keyset page ordered by id: reviews after {@code afterReviewId} (from the start when null),
+     * optionally restricted to {@code movieInfoId}.
+     * Only {@code fields} are read when non-empty; the id is always returned.
+     */
+    Flux<Review> findPage(Long movieInfoId, String afterReviewId, int limit, Set<String> fields);
+
+    /**
+     * The documents of a page whose ids were already read with {@link #findPage}: those after
+     * {@code afterReviewId} up to and including {@code lastReviewId}, in id order. Bounded by ids rather than
+     * a limit, so documents written in the meantime neither push one out of the page nor pull one in twice.
+     */
+    Flux<Review> findRange(Long movieInfoId, String afterReviewId, String lastReviewId, Set<String> fields);
+
+    /**
+     * Sets comment, movieInfoId and rating of one review and bumps its version in a single findAndModify.
+     * When {@code expectedVersion} is given the update only applies to that version. Emits the document
+     * as it was before the update, since rating summaries need the previous values; emits nothing when
+     * no document matched.
+     */
+    Mono<Review> updateReview(String reviewId, Review changes, Long expectedVersion);
+
+    /**
+     * Deletes one review with a single findAndRemove and emits it as it was, or nothing when it did not
+     * exist, so only the request that actually removed it takes its rating out of the summary.
+     */
+    Mono<Review> findAndRemoveById(String reviewId);
+
+    /**
+     * Inserts all reviews with one unordered insertMany, so a failing document does not stop the rest.
+     * Generated ids are set on the given reviews; the result maps the position of each review that
+     * could not be written to the reason.
+     */
+    Mono<Map<Integer, String>> insertUnordered(List<Review> reviews);
+}
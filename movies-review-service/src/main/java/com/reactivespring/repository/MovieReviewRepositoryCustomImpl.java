@@ -0,0 +1,102 @@
+package com.reactivespring.repository;
+
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.client.model.InsertManyOptions;
+import com.reactivespring.domain.Review;
+import com.reactivespring.mongo.MongoCriteria;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+public class MovieReviewRepositoryCustomImpl implements MovieReviewRepositoryCustom {
+    private final ReactiveMongoTemplate reactiveMongoTemplate;
+
+    public MovieReviewRepositoryCustomImpl(ReactiveMongoTemplate reactiveMongoTemplate) {
+        this.reactiveMongoTemplate = reactiveMongoTemplate;
+    }
+
+    @Override
+    public Flux<Review> findPage(Long movieInfoId, String afterReviewId, int limit, Set<String> fields) {
+        Query query = pageQuery(movieInfoId, afterReviewId, null, fields);
+        query.limit(limit);
+        return reactiveMongoTemplate.find(query, Review.class);
+    }
+
+    @Override
+    public Flux<Review> findRange(Long movieInfoId, String afterReviewId, String lastReviewId, Set<String> fields) {
+        return reactiveMongoTemplate.find(pageQuery(movieInfoId, afterReviewId, lastReviewId, fields), Review.class);
+    }
+
+    // Shared by findPage and findRange; the index tests explain this exact query
+    static Query pageQuery(Long movieInfoId, String afterReviewId, String lastReviewId, Set<String> fields) {
+        Query query = new Query();
+        if (movieInfoId != null) {
+            query.addCriteria(Criteria.where("movieInfoId").is(movieInfoId));
+        }
+        if (afterReviewId != null || lastReviewId != null) {
+            query.addCriteria(MongoCriteria.idRange("reviewId", afterReviewId, lastReviewId));
+        }
+        fields.forEach(field -> query.fields().include(field));
+        return query.with(Sort.by(Sort.Direction.ASC, "reviewId"));
+    }
+
+    @Override
+    public Mono<Review> updateReview(String reviewId, Review changes, Long expectedVersion) {
+        Query query = Query.query(Criteria.where("reviewId").is(reviewId));
+        if (expectedVersion != null) {
+            query.addCriteria(MongoCriteria.versionIs("version", expectedVersion));
+        }
+        Update update = new Update()
+                .set("comment", changes.getComment())
+                .set("movieInfoId", changes.getMovieInfoId())
+                .set("rating", changes.getRating())
+                .inc("version", 1);
+        return reactiveMongoTemplate.findAndModify(query, update, FindAndModifyOptions.options().returnNew(false), Review.class);
+    }
+
+    @Override
+    public Mono<Review> findAndRemoveById(String reviewId) {
+        return reactiveMongoTemplate.findAndRemove(Query.query(Criteria.where("reviewId").is(reviewId)), Review.class);
+    }
+
+    @Override
+    public Mono<Map<Integer, String>> insertUnordered(List<Review> reviews) {
+        List<Document> documents = new ArrayList<>(reviews.size());
+        for (Review review : reviews) {
+            Document document = new Document();
+            reactiveMongoTemplate.getConverter().write(review, document);
+            document.putIfAbsent("_id", new ObjectId());
+            // Same starting version that save() assigns to new documents
+            document.putIfAbsent("version", 0L);
+            documents.add(document);
+        }
+        return reactiveMongoTemplate.getCollection(reactiveMongoTemplate.getCollectionName(Review.class))
+                .flatMap(collection -> Mono.from(collection.insertMany(documents, new InsertManyOptions().ordered(false))))
+                .map(result -> Map.<Integer, String>of())
+                .onErrorResume(MongoBulkWriteException.class, ex -> Mono.just(ex.getWriteErrors().stream()
+                        .collect(Collectors.toMap(BulkWriteError::getIndex, BulkWriteError::getMessage))))
+                .doOnNext(writeErrors -> {
+                    for (int i = 0; i < reviews.size(); i++) {
+                        if (!writeErrors.containsKey(i)) {
+                            Object id = documents.get(i).get("_id");
+                            reviews.get(i).setReviewId(id instanceof ObjectId ? ((ObjectId) id).toHexString() : String.valueOf(id));
+                            reviews.get(i).setVersion(documents.get(i).get("version", Long.class));
+                        }
+                    }
+                });
+    }
+}
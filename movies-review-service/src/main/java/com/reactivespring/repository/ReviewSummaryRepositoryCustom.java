@@ -0,0 +1,35 @@
+package com.reactivespring.repository;
+
+import com.reactivespring.domain.Review;
+import com.reactivespring.domain.ReviewSummary;
+import reactor.core.publisher.Mono;
+
+import java.util.Collection;
+
+public interface ReviewSummaryRepositoryCustom {
+    /**
+     * Counts a rating into the summary of {@code movieInfoId}. A movie without a summary gets one built
+     * from all of its reviews, which must already include the added one. Does nothing when {@code rating} is null.
+     */
+    Mono<Void> recordAdded(Long movieInfoId, Double rating);
+
+    /**
+     * Counts the ratings of many reviews with one update per movie, for bulk imports.
+     */
+    Mono<Void> recordAddedAll(Collection<Review> reviews);
+
+    /**
+     * Takes a rating back out of the summary of {@code movieInfoId}. Does nothing when {@code rating} is null.
+     * A summary with nothing to take from is rebuilt from the remaining reviews instead, so counts never
+     * go negative.
+     */
+    Mono<Void> recordRemoved(Long movieInfoId, Double rating);
+
+    /**
+     * Rebuilds the summary of {@code movieInfoId} from its reviews, replacing whatever was counted so far,
+     * and emits it. The summary is removed, and nothing emitted, when the movie has no rated review.
+     * Fails with an {@link org.springframework.dao.OptimisticLockingFailureException} when concurrent
+     * updates keep changing the summary.
+     */
+    Mono<ReviewSummary> recompute(Long movieInfoId);
+}
@@ -0,0 +1,215 @@
+package com.reactivespring.repository;
+
+import com.reactivespring.domain.Review;
+import com.reactivespring.domain.ReviewSummary;
+import com.reactivespring.mongo.MongoCriteria;
+import org.bson.Document;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.ArithmeticOperators;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+
+import java.util.Collection;
+import java.util.DoubleSummaryStatistics;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+public class ReviewSummaryRepositoryCustomImpl implements ReviewSummaryRepositoryCustom {
+    // Recompute attempts beyond the first when concurrent updates keep changing the summary
+    private static final int MAX_RETRIES = 5;
+
+    private final ReactiveMongoTemplate reactiveMongoTemplate;
+
+    public ReviewSummaryRepositoryCustomImpl(ReactiveMongoTemplate reactiveMongoTemplate) {
+        this.reactiveMongoTemplate = reactiveMongoTemplate;
+    }
+
+    @Override
+    public Mono<Void> recordAdded(Long movieInfoId, Double rating) {
+        if (rating == null) {
+            return Mono.empty();
+        }
+        return addRatings(movieInfoId, List.of(rating));
+    }
+
+    @Override
+    public Mono<Void> recordAddedAll(Collection<Review> reviews) {
+        Map<Long, List<Double>> ratingsByMovie = reviews.stream()
+                .filter(review -> review.getRating() != null)
+                .collect(Collectors.groupingBy(Review::getMovieInfoId,
+                        Collectors.mapping(Review::getRating, Collectors.toList())));
+        return Flux.fromIterable(ratingsByMovie.entrySet())
+                .flatMap(ratings -> addRatings(ratings.getKey(), ratings.getValue()))
+                .then();
+    }
+
+    private Mono<Void> addRatings(Long movieInfoId, List<Double> ratings) {
+        DoubleSummaryStatistics statistics = ratings.stream().mapToDouble(Double::doubleValue).summaryStatistics();
+        Update update = new Update()
+                .inc("count", statistics.getCount())
+                .inc("sum", statistics.getSum())
+                .min("min", statistics.getMin())
+                .max("max", statistics.getMax())
+                .inc("revision", 1);
+        ratings.stream()
+                .collect(Collectors.groupingBy(ReviewSummary::bucket, Collectors.counting()))
+                .forEach((bucket, count) -> update.inc("histogram." + bucket, count));
+        // A movie without a summary may have older reviews that were never counted, so its summary is built
+        // from all of its reviews, the ones just added included, rather than started from these ratings
+        return reactiveMongoTemplate.updateFirst(summaryOf(movieInfoId), update, ReviewSummary.class)
+                .filter(result -> result.getMatchedCount() == 0)
+                .flatMap(notFound -> recompute(movieInfoId))
+                .then();
+    }
+
+    @Override
+    public Mono<Void> recordRemoved(Long movieInfoId, Double rating) {
+        if (rating == null) {
+            return Mono.empty();
+        }
+        Update update = new Update()
+                .inc("count", -1)
+                .inc("sum", -rating)
+                .inc("histogram." + ReviewSummary.bucket(rating), -1)
+                .inc("revision", 1);
+        Query query = summaryOf(movieInfoId).addCriteria(Criteria.where("count").gt(0));
+        return reactiveMongoTemplate.findAndModify(query, update, FindAndModifyOptions.options().returnNew(true),
+                        ReviewSummary.class)
+                // $min/$max cannot be undone, so only when the removed rating was an extreme
+                // re-read the new one from the movieInfoId_rating index
+                .map(summary -> rating.equals(summary.getMin()) || rating.equals(summary.getMax()))
+                // No summary to take the rating from: it is missing or never counted this review
+                .switchIfEmpty(Mono.defer(() -> recompute(movieInfoId).thenReturn(false)))
+                .filter(Boolean::booleanValue)
+                .flatMap(extreme -> recomputeExtremes(movieInfoId));
+    }
+
+    // The statistics are computed by the server and written only if the summary has not changed since they
+    // were read: a $inc landing in between fails the revision guard and the recompute starts over, so no
+    // concurrent update is overwritten.
+    @Override
+    public Mono<ReviewSummary> recompute(Long movieInfoId) {
+        return reactiveMongoTemplate.findById(movieInfoId, ReviewSummary.class)
+                .map(summary -> Optional.of(summary.getRevision()))
+                .defaultIfEmpty(Optional.empty())
+                .flatMap(revision -> ratingBuckets(movieInfoId)
+                        .flatMap(buckets -> writeRecomputed(movieInfoId, revision, buckets)))
+                .retryWhen(Retry.max(MAX_RETRIES).filter(OptimisticLockingFailureException.class::isInstance));
+    }
+
+    // Count, sum, min and max per whole-number bucket, read with the movieInfoId_rating index
+    private Mono<List<Document>> ratingBuckets(Long movieInfoId) {
+        Aggregation aggregation = Aggregation.newAggregation(
+                Aggregation.match(Criteria.where("movieInfoId").is(movieInfoId).and("rating").ne(null)),
+                Aggregation.project("rating").and(ArithmeticOperators.Floor.floorValueOf("rating")).as("bucket"),
+                Aggregation.group("bucket")
+                        .count().as("count")
+                        .sum("rating").as("sum")
+                        .min("rating").as("min")
+                        .max("rating").as("max"));
+        return reactiveMongoTemplate.aggregate(aggregation, Review.class, Document.class).collectList();
+    }
+
+    private Mono<ReviewSummary> writeRecomputed(Long movieInfoId, Optional<Long> revision, List<Document> buckets) {
+        if (buckets.isEmpty()) {
+            return revision
+                    .map(expected -> reactiveMongoTemplate.remove(summaryOf(movieInfoId).addCriteria(MongoCriteria.versionIs("revision", expected)),
+                                    ReviewSummary.class)
+                            .flatMap(result -> result.getDeletedCount() == 0 ? Mono.<ReviewSummary>error(summaryChanged(movieInfoId))
+                                    : Mono.<ReviewSummary>empty()))
+                    .orElseGet(Mono::empty);
+        }
+        ReviewSummary summary = summary(movieInfoId, buckets, revision.orElse(0L) + 1);
+        if (revision.isEmpty()) {
+            // Another writer creating the summary first fails the insert on the movieInfoId key
+            return reactiveMongoTemplate.insert(summary)
+                    .onErrorMap(DuplicateKeyException.class, ex -> summaryChanged(movieInfoId));
+        }
+        Update update = new Update()
+                .set("count", summary.getCount())
+                .set("sum", summary.getSum())
+                .set("min", summary.getMin())
+                .set("max", summary.getMax())
+                .set("histogram", summary.getHistogram())
+                .set("revision", summary.getRevision());
+        return reactiveMongoTemplate.updateFirst(summaryOf(movieInfoId).addCriteria(MongoCriteria.versionIs("revision", revision.get())), update,
+                        ReviewSummary.class)
+                .flatMap(result -> result.getMatchedCount() == 0 ? Mono.<ReviewSummary>error(summaryChanged(movieInfoId))
+                        : Mono.just(summary));
+    }
+
+    private static ReviewSummary summary(Long movieInfoId, List<Document> buckets, long revision) {
+        long count = 0;
+        double sum = 0;
+        double min = Double.POSITIVE_INFINITY;
+        double max = Double.NEGATIVE_INFINITY;
+        Map<String, Long> histogram = new HashMap<>();
+        for (Document bucket : buckets) {
+            long bucketCount = bucket.get("count", Number.class).longValue();
+            count += bucketCount;
+            sum += bucket.get("sum", Number.class).doubleValue();
+            min = Math.min(min, bucket.get("min", Number.class).doubleValue());
+            max = Math.max(max, bucket.get("max", Number.class).doubleValue());
+            histogram.put(ReviewSummary.bucket(bucket.get("_id", Number.class).doubleValue()), bucketCount);
+        }
+        return ReviewSummary.builder()
+                .movieInfoId(movieInfoId)
+                .count(count)
+                .sum(sum)
+                .min(min)
+                .max(max)
+                .histogram(histogram)
+                .revision(revision)
+                .build();
+    }
+
+    // Like recompute, the new extremes are only written if no other update reached the summary meanwhile
+    private Mono<Void> recomputeExtremes(Long movieInfoId) {
+        return reactiveMongoTemplate.findById(movieInfoId, ReviewSummary.class)
+                .flatMap(summary -> Mono.zip(extremeRating(movieInfoId, Sort.Direction.ASC),
+                                extremeRating(movieInfoId, Sort.Direction.DESC))
+                        .flatMap(extremes -> {
+                            Update update = new Update().inc("revision", 1);
+                            extremes.getT1().ifPresentOrElse(value -> update.set("min", value), () -> update.unset("min"));
+                            extremes.getT2().ifPresentOrElse(value -> update.set("max", value), () -> update.unset("max"));
+                            Query query = summaryOf(movieInfoId).addCriteria(MongoCriteria.versionIs("revision", summary.getRevision()));
+                            return reactiveMongoTemplate.updateFirst(query, update, ReviewSummary.class);
+                        })
+                        .flatMap(result -> result.getMatchedCount() == 0 ? Mono.<Void>error(summaryChanged(movieInfoId))
+                                : Mono.<Void>empty()))
+                .retryWhen(Retry.max(MAX_RETRIES).filter(OptimisticLockingFailureException.class::isInstance))
+                .then();
+    }
+
+    private Mono<Optional<Double>> extremeRating(Long movieInfoId, Sort.Direction direction) {
+        Query query = Query.query(Criteria.where("movieInfoId").is(movieInfoId).and("rating").ne(null))
+                .with(Sort.by(direction, "rating"))
+                .limit(1);
+        query.fields().include("rating");
+        return reactiveMongoTemplate.findOne(query, Review.class)
+                .map(review -> Optional.of(review.getRating()))
+                .defaultIfEmpty(Optional.empty());
+    }
+
+    private Query summaryOf(Long movieInfoId) {
+        return Query.query(Criteria.where("movieInfoId").is(movieInfoId));
+    }
+
+    // Summaries written before revisions were kept have none, which reads as 0
+
+    private static OptimisticLockingFailureException summaryChanged(Long movieInfoId) {
+        return new OptimisticLockingFailureException("Review summary of movie " + movieInfoId + " changed while it was recomputed");
+    }
+}
@@ -19,7 +19,11 @@ public class ReviewRouter {
                 // nesting requests with same URL prefix (i.e /v1/reviews)
                 .nest(path("/v1/reviews"), builder -> builder
                         .GET("", reviewHandler::getReviews)
+                        .GET("/batch", reviewHandler::getReviewsByMovieInfoIds)
+                        .GET("/summary", reviewHandler::getReviewSummary)
+                        .POST("/summary/recompute", reviewHandler::recomputeReviewSummary)
                         .POST("", reviewHandler::addReview)
+                        .POST("/bulk", reviewHandler::addReviewsBulk)
                         .PUT("/{id}", reviewHandler::updateReview)
                         .DELETE("/{id}", reviewHandler::deleteReview))
                 .build();
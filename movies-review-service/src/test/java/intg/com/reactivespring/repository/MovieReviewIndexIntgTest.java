@@ -0,0 +1,141 @@
+package com.reactivespring.repository;
+
+import com.reactivespring.domain.Review;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.data.mongo.DataMongoTest;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.convert.QueryMapper;
+import org.springframework.data.mongodb.core.index.IndexInfo;
+import org.springframework.data.mongodb.core.mapping.MongoPersistentEntity;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@DataMongoTest
+@ActiveProfiles("test")
+class MovieReviewIndexIntgTest {
+    @Autowired
+    MovieReviewRepository movieReviewRepository;
+
+    @Autowired
+    ReactiveMongoTemplate reactiveMongoTemplate;
+
+    @BeforeEach
+    void setUp() {
+        List<Review> movieReviews = List.of(
+                Review.builder().movieInfoId(1L).comment("Awesome Movie").rating(9.0).build(),
+                Review.builder().movieInfoId(1L).comment("Awesome Movie1").rating(9.0).build(),
+                Review.builder().movieInfoId(2L).comment("Excellent Movie").rating(8.0).build());
+        movieReviewRepository.saveAll(movieReviews)
+                .blockLast();
+    }
+
+    @AfterEach
+    void tearDown() {
+        movieReviewRepository.deleteAll().block();
+    }
+
+    @Test
+    void indexesCreatedAtStartup() {
+        List<String> indexNames = reactiveMongoTemplate.indexOps(Review.class).getIndexInfo()
+                .map(IndexInfo::getName)
+                .collectList()
+                .block();
+
+        assertTrue(indexNames.containsAll(List.of("movieInfoId_id", "movieInfoId_rating")));
+    }
+
+    @Test
+    void findByMovieInfoIdUsesIndex() {
+        List<String> stages = planStages(new Document("movieInfoId", 1L), null);
+
+        assertTrue(stages.contains("IXSCAN"));
+        assertFalse(stages.contains("COLLSCAN"));
+    }
+
+    @Test
+    void findByMovieInfoIdAndRatingUsesIndex() {
+        List<String> stages = planStages(new Document("movieInfoId", 1L)
+                .append("rating", new Document("$gte", 8.0)), null);
+
+        assertTrue(stages.contains("IXSCAN"));
+        assertFalse(stages.contains("COLLSCAN"));
+    }
+
+    @Test
+    void movieInfoIdPageNeedsNoInMemorySort() {
+        List<String> stages = planStages(new Document("movieInfoId", 1L), new Document("_id", 1));
+
+        assertTrue(stages.contains("IXSCAN"));
+        assertFalse(stages.contains("SORT"));
+    }
+
+    @Test
+    void pageAfterStringCursorNeedsNoInMemorySort() {
+        assertIndexedWithoutSort(MovieReviewRepositoryCustomImpl.pageQuery(1L, "abc", null, Set.of()));
+    }
+
+    @Test
+    void pageAfterObjectIdCursorNeedsNoInMemorySort() {
+        assertIndexedWithoutSort(MovieReviewRepositoryCustomImpl.pageQuery(1L, new ObjectId().toHexString(), null, Set.of()));
+    }
+
+    @Test
+    void rangeUpToTheLastIdNeedsNoInMemorySort() {
+        assertIndexedWithoutSort(MovieReviewRepositoryCustomImpl.pageQuery(1L, "abc", new ObjectId().toHexString(), Set.of()));
+    }
+
+    private void assertIndexedWithoutSort(Query query) {
+        List<String> stages = planStages(query);
+
+        assertTrue(stages.contains("IXSCAN"), stages::toString);
+        assertFalse(stages.contains("COLLSCAN"), stages::toString);
+        assertFalse(stages.contains("SORT"), stages::toString);
+    }
+
+    private List<String> planStages(Query query) {
+        MongoPersistentEntity<?> entity = reactiveMongoTemplate.getConverter().getMappingContext()
+                .getRequiredPersistentEntity(Review.class);
+        QueryMapper queryMapper = new QueryMapper(reactiveMongoTemplate.getConverter());
+        return planStages(queryMapper.getMappedObject(query.getQueryObject(), entity),
+                queryMapper.getMappedSort(query.getSortObject(), entity));
+    }
+
+    private List<String> planStages(Document filter, Document sort) {
+        Document find = new Document("find", reactiveMongoTemplate.getCollectionName(Review.class))
+                .append("filter", filter);
+        if (sort != null) {
+            find.append("sort", sort);
+        }
+        Document explain = reactiveMongoTemplate
+                .executeCommand(new Document("explain", find).append("verbosity", "queryPlanner"))
+                .block();
+        List<String> stages = new ArrayList<>();
+        collectStages(explain.get("queryPlanner", Document.class).get("winningPlan"), stages);
+        return stages;
+    }
+
+    private void collectStages(Object node, List<String> stages) {
+        if (node instanceof Map) {
+            Map<?, ?> plan = (Map<?, ?>) node;
+            if (plan.get("stage") instanceof String) {
+                stages.add((String) plan.get("stage"));
+            }
+            plan.values().forEach(child -> collectStages(child, stages));
+        } else if (node instanceof List) {
+            ((List<?>) node).forEach(child -> collectStages(child, stages));
+        }
+    }
+}
@@ -1,26 +1,36 @@
 package com.reactivespring.routes;
 
+import com.reactivespring.domain.BulkReviewResult;
 import com.reactivespring.domain.Review;
 import com.reactivespring.repository.MovieReviewRepository;
+import com.reactivespring.repository.ReviewSummaryRepository;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.metrics.AutoConfigureMetrics;
 import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.web.reactive.server.WebTestClient;
 import org.springframework.web.util.UriComponentsBuilder;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
 
 import java.net.URI;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 @SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
 @ActiveProfiles("test")
 @AutoConfigureWebTestClient
+@AutoConfigureMetrics
 class ReviewsIntgTest {
     @Autowired
     WebTestClient webTestClient;
@@ -28,6 +38,9 @@ class ReviewsIntgTest {
     @Autowired
     MovieReviewRepository movieReviewRepository;
 
+    @Autowired
+    ReviewSummaryRepository reviewSummaryRepository;
+
     private final String MOVIES_REVIEW_URI = "/v1/reviews";
 
     @BeforeEach
@@ -61,6 +74,157 @@ class ReviewsIntgTest {
     @AfterEach
     void tearDown() {
         movieReviewRepository.deleteAll().block();
+        reviewSummaryRepository.deleteAll().block();
+    }
+
+    @Test
+    void findPageAfterStringIdIncludesObjectIds() {
+        // Saved without an id, so it gets an ObjectId, which sorts after every string id
+        movieReviewRepository.save(Review.builder().movieInfoId(3L).comment("Fine").rating(7.0).build()).block();
+
+        StepVerifier.create(movieReviewRepository.findPage(null, "ghi", 10, Set.of()))
+                .assertNext(review -> assertEquals("Fine", review.getComment()))
+                .verifyComplete();
+    }
+
+    @Test
+    void reviewSummaryFollowsAddUpdateAndDelete() {
+        Review good = addReview(Review.builder().movieInfoId(5L).comment("Good").rating(8.0).build());
+        Review great = addReview(Review.builder().movieInfoId(5L).comment("Great").rating(9.5).build());
+
+        webTestClient
+                .get()
+                .uri(MOVIES_REVIEW_URI + "/summary?movieInfoId=5")
+                .exchange()
+                .expectStatus()
+                .is2xxSuccessful()
+                .expectBody()
+                .jsonPath("$.count").isEqualTo(2)
+                .jsonPath("$.sum").isEqualTo(17.5)
+                .jsonPath("$.min").isEqualTo(8.0)
+                .jsonPath("$.max").isEqualTo(9.5)
+                .jsonPath("$.histogram['8']").isEqualTo(1)
+                .jsonPath("$.histogram['9']").isEqualTo(1);
+
+        webTestClient
+                .put()
+                .uri(MOVIES_REVIEW_URI + "/{id}", good.getReviewId())
+                .bodyValue(Review.builder().movieInfoId(5L).comment("Better on rewatch").rating(7.0).build())
+                .exchange()
+                .expectStatus()
+                .is2xxSuccessful();
+
+        webTestClient
+                .delete()
+                .uri(MOVIES_REVIEW_URI + "/{id}", great.getReviewId())
+                .exchange()
+                .expectStatus()
+                .isNoContent();
+
+        webTestClient
+                .get()
+                .uri(MOVIES_REVIEW_URI + "/summary?movieInfoId=5")
+                .exchange()
+                .expectStatus()
+                .is2xxSuccessful()
+                .expectBody()
+                .jsonPath("$.count").isEqualTo(1)
+                .jsonPath("$.average").isEqualTo(7.0)
+                .jsonPath("$.min").isEqualTo(7.0)
+                .jsonPath("$.max").isEqualTo(7.0)
+                .jsonPath("$.histogram['7']").isEqualTo(1)
+                .jsonPath("$.histogram['9']").isEqualTo(0);
+    }
+
+    @Test
+    void removingReviewWithoutSummaryRebuildsIt() {
+        // setUp stores reviews directly, like reviews written before summaries were kept
+        webTestClient
+                .delete()
+                .uri(MOVIES_REVIEW_URI + "/{id}", "def")
+                .exchange()
+                .expectStatus()
+                .isNoContent();
+
+        webTestClient
+                .get()
+                .uri(MOVIES_REVIEW_URI + "/summary?movieInfoId=2")
+                .exchange()
+                .expectStatus()
+                .is2xxSuccessful()
+                .expectBody()
+                .jsonPath("$.count").isEqualTo(1)
+                .jsonPath("$.average").isEqualTo(6.0);
+    }
+
+    @Test
+    void firstSummaryOfAMovieCountsItsOlderReviews() {
+        // setUp stores reviews directly, like reviews written before summaries were kept
+        addReview(Review.builder().movieInfoId(2L).comment("Fine").rating(7.0).build());
+
+        StepVerifier.create(reviewSummaryRepository.findById(2L))
+                .assertNext(summary -> {
+                    assertEquals(3, summary.getCount());
+                    assertEquals(22.5, summary.getSum());
+                    assertEquals(6.0, summary.getMin());
+                    assertEquals(9.5, summary.getMax());
+                    assertEquals(Map.of("6", 1L, "7", 1L, "9", 1L), summary.getHistogram());
+                })
+                .verifyComplete();
+    }
+
+    @Test
+    void addReviewsBulk() {
+        String ndjson = String.join("\n",
+                "{\"movieInfoId\":7,\"comment\":\"Great Movie\",\"rating\":9.0}",
+                "{\"reviewId\":\"abc\",\"movieInfoId\":7,\"rating\":1.0}",
+                "{\"movieInfoId\":7,\"comment\":\"Fine\",\"rating\":6.0}") + "\n";
+
+        Flux<BulkReviewResult> results = webTestClient
+                .post()
+                .uri(MOVIES_REVIEW_URI + "/bulk")
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .bodyValue(ndjson)
+                .exchange()
+                .expectStatus()
+                .is2xxSuccessful()
+                .returnResult(BulkReviewResult.class)
+                .getResponseBody();
+
+        // "abc" already exists, so only that line fails; the unordered insert still writes the others
+        StepVerifier.create(results)
+                .expectNextMatches(result -> result.getLine() == 1 && result.getReviewId() != null)
+                .expectNextMatches(result -> result.getLine() == 2 && result.getError() != null)
+                .expectNextMatches(result -> result.getLine() == 3 && result.getReviewId() != null)
+                .verifyComplete();
+
+        StepVerifier.create(movieReviewRepository.findByMovieInfoId(7L))
+                .expectNextCount(2)
+                .verifyComplete();
+
+        webTestClient
+                .get()
+                .uri(MOVIES_REVIEW_URI + "/summary?movieInfoId=7")
+                .exchange()
+                .expectStatus()
+                .is2xxSuccessful()
+                .expectBody()
+                .jsonPath("$.count").isEqualTo(2)
+                .jsonPath("$.min").isEqualTo(6.0)
+                .jsonPath("$.max").isEqualTo(9.0);
+    }
+
+    private Review addReview(Review review) {
+        return webTestClient
+                .post()
+                .uri(MOVIES_REVIEW_URI)
+                .bodyValue(review)
+                .exchange()
+                .expectStatus()
+                .isCreated()
+                .expectBody(Review.class)
+                .returnResult()
+                .getResponseBody();
     }
 
     @Test
@@ -170,4 +334,29 @@ class ReviewsIntgTest {
                 .isNoContent();
     }
 
+    @Test
+    void prometheusEndpointHasRouteAndRepositoryHistograms() {
+        webTestClient
+                .get()
+                .uri(MOVIES_REVIEW_URI)
+                .exchange()
+                .expectStatus()
+                .isOk();
+
+        String scrape = webTestClient
+                .get()
+                .uri("/actuator/prometheus")
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectBody(String.class)
+                .returnResult()
+                .getResponseBody();
+
+        assertNotNull(scrape);
+        assertTrue(scrape.contains("http_server_requests_seconds_bucket{"));
+        assertTrue(scrape.contains("uri=\"/v1/reviews\""));
+        assertTrue(scrape.contains("movies_repository_flow_duration_seconds_bucket{"));
+        assertTrue(scrape.contains("method=\"findPage\""));
+    }
 }
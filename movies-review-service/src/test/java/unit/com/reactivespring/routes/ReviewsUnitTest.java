@@ -1,27 +1,47 @@
 package com.reactivespring.routes;
 
+import com.reactivespring.domain.BulkReviewResult;
 import com.reactivespring.domain.Review;
+import com.reactivespring.domain.ReviewSummary;
 import com.reactivespring.exceptionhandler.GlobalErrorHandler;
 import com.reactivespring.handler.ReviewHandler;
+import com.reactivespring.pagination.PageCursor;
 import com.reactivespring.repository.MovieReviewRepository;
+import com.reactivespring.repository.ReviewSummaryRepository;
 import com.reactivespring.router.ReviewRouter;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
 import org.springframework.boot.test.autoconfigure.web.reactive.WebFluxTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.web.reactive.server.WebTestClient;
 import org.springframework.web.util.UriComponentsBuilder;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
 
 import java.net.URI;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anySet;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.ArgumentMatchers.isA;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @WebFluxTest
@@ -31,11 +51,21 @@ class ReviewsUnitTest {
     @MockBean
     private MovieReviewRepository movieReviewRepository;
 
+    @MockBean
+    private ReviewSummaryRepository reviewSummaryRepository;
+
     @Autowired
     private WebTestClient webTestClient;
 
     private final String MOVIES_REVIEW_URI = "/v1/reviews";
 
+    @BeforeEach
+    void setUp() {
+        when(reviewSummaryRepository.recordAdded(any(), any())).thenReturn(Mono.empty());
+        when(reviewSummaryRepository.recordRemoved(any(), any())).thenReturn(Mono.empty());
+        when(reviewSummaryRepository.recordAddedAll(any())).thenReturn(Mono.empty());
+    }
+
     @Test
     void getReviews() {
         Review review1 = Review.builder()
@@ -61,7 +91,8 @@ class ReviewsUnitTest {
 
         List<Review> movieReviews = List.of(review1, review2, review3);
 
-        when(movieReviewRepository.findAll()).thenReturn(Flux.fromIterable(movieReviews));
+        when(movieReviewRepository.findPage(isNull(), isNull(), anyInt(), anySet())).thenReturn(Flux.fromIterable(movieReviews));
+        when(movieReviewRepository.findRange(isNull(), isNull(), eq("ghi"), anySet())).thenReturn(Flux.fromIterable(movieReviews));
 
         webTestClient
                 .get()
@@ -94,7 +125,8 @@ class ReviewsUnitTest {
 
         List<Review> movieReviews = List.of(review1, review2);
 
-        when(movieReviewRepository.findByMovieInfoId(isA(Long.class))).thenReturn(Flux.fromIterable(movieReviews));
+        when(movieReviewRepository.findPage(isA(Long.class), isNull(), anyInt(), anySet())).thenReturn(Flux.fromIterable(movieReviews));
+        when(movieReviewRepository.findRange(isA(Long.class), isNull(), eq("ghi"), anySet())).thenReturn(Flux.fromIterable(movieReviews));
 
         webTestClient
                 .get()
@@ -106,6 +138,326 @@ class ReviewsUnitTest {
                 .hasSize(2);
     }
 
+    @Test
+    void getReviewsByMovieInfoIds() {
+        Review review1 = Review.builder()
+                .reviewId("abc")
+                .movieInfoId(1L)
+                .comment("Great Movie")
+                .rating(9.0)
+                .build();
+
+        Review review2 = Review.builder()
+                .reviewId("def")
+                .movieInfoId(2L)
+                .comment("Awesome graphics, best experience")
+                .rating(9.5)
+                .build();
+
+        Review review3 = Review.builder()
+                .reviewId("ghi")
+                .movieInfoId(2L)
+                .comment("Not as good as the previous parts")
+                .rating(6.0)
+                .build();
+
+        when(movieReviewRepository.findByMovieInfoIdIn(List.of(1L, 2L)))
+                .thenReturn(Flux.just(review1, review2, review3));
+
+        webTestClient
+                .get()
+                .uri(MOVIES_REVIEW_URI + "/batch?movieInfoIds=1,2")
+                .exchange()
+                .expectStatus()
+                .is2xxSuccessful()
+                .expectBody()
+                .jsonPath("$['1'].length()").isEqualTo(1)
+                .jsonPath("$['2'].length()").isEqualTo(2);
+    }
+
+    @Test
+    void getReviewsByMalformedMovieInfoIds() {
+        webTestClient
+                .get()
+                .uri(MOVIES_REVIEW_URI + "/batch?movieInfoIds=1,abc")
+                .exchange()
+                .expectStatus()
+                .isBadRequest()
+                .expectBody(String.class)
+                .isEqualTo("movieInfoIds must contain numeric movie info ids");
+    }
+
+    @Test
+    void getReviewsNextCursor() {
+        Review review1 = Review.builder()
+                .reviewId("abc")
+                .movieInfoId(1L)
+                .comment("Great Movie")
+                .rating(9.0)
+                .build();
+
+        Review review2 = Review.builder()
+                .reviewId("def")
+                .movieInfoId(2L)
+                .comment("Awesome graphics, best experience")
+                .rating(9.5)
+                .build();
+
+        when(movieReviewRepository.findPage(isNull(), isNull(), eq(2), anySet())).thenReturn(Flux.just(review1, review2));
+        // The page ends at the last id inside the limit, which is also where the next cursor starts
+        when(movieReviewRepository.findRange(isNull(), isNull(), eq("abc"), anySet())).thenReturn(Flux.just(review1));
+
+        webTestClient
+                .get()
+                .uri(MOVIES_REVIEW_URI + "?limit=1")
+                .exchange()
+                .expectStatus()
+                .is2xxSuccessful()
+                .expectHeader()
+                .valueEquals(PageCursor.NEXT_CURSOR_HEADER, PageCursor.encode("abc"))
+                .expectBodyList(Review.class)
+                .hasSize(1);
+    }
+
+    @Test
+    void getReviewsWithFieldProjection() {
+        Review key = Review.builder()
+                .reviewId("abc")
+                .version(3L)
+                .build();
+        Review review = Review.builder()
+                .reviewId("abc")
+                .rating(9.0)
+                .build();
+
+        // version is always read for the ETag, but only returned when asked for
+        when(movieReviewRepository.findPage(isNull(), isNull(), anyInt(), eq(Set.of("version"))))
+                .thenReturn(Flux.just(key));
+        when(movieReviewRepository.findRange(isNull(), isNull(), eq("abc"), eq(Set.of("rating"))))
+                .thenReturn(Flux.just(review));
+
+        webTestClient
+                .get()
+                .uri(MOVIES_REVIEW_URI + "?fields=rating")
+                .exchange()
+                .expectStatus()
+                .is2xxSuccessful()
+                .expectBody()
+                .jsonPath("$[0].rating").isEqualTo(9.0)
+                .jsonPath("$[0].comment").doesNotExist()
+                .jsonPath("$[0].version").doesNotExist();
+    }
+
+    @Test
+    void getReviewsNotModified() {
+        Review review = Review.builder()
+                .reviewId("abc")
+                .movieInfoId(1L)
+                .comment("Great Movie")
+                .rating(9.0)
+                .version(1L)
+                .build();
+
+        when(movieReviewRepository.findPage(isNull(), isNull(), anyInt(), anySet())).thenAnswer(invocation -> Flux.just(review));
+        when(movieReviewRepository.findRange(isNull(), isNull(), eq("abc"), anySet())).thenAnswer(invocation -> Flux.just(review));
+
+        String eTag = webTestClient
+                .get()
+                .uri(MOVIES_REVIEW_URI)
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectHeader()
+                .valueMatches(HttpHeaders.CACHE_CONTROL, ".*max-age=30.*")
+                .valueMatches(HttpHeaders.ETAG, "W/\".+\"")
+                .expectBodyList(Review.class)
+                .hasSize(1)
+                .returnResult()
+                .getResponseHeaders()
+                .getETag();
+
+        webTestClient
+                .get()
+                .uri(MOVIES_REVIEW_URI)
+                .ifNoneMatch(eTag)
+                .exchange()
+                .expectStatus()
+                .isNotModified()
+                .expectBody()
+                .isEmpty();
+
+        review.setVersion(2L);
+
+        webTestClient
+                .get()
+                .uri(MOVIES_REVIEW_URI)
+                .ifNoneMatch(eTag)
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectHeader()
+                .value(HttpHeaders.ETAG, value -> assertNotEquals(eTag, value));
+    }
+
+    @Test
+    void getReviewsWithUnknownField() {
+        webTestClient
+                .get()
+                .uri(MOVIES_REVIEW_URI + "?fields=rating,password")
+                .exchange()
+                .expectStatus()
+                .isBadRequest();
+    }
+
+    @Test
+    void getReviewsPageSizeAboveMax() {
+        webTestClient
+                .get()
+                .uri(MOVIES_REVIEW_URI + "?limit=501")
+                .exchange()
+                .expectStatus()
+                .isBadRequest();
+    }
+
+    @Test
+    void getReviewsAsNdjsonStream() {
+        Review review1 = Review.builder()
+                .reviewId("abc")
+                .movieInfoId(1L)
+                .comment("Great Movie")
+                .rating(9.0)
+                .build();
+
+        Review review2 = Review.builder()
+                .reviewId("def")
+                .movieInfoId(2L)
+                .comment("Awesome graphics, best experience")
+                .rating(9.5)
+                .build();
+
+        when(movieReviewRepository.findPage(isNull(), isNull(), anyInt(), anySet())).thenReturn(Flux.just(review1, review2));
+        when(movieReviewRepository.findRange(isNull(), isNull(), eq("def"), anySet())).thenReturn(Flux.just(review1, review2));
+
+        Flux<Review> reviewFlux = webTestClient
+                .get()
+                .uri(MOVIES_REVIEW_URI)
+                .accept(MediaType.APPLICATION_NDJSON)
+                .exchange()
+                .expectStatus()
+                .is2xxSuccessful()
+                .expectHeader()
+                .contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON)
+                .returnResult(Review.class)
+                .getResponseBody();
+
+        StepVerifier.create(reviewFlux)
+                .expectNextMatches(review -> review.getReviewId().equals("abc"))
+                .expectNextMatches(review -> review.getReviewId().equals("def"))
+                .verifyComplete();
+    }
+
+    @Test
+    void getReviewsAsSmile() {
+        Review review = Review.builder()
+                .reviewId("abc")
+                .movieInfoId(1L)
+                .comment("Great Movie")
+                .rating(9.0)
+                .build();
+
+        when(movieReviewRepository.findPage(isNull(), isNull(), anyInt(), anySet())).thenReturn(Flux.just(review));
+        when(movieReviewRepository.findRange(isNull(), isNull(), eq("abc"), anySet())).thenReturn(Flux.just(review));
+
+        webTestClient
+                .get()
+                .uri(MOVIES_REVIEW_URI)
+                .accept(MediaType.parseMediaType("application/x-jackson-smile"), MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus()
+                .is2xxSuccessful()
+                .expectHeader()
+                .contentTypeCompatibleWith("application/x-jackson-smile")
+                .expectBodyList(Review.class)
+                .contains(review);
+    }
+
+    @Test
+    void getReviewSummary() {
+        ReviewSummary summary = ReviewSummary.builder()
+                .movieInfoId(1L)
+                .count(2)
+                .sum(17.0)
+                .min(8.0)
+                .max(9.0)
+                .histogram(Map.of("8", 1L, "9", 1L))
+                .build();
+
+        when(reviewSummaryRepository.findById(1L)).thenReturn(Mono.just(summary));
+
+        webTestClient
+                .get()
+                .uri(MOVIES_REVIEW_URI + "/summary?movieInfoId=1")
+                .exchange()
+                .expectStatus()
+                .is2xxSuccessful()
+                .expectBody()
+                .jsonPath("$.count").isEqualTo(2)
+                .jsonPath("$.average").isEqualTo(8.5)
+                .jsonPath("$.histogram['9']").isEqualTo(1);
+    }
+
+    @Test
+    void getReviewSummaryRecomputedWhenMissing() {
+        ReviewSummary summary = ReviewSummary.builder()
+                .movieInfoId(4L)
+                .count(1)
+                .sum(7.0)
+                .min(7.0)
+                .max(7.0)
+                .histogram(Map.of("7", 1L))
+                .build();
+
+        // Reviews written before summaries were kept have none until it is built
+        when(reviewSummaryRepository.findById(4L)).thenReturn(Mono.empty());
+        when(reviewSummaryRepository.recompute(4L)).thenReturn(Mono.just(summary));
+
+        webTestClient
+                .get()
+                .uri(MOVIES_REVIEW_URI + "/summary?movieInfoId=4")
+                .exchange()
+                .expectStatus()
+                .is2xxSuccessful()
+                .expectBody()
+                .jsonPath("$.count").isEqualTo(1)
+                .jsonPath("$.average").isEqualTo(7.0);
+    }
+
+    @Test
+    void getReviewSummaryWithoutReviews() {
+        when(reviewSummaryRepository.findById(3L)).thenReturn(Mono.empty());
+        when(reviewSummaryRepository.recompute(3L)).thenReturn(Mono.empty());
+
+        webTestClient
+                .get()
+                .uri(MOVIES_REVIEW_URI + "/summary?movieInfoId=3")
+                .exchange()
+                .expectStatus()
+                .is2xxSuccessful()
+                .expectBody()
+                .jsonPath("$.count").isEqualTo(0)
+                .jsonPath("$.average").doesNotExist();
+    }
+
+    @Test
+    void recomputeReviewSummaryRequiresMovieInfoId() {
+        webTestClient
+                .post()
+                .uri(MOVIES_REVIEW_URI + "/summary/recompute")
+                .exchange()
+                .expectStatus()
+                .isBadRequest();
+    }
+
     @Test
     void addReview() {
         Review review = Review.builder()
@@ -133,6 +485,64 @@ class ReviewsUnitTest {
                 });
     }
 
+    @Test
+    void addReviewRecomputesSummaryWhenItsUpdateFails() {
+        Review review = Review.builder()
+                .reviewId("abc")
+                .movieInfoId(1L)
+                .comment("Great Movie")
+                .rating(9.0)
+                .build();
+
+        when(movieReviewRepository.save(isA(Review.class))).thenReturn(Mono.just(review));
+        when(reviewSummaryRepository.recordAdded(any(), any())).thenReturn(Mono.error(new IllegalStateException("write timeout")));
+        when(reviewSummaryRepository.recompute(1L)).thenReturn(Mono.empty());
+
+        webTestClient
+                .post()
+                .uri(MOVIES_REVIEW_URI)
+                .bodyValue(review)
+                .exchange()
+                .expectStatus()
+                .isCreated();
+
+        verify(reviewSummaryRepository).recompute(1L);
+    }
+
+    @Test
+    void addReviewsBulk() {
+        String ndjson = String.join("\n",
+                "{\"movieInfoId\":1,\"comment\":\"Great Movie\",\"rating\":9.0}",
+                "not json",
+                "{\"comment\":\"No movie\",\"rating\":-9.0}",
+                "",
+                "{\"reviewId\":\"abc\",\"movieInfoId\":2,\"rating\":7.0}") + "\n";
+
+        when(movieReviewRepository.insertUnordered(anyList())).thenAnswer(invocation -> {
+            List<Review> reviews = invocation.getArgument(0);
+            reviews.get(0).setReviewId("generated");
+            return Mono.just(Map.of(1, "E11000 duplicate key error"));
+        });
+
+        Flux<BulkReviewResult> results = webTestClient
+                .post()
+                .uri(MOVIES_REVIEW_URI + "/bulk")
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .bodyValue(ndjson)
+                .exchange()
+                .expectStatus()
+                .is2xxSuccessful()
+                .returnResult(BulkReviewResult.class)
+                .getResponseBody();
+
+        StepVerifier.create(results)
+                .expectNext(BulkReviewResult.inserted(1, "generated"))
+                .expectNextMatches(result -> result.getLine() == 2 && result.getError().startsWith("malformed review"))
+                .expectNext(BulkReviewResult.rejected(3, "movieInfoId must not be null,rating: please pass a non-negative value"))
+                .expectNext(BulkReviewResult.rejected(5, "E11000 duplicate key error"))
+                .verifyComplete();
+    }
+
     @Test
     void addReviewValidation() {
         Review review = Review.builder()
@@ -165,8 +575,15 @@ class ReviewsUnitTest {
                 .rating(9.6)
                 .build();
 
-        when(movieReviewRepository.findById("abc")).thenReturn(Mono.just(review));
-        when(movieReviewRepository.save(isA(Review.class))).thenReturn(Mono.just(review));
+        Review previousReview = Review.builder()
+                .reviewId("abc")
+                .movieInfoId(1L)
+                .comment("Great Movie")
+                .rating(9.0)
+                .version(2L)
+                .build();
+
+        when(movieReviewRepository.updateReview(eq("abc"), isA(Review.class), isNull())).thenReturn(Mono.just(previousReview));
 
 
         webTestClient
@@ -176,6 +593,8 @@ class ReviewsUnitTest {
                 .exchange()
                 .expectStatus()
                 .is2xxSuccessful()
+                .expectHeader()
+                .valueEquals(HttpHeaders.ETAG, "\"3\"")
                 .expectBody(Review.class)
                 .consumeWith(reviewEntityExchangeResult -> {
                     Review updatedMovieReview = reviewEntityExchangeResult.getResponseBody();
@@ -186,6 +605,27 @@ class ReviewsUnitTest {
                 });
     }
 
+    @Test
+    void updateReviewStaleIfMatch() {
+        Review review = Review.builder()
+                .movieInfoId(1L)
+                .comment("Updated Comment")
+                .rating(9.6)
+                .build();
+
+        when(movieReviewRepository.updateReview(eq("abc"), isA(Review.class), eq(2L))).thenReturn(Mono.empty());
+        when(movieReviewRepository.existsById("abc")).thenReturn(Mono.just(true));
+
+        webTestClient
+                .put()
+                .uri(MOVIES_REVIEW_URI+"/{id}", "abc")
+                .header(HttpHeaders.IF_MATCH, "\"2\"")
+                .bodyValue(review)
+                .exchange()
+                .expectStatus()
+                .isEqualTo(HttpStatus.PRECONDITION_FAILED);
+    }
+
     @Test
     void deleteMovieReviewById() {
         String movieInfoId = "abc";
@@ -195,13 +635,27 @@ class ReviewsUnitTest {
                 .comment("Great Movie")
                 .rating(9.0)
                 .build();
-        when(movieReviewRepository.findById("abc")).thenReturn(Mono.just(review));
-        when(movieReviewRepository.deleteById(isA(String.class))).thenReturn(Mono.empty());
+        when(movieReviewRepository.findAndRemoveById("abc")).thenReturn(Mono.just(review));
         webTestClient
                 .delete()
                 .uri(MOVIES_REVIEW_URI+"/{id}", movieInfoId)
                 .exchange()
                 .expectStatus()
                 .isNoContent();
+
+        verify(reviewSummaryRepository).recordRemoved(1L, 9.0);
+    }
+
+    @Test
+    void deleteMissingReviewLeavesSummary() {
+        when(movieReviewRepository.findAndRemoveById("abc")).thenReturn(Mono.empty());
+        webTestClient
+                .delete()
+                .uri(MOVIES_REVIEW_URI+"/{id}", "abc")
+                .exchange()
+                .expectStatus()
+                .isNoContent();
+
+        verify(reviewSummaryRepository, never()).recordRemoved(any(), any());
     }
 }
@@ -0,0 +1,161 @@
+package com.reactivespring.cache;
+
+import com.github.benmanes.caffeine.cache.AsyncCacheLoader;
+import com.github.benmanes.caffeine.cache.AsyncLoadingCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.reactivespring.config.MovieInfoCacheProperties;
+import com.reactivespring.domain.MovieInfo;
+import com.reactivespring.exception.MoviesInfoClientException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.http.HttpStatus;
+import reactor.core.publisher.Mono;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * Size-bounded, per-entry TTL cache for {@link MovieInfo} with stale-while-revalidate reads.
+ * Entries past {@code refreshAfterWrite} are served as-is while a reload runs in the background;
+ * a failed reload keeps the stale value until its TTL runs out. NOT_FOUND answers from
+ * movies-info-service are cached with their own, shorter TTL. Reloads hand the loader the cached
+ * value and its ETag, so an unchanged movie info can be revalidated instead of transferred again.
+ */
+public class MovieInfoCache {
+    private final AsyncLoadingCache<String, Entry> cache;
+    private final BiFunction<String, ValidatedMovieInfo, Mono<ValidatedMovieInfo>> loader;
+    private final Timer loadTimer;
+    private final Counter notModifiedCounter;
+
+    public MovieInfoCache(MovieInfoCacheProperties properties, Function<String, Mono<MovieInfo>> loader,
+                          MeterRegistry meterRegistry) {
+        this(properties, (movieInfoId, cached) -> loader.apply(movieInfoId)
+                .map(movieInfo -> new ValidatedMovieInfo(movieInfo, null)), meterRegistry);
+    }
+
+    /**
+     * @param loader called with the cached value on a reload, or null on a first load; returning the
+     *               cached instance itself means it is still current
+     */
+    public MovieInfoCache(MovieInfoCacheProperties properties,
+                          BiFunction<String, ValidatedMovieInfo, Mono<ValidatedMovieInfo>> loader,
+                          MeterRegistry meterRegistry) {
+        this.loader = loader;
+        this.loadTimer = Timer.builder("movies.cache.load")
+                .description("Time taken to load a cache entry from the downstream service")
+                .tag("cache", "movie-info")
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(meterRegistry);
+        this.notModifiedCounter = Counter.builder("movies.cache.not-modified")
+                .description("Reloads answered by the downstream service with 304 Not Modified")
+                .tag("cache", "movie-info")
+                .register(meterRegistry);
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(properties.getMaximumSize())
+                .expireAfter(new EntryExpiry(properties))
+                .refreshAfterWrite(properties.getRefreshAfterWrite())
+                .recordStats()
+                .buildAsync(new AsyncCacheLoader<String, Entry>() {
+                    @Override
+                    public CompletableFuture<Entry> asyncLoad(String key, Executor executor) {
+                        return load(key, null).toFuture();
+                    }
+
+                    @Override
+                    public CompletableFuture<Entry> asyncReload(String key, Entry oldValue, Executor executor) {
+                        return load(key, oldValue.isNotFound() ? null : oldValue.validated).toFuture();
+                    }
+                });
+        CaffeineCacheMetrics.monitor(meterRegistry, cache.synchronous(), "movie-info");
+    }
+
+    public Mono<MovieInfo> get(String movieInfoId) {
+        // copy() so that a cancelled subscriber does not cancel the load shared with other callers.
+        // A miss loads with the caller's Reactor Context, so its downstream call joins the caller's trace;
+        // background reloads have no caller and start traces of their own.
+        return Mono.deferContextual(contextView -> Mono.fromFuture(cache.get(movieInfoId,
+                        (key, executor) -> load(key, null).contextWrite(contextView).toFuture()).copy()))
+                .flatMap(entry -> entry.isNotFound()
+                        ? Mono.error(new MoviesInfoClientException(entry.notFoundMessage, HttpStatus.NOT_FOUND.value()))
+                        : Mono.just(entry.validated.getMovieInfo()));
+    }
+
+    public void invalidate(String movieInfoId) {
+        cache.synchronous().invalidate(movieInfoId);
+    }
+
+    public void invalidateAll() {
+        cache.synchronous().invalidateAll();
+    }
+
+    private Mono<Entry> load(String movieInfoId, ValidatedMovieInfo cached) {
+        return Mono.defer(() -> {
+            long start = System.nanoTime();
+            return loader.apply(movieInfoId, cached)
+                    .doOnNext(validated -> {
+                        if (validated == cached) {
+                            notModifiedCounter.increment();
+                        }
+                    })
+                    .map(Entry::found)
+                    .onErrorResume(MoviesInfoClientException.class, ex ->
+                            ex.getStatusCode() == HttpStatus.NOT_FOUND.value()
+                                    ? Mono.just(Entry.notFound(ex.getMessage()))
+                                    : Mono.error(ex))
+                    .doFinally(signalType -> loadTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS));
+        });
+    }
+
+    private static final class Entry {
+        private final ValidatedMovieInfo validated;
+        private final String notFoundMessage;
+
+        private Entry(ValidatedMovieInfo validated, String notFoundMessage) {
+            this.validated = validated;
+            this.notFoundMessage = notFoundMessage;
+        }
+
+        static Entry found(ValidatedMovieInfo validated) {
+            return new Entry(validated, null);
+        }
+
+        static Entry notFound(String message) {
+            return new Entry(null, message);
+        }
+
+        boolean isNotFound() {
+            return validated == null;
+        }
+    }
+
+    private static final class EntryExpiry implements Expiry<String, Entry> {
+        private final long timeToLiveNanos;
+        private final long notFoundTimeToLiveNanos;
+
+        private EntryExpiry(MovieInfoCacheProperties properties) {
+            this.timeToLiveNanos = properties.getTimeToLive().toNanos();
+            this.notFoundTimeToLiveNanos = properties.getNotFoundTimeToLive().toNanos();
+        }
+
+        @Override
+        public long expireAfterCreate(String key, Entry entry, long currentTime) {
+            return entry.isNotFound() ? notFoundTimeToLiveNanos : timeToLiveNanos;
+        }
+
+        @Override
+        public long expireAfterUpdate(String key, Entry entry, long currentTime, long currentDuration) {
+            return expireAfterCreate(key, entry, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(String key, Entry entry, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package com.reactivespring.cache;
+
+import com.reactivespring.client.MoviesInfoRestClient;
+import com.reactivespring.config.LoadBalancerProperties;
+import com.reactivespring.config.MovieInfoCacheProperties;
+import com.reactivespring.domain.MovieInfoChangeEvent;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.Disposables;
+import reactor.core.publisher.Flux;
+import reactor.util.retry.Retry;
+
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Tails the movies-info-service change stream and evicts cached movie info as events arrive.
+ * Reconnects resume from the last seen event; if events were lost in between (a gap in the
+ * sequence, a restarted publisher, or a reconnect before any event arrived, with nothing to resume
+ * from), the whole cache is dropped instead.
+ * <p>
+ * Each movies-info replica only publishes the changes made through it, so one stream is kept open
+ * per endpoint in {@code rest-client.load-balancer.movies-info.endpoints}, each resuming and checking
+ * for gaps on its own. Without endpoints there is a single stream to {@code restClient.moviesInfoUrl};
+ * if that address spreads connections over several replicas, changes made through the others only
+ * leave the cache with its time-to-live.
+ */
+@Component
+@Log4j2
+public class MovieInfoInvalidationListener {
+    private final MoviesInfoRestClient moviesInfoRestClient;
+    private final MovieInfoCacheProperties cacheProperties;
+    private final List<ReplicaStream> streams;
+    private final Disposable.Composite subscriptions = Disposables.composite();
+
+    public MovieInfoInvalidationListener(MoviesInfoRestClient moviesInfoRestClient,
+                                         MovieInfoCacheProperties cacheProperties,
+                                         LoadBalancerProperties loadBalancerProperties) {
+        this.moviesInfoRestClient = moviesInfoRestClient;
+        this.cacheProperties = cacheProperties;
+        List<String> endpoints = loadBalancerProperties.getMoviesInfo().getEndpoints();
+        this.streams = endpoints.isEmpty()
+                ? List.of(new ReplicaStream(null))
+                : endpoints.stream().map(ReplicaStream::new).collect(Collectors.toUnmodifiableList());
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!cacheProperties.isEnabled() || !cacheProperties.getInvalidation().isEnabled()) {
+            return;
+        }
+        streams.forEach(stream -> subscriptions.add(stream.subscribe()));
+    }
+
+    @PreDestroy
+    public void stop() {
+        subscriptions.dispose();
+    }
+
+    List<ReplicaStream> getStreams() {
+        return streams;
+    }
+
+    final class ReplicaStream {
+        private final String endpoint;
+        private volatile String lastEventId;
+        private volatile MovieInfoChangeEvent lastEvent;
+        private volatile boolean connectedBefore;
+
+        ReplicaStream(String endpoint) {
+            this.endpoint = endpoint;
+        }
+
+        private Disposable subscribe() {
+            MovieInfoCacheProperties.Invalidation invalidation = cacheProperties.getInvalidation();
+            Duration reconnectDelay = invalidation.getReconnectDelay();
+            return Flux.defer(() -> {
+                        onConnect();
+                        return moviesInfoRestClient.getMovieInfoEvents(endpoint, lastEventId, invalidation.getIdleTimeout());
+                    })
+                    .doOnError(ex -> log.warn("Movie info event stream {} failed: {}", endpoint, ex.getMessage()))
+                    .retryWhen(Retry.backoff(Long.MAX_VALUE, reconnectDelay)
+                            .maxBackoff(invalidation.getMaxReconnectDelay())
+                            .transientErrors(true))
+                    .repeatWhen(completed -> completed.delayElements(reconnectDelay))
+                    .subscribe(this::onEvent);
+        }
+
+        void onConnect() {
+            // Without an event id the stream starts at whatever happens next, so changes made while
+            // disconnected can neither be replayed nor detected as a gap by the first event
+            if (connectedBefore && lastEventId == null) {
+                log.info("Reconnecting to movie info events of {} with nothing to resume from, dropping the whole movie info cache", endpoint);
+                moviesInfoRestClient.evictAllMovieInfo();
+            }
+            connectedBefore = true;
+        }
+
+        void onEvent(ServerSentEvent<MovieInfoChangeEvent> serverSentEvent) {
+            MovieInfoChangeEvent event = serverSentEvent.data();
+            if (event == null) {
+                // heartbeat
+                return;
+            }
+            MovieInfoChangeEvent previous = lastEvent;
+            boolean contiguous = previous == null
+                    || (previous.getEpoch().equals(event.getEpoch()) && event.getSequence() == previous.getSequence() + 1);
+            if (contiguous) {
+                if (event.getMovieInfoIds() != null) {
+                    event.getMovieInfoIds().forEach(moviesInfoRestClient::evictMovieInfo);
+                } else {
+                    moviesInfoRestClient.evictMovieInfo(event.getMovieInfoId());
+                }
+            } else {
+                log.info("Missed movie info events of {} before {}, dropping the whole movie info cache", endpoint, event);
+                moviesInfoRestClient.evictAllMovieInfo();
+            }
+            lastEvent = event;
+            lastEventId = serverSentEvent.id();
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package com.reactivespring.cache;
+
+import com.reactivespring.domain.MovieInfo;
+import lombok.Value;
+
+/**
+ * A movie info together with the ETag movies-info-service sent for it, so that a refresh can be a
+ * conditional request. The ETag is null when the upstream response carried none.
+ */
+@Value
+public class ValidatedMovieInfo {
+    MovieInfo movieInfo;
+    String eTag;
+}
@@ -1,37 +1,136 @@
 package com.reactivespring.client;
 
+import com.reactivespring.config.ResilienceConfig;
+import com.reactivespring.config.RetryProperties;
 import com.reactivespring.domain.Review;
-import com.reactivespring.util.RetryUtil;
+import com.reactivespring.exception.ReviewsClientException;
+import com.reactivespring.exception.ReviewsServerException;
+import com.reactivespring.tracing.SignalTracer;
+import com.reactivespring.util.RequestCoalescer;
+import com.reactivespring.util.RetryPolicy;
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.reactor.bulkhead.operator.BulkheadOperator;
+import io.github.resilience4j.reactor.circuitbreaker.operator.CircuitBreakerOperator;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.ClientResponse;
 import org.springframework.web.reactive.function.client.WebClient;
 import org.springframework.web.util.UriComponentsBuilder;
 import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
 import java.net.URI;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeoutException;
 
 @Component
 public class MovieReviewsRestClient {
+    private static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+    private static final ParameterizedTypeReference<Map<String, List<Review>>> REVIEWS_BY_MOVIE_INFO_ID =
+            new ParameterizedTypeReference<>() {};
+
     private final WebClient webClient;
+    private final RequestCoalescer<String, List<Review>> reviewsCoalescer;
+    private final RetryPolicy retryPolicy;
+    private final CircuitBreaker circuitBreaker;
+    private final Bulkhead bulkhead;
+    private final SignalTracer signalTracer;
 
     @Value("${restClient.reviewsUrl}")
     private String reviewsUrl;
 
-    public MovieReviewsRestClient(WebClient webClient) {
+    public MovieReviewsRestClient(@Qualifier("reviewsWebClient") WebClient webClient, MeterRegistry meterRegistry,
+                                  RetryProperties retryProperties, CircuitBreakerRegistry circuitBreakerRegistry,
+                                  BulkheadRegistry bulkheadRegistry, SignalTracer signalTracer) {
         this.webClient = webClient;
+        this.signalTracer = signalTracer;
+        this.reviewsCoalescer = new RequestCoalescer<>("reviews", meterRegistry);
+        this.retryPolicy = new RetryPolicy("reviews", retryProperties.getReviews(),
+                ex -> ex instanceof ReviewsServerException || ex instanceof TimeoutException, meterRegistry);
+        this.circuitBreaker = circuitBreakerRegistry.circuitBreaker(ResilienceConfig.REVIEWS);
+        this.bulkhead = bulkheadRegistry.bulkhead(ResilienceConfig.REVIEWS);
     }
 
     public Flux<Review> getReviews(String movieInfoId) {
+        return reviewsCoalescer.execute(movieInfoId, () -> fetchReviews(movieInfoId).collectList())
+                .flatMapIterable(reviews -> reviews)
+                .transform(signalTracer.flux("getReviews", movieInfoId));
+    }
+
+    private Flux<Review> fetchReviews(String movieInfoId) {
+        // The reviews listing is keyset paginated; follow the continuation cursor until the last page
+        return fetchReviewsPage(movieInfoId, null)
+                .expand(page -> {
+                    String nextCursor = page.getHeaders().getFirst(NEXT_CURSOR_HEADER);
+                    return nextCursor == null ? Mono.empty() : fetchReviewsPage(movieInfoId, nextCursor);
+                })
+                .flatMapIterable(page -> page.getBody() == null ? List.of() : page.getBody());
+    }
+
+    private Mono<ResponseEntity<List<Review>>> fetchReviewsPage(String movieInfoId, String cursor) {
+        UriComponentsBuilder urlBuilder = UriComponentsBuilder.fromHttpUrl(reviewsUrl)
+                .queryParam("movieInfoId", movieInfoId);
+        if (cursor != null) {
+            urlBuilder.queryParam("cursor", cursor);
+        }
+        URI url = urlBuilder.buildAndExpand().toUri();
+
+        return webClient.get()
+                .uri(url)
+                .retrieve()
+                .onStatus(HttpStatus::is4xxClientError, this::clientError)
+                .onStatus(HttpStatus::is5xxServerError, this::serverError)
+                .toEntityList(Review.class)
+                .transform(retryPolicy::retryMono)
+                .transformDeferred(CircuitBreakerOperator.of(circuitBreaker))
+                .transformDeferred(BulkheadOperator.of(bulkhead))
+                .name(MoviesInfoRestClient.DOWNSTREAM_METRICS)
+                .tag("client", "reviews")
+                .tag("method", "getReviewsPage")
+                .metrics();
+    }
+
+    public Mono<Map<String, List<Review>>> getReviewsByMovieInfoIds(Collection<String> movieInfoIds) {
         URI url = UriComponentsBuilder.fromHttpUrl(reviewsUrl)
-                .queryParam("movieInfoId", movieInfoId)
+                .path("/batch")
+                .queryParam("movieInfoIds", String.join(",", movieInfoIds))
                 .buildAndExpand()
                 .toUri();
 
         return webClient.get()
                 .uri(url)
                 .retrieve()
-                .bodyToFlux(Review.class)
-                .retryWhen(RetryUtil.getRetrySpec())
-                .log();
+                .onStatus(HttpStatus::is4xxClientError, this::clientError)
+                .onStatus(HttpStatus::is5xxServerError, this::serverError)
+                .bodyToMono(REVIEWS_BY_MOVIE_INFO_ID)
+                .transform(retryPolicy::retryMono)
+                .transformDeferred(CircuitBreakerOperator.of(circuitBreaker))
+                .transformDeferred(BulkheadOperator.of(bulkhead))
+                .name(MoviesInfoRestClient.DOWNSTREAM_METRICS)
+                .tag("client", "reviews")
+                .tag("method", "getReviewsByMovieInfoIds")
+                .metrics();
+    }
+
+    private Mono<? extends Throwable> clientError(ClientResponse clientResponse) {
+        return clientResponse.bodyToMono(String.class)
+                .defaultIfEmpty(clientResponse.statusCode().getReasonPhrase())
+                .map(ReviewsClientException::new);
+    }
+
+    private Mono<? extends Throwable> serverError(ClientResponse clientResponse) {
+        return clientResponse.bodyToMono(String.class)
+                .defaultIfEmpty(clientResponse.statusCode().getReasonPhrase())
+                .map(responseMessage -> new ReviewsServerException("Server exception in ReviewsService: " + responseMessage));
     }
 }
@@ -1,36 +1,126 @@
 package com.reactivespring.client;
 
+import com.reactivespring.cache.MovieInfoCache;
+import com.reactivespring.cache.ValidatedMovieInfo;
+import com.reactivespring.config.HedgingProperties;
+import com.reactivespring.config.LoadBalancerProperties;
+import com.reactivespring.config.MovieInfoCacheProperties;
+import com.reactivespring.config.ResilienceConfig;
+import com.reactivespring.config.RetryProperties;
 import com.reactivespring.domain.MovieInfo;
+import com.reactivespring.domain.MovieInfoChangeEvent;
 import com.reactivespring.exception.MoviesInfoClientException;
 import com.reactivespring.exception.MoviesInfoServerException;
-import com.reactivespring.util.RetryUtil;
+import com.reactivespring.loadbalancer.LoadBalancer;
+import com.reactivespring.tracing.SignalTracer;
+import com.reactivespring.util.HedgingPolicy;
+import com.reactivespring.util.RequestCoalescer;
+import com.reactivespring.util.RetryPolicy;
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.reactor.bulkhead.operator.BulkheadOperator;
+import io.github.resilience4j.reactor.circuitbreaker.operator.CircuitBreakerOperator;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.ParameterizedTypeReference;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.stereotype.Component;
 import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.util.UriComponentsBuilder;
 import reactor.core.Exceptions;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.netty.http.client.HttpClientRequest;
 import reactor.util.retry.Retry;
 import reactor.util.retry.RetryBackoffSpec;
 
+import java.net.URI;
 import java.time.Duration;
+import java.util.Collection;
+import java.util.concurrent.TimeoutException;
 
 @Component
 @Log4j2
 public class MoviesInfoRestClient {
+    // Reactor flow metrics (duration by outcome, subscriptions, onNext delay, cancellations) per downstream call,
+    // including retries and hedges; http.client.requests has the per-attempt view by host
+    public static final String DOWNSTREAM_METRICS = "movies.downstream";
+    private static final ParameterizedTypeReference<ServerSentEvent<MovieInfoChangeEvent>> MOVIE_INFO_EVENT =
+            new ParameterizedTypeReference<>() {};
+
     private final WebClient webClient;
+    private final RequestCoalescer<String, ValidatedMovieInfo> movieInfoCoalescer;
+    private final MovieInfoCache movieInfoCache;
+    private final RetryPolicy retryPolicy;
+    private final HedgingPolicy hedgingPolicy;
+    private final CircuitBreaker circuitBreaker;
+    private final Bulkhead bulkhead;
+    private final SignalTracer signalTracer;
     @Value("${restClient.moviesInfoUrl}")
     private String moviesInfoUrl;
 
-    public MoviesInfoRestClient(WebClient webClient) {
+    public MoviesInfoRestClient(@Qualifier("moviesInfoWebClient") WebClient webClient, MeterRegistry meterRegistry,
+                                MovieInfoCacheProperties cacheProperties, RetryProperties retryProperties,
+                                CircuitBreakerRegistry circuitBreakerRegistry, BulkheadRegistry bulkheadRegistry,
+                                HedgingProperties hedgingProperties, LoadBalancerProperties loadBalancerProperties,
+                                SignalTracer signalTracer) {
         this.webClient = webClient;
+        this.signalTracer = signalTracer;
+        this.retryPolicy = new RetryPolicy("movies-info", retryProperties.getMoviesInfo(),
+                ex -> ex instanceof MoviesInfoServerException || ex instanceof TimeoutException, meterRegistry);
+        this.hedgingPolicy = new HedgingPolicy("movies-info", hedgingProperties.getMoviesInfo(),
+                !loadBalancerProperties.getMoviesInfo().getEndpoints().isEmpty(), meterRegistry);
+        this.circuitBreaker = circuitBreakerRegistry.circuitBreaker(ResilienceConfig.MOVIES_INFO);
+        this.bulkhead = bulkheadRegistry.bulkhead(ResilienceConfig.MOVIES_INFO);
+        this.movieInfoCoalescer = new RequestCoalescer<>("movies-info", meterRegistry);
+        this.movieInfoCache = cacheProperties.isEnabled()
+                ? new MovieInfoCache(cacheProperties, this::loadMovieInfo, meterRegistry)
+                : null;
     }
 
     public Mono<MovieInfo> getMovieInfo(String movieInfoId) {
-        String url = moviesInfoUrl.concat("/{id}");
+        Mono<MovieInfo> movieInfo = movieInfoCache != null
+                ? movieInfoCache.get(movieInfoId)
+                : loadMovieInfo(movieInfoId, null).map(ValidatedMovieInfo::getMovieInfo);
+        return movieInfo.transform(signalTracer.mono("getMovieInfo", movieInfoId));
+    }
+
+    private Mono<ValidatedMovieInfo> loadMovieInfo(String movieInfoId, ValidatedMovieInfo cached) {
+        if (cached == null || cached.getETag() == null) {
+            return movieInfoCoalescer.execute(movieInfoId, () -> fetchMovieInfo(movieInfoId, null));
+        }
+        // The cache runs one reload per key at a time, so revalidations need no coalescing
+        return fetchMovieInfo(movieInfoId, cached);
+    }
+
+    private Mono<ValidatedMovieInfo> fetchMovieInfo(String movieInfoId, ValidatedMovieInfo cached) {
+        return hedgingPolicy.hedge(moviesInfoUrl, baseUrl -> requestMovieInfo(baseUrl, movieInfoId, cached))
+//                .retry(3)
+                .transform(retryPolicy::retryMono)
+                .transformDeferred(CircuitBreakerOperator.of(circuitBreaker))
+                .transformDeferred(BulkheadOperator.of(bulkhead))
+                .name(DOWNSTREAM_METRICS)
+                .tag("client", "movies-info")
+                .tag("method", "getMovieInfo")
+                .metrics();
+    }
+
+    // With a cached copy this is a conditional GET: a 304 costs a header exchange and keeps the cached value
+    private Mono<ValidatedMovieInfo> requestMovieInfo(String baseUrl, String movieInfoId, ValidatedMovieInfo cached) {
+        String url = baseUrl.concat("/{id}");
         return webClient.get()
                 .uri(url, movieInfoId)
+                .headers(headers -> {
+                    if (cached != null) {
+                        headers.setIfNoneMatch(cached.getETag());
+                    }
+                })
                 .retrieve()
                 .onStatus(HttpStatus::is4xxClientError, clientResponse -> {
                     log.info("Status code is: {}", clientResponse.statusCode().value());
@@ -47,10 +137,80 @@ public class MoviesInfoRestClient {
                             Mono.error(new MoviesInfoServerException("Server exception in MoviesInfoService: "
                                     + responseMessage)));
                 })
-                .bodyToMono(MovieInfo.class)
-//                .retry(3)
-                .retryWhen(RetryUtil.getRetrySpec())
-                .log();
+                .toEntity(MovieInfo.class)
+                .flatMap(response -> {
+                    if (response.getStatusCode() == HttpStatus.NOT_MODIFIED) {
+                        return Mono.justOrEmpty(cached);
+                    }
+                    return Mono.justOrEmpty(response.getBody())
+                            .map(movieInfo -> new ValidatedMovieInfo(movieInfo, response.getHeaders().getETag()));
+                });
+    }
+
+    public Flux<MovieInfo> getMovieInfos(Collection<String> movieInfoIds) {
+        URI url = UriComponentsBuilder.fromHttpUrl(moviesInfoUrl)
+                .queryParam("ids", String.join(",", movieInfoIds))
+                .buildAndExpand()
+                .toUri();
+
+        return webClient.get()
+                .uri(url)
+                .retrieve()
+                .onStatus(HttpStatus::is4xxClientError, clientResponse -> {
+                    log.info("Status code is: {}", clientResponse.statusCode().value());
+                    return clientResponse.bodyToMono(String.class).flatMap(responseMessage ->
+                            Mono.error(new MoviesInfoClientException(responseMessage, clientResponse.statusCode().value())));
+                })
+                .onStatus(HttpStatus::is5xxServerError, clientResponse -> {
+                    log.info("Status code is: {}", clientResponse.statusCode().value());
+                    return clientResponse.bodyToMono(String.class).flatMap(responseMessage ->
+                            Mono.error(new MoviesInfoServerException("Server exception in MoviesInfoService: "
+                                    + responseMessage)));
+                })
+                .bodyToFlux(MovieInfo.class)
+                .transform(retryPolicy::retryFlux)
+                .transformDeferred(CircuitBreakerOperator.of(circuitBreaker))
+                .transformDeferred(BulkheadOperator.of(bulkhead))
+                .name(DOWNSTREAM_METRICS)
+                .tag("client", "movies-info")
+                .tag("method", "getMovieInfos")
+                .metrics();
+    }
+
+    // With an endpoint the stream is opened on that replica; each replica only publishes the changes made through it
+    public Flux<ServerSentEvent<MovieInfoChangeEvent>> getMovieInfoEvents(String endpoint, String lastEventId,
+                                                                          Duration idleTimeout) {
+        return webClient.get()
+                .uri(moviesInfoUrl.concat("/events"))
+                .attributes(attributes -> {
+                    if (endpoint != null) {
+                        attributes.put(LoadBalancer.ENDPOINT_ATTRIBUTE, endpoint);
+                    }
+                })
+                .accept(MediaType.TEXT_EVENT_STREAM)
+                // long-lived stream: only heartbeats arrive while nothing changes
+                .httpRequest(httpRequest -> {
+                    HttpClientRequest reactorRequest = httpRequest.getNativeRequest();
+                    reactorRequest.responseTimeout(idleTimeout);
+                })
+                .headers(headers -> {
+                    if (lastEventId != null) {
+                        headers.set("Last-Event-ID", lastEventId);
+                    }
+                })
+                .retrieve()
+                .bodyToFlux(MOVIE_INFO_EVENT);
+    }
+
+    public void evictMovieInfo(String movieInfoId) {
+        if (movieInfoCache != null) {
+            movieInfoCache.invalidate(movieInfoId);
+        }
+    }
 
+    public void evictAllMovieInfo() {
+        if (movieInfoCache != null) {
+            movieInfoCache.invalidateAll();
+        }
     }
 }
@@ -0,0 +1,32 @@
+package com.reactivespring.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@Component
+@ConfigurationProperties(prefix = "rest-client.hedging")
+public class HedgingProperties {
+    private Policy moviesInfo = new Policy();
+
+    @Data
+    public static class Policy {
+        private boolean enabled = false;
+        // Base URLs of other replicas the hedged request may go to
+        private List<String> alternateUrls = new ArrayList<>();
+        // The hedge fires once the first attempt is slower than this latency percentile
+        private double percentile = 0.95;
+        private Duration minDelay = Duration.ofMillis(20);
+        // Used until minSamples responses have been observed
+        private Duration initialDelay = Duration.ofMillis(100);
+        private long minSamples = 20;
+        // At most this fraction of requests may send a hedge
+        private double maxHedgeRatio = 0.1;
+        private int budgetCapacity = 10;
+    }
+}
@@ -0,0 +1,38 @@
+package com.reactivespring.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+@Data
+@Component
+@ConfigurationProperties(prefix = "rest-client.http")
+public class HttpClientProperties {
+    private Pool moviesInfo = new Pool();
+    private Pool reviews = new Pool();
+
+    @Data
+    public static class Pool {
+        private int maxConnections = 200;
+        // Requests waiting for a connection beyond this fail fast instead of queueing without bound
+        private int pendingAcquireMaxCount = 400;
+        private Duration pendingAcquireTimeout = Duration.ofSeconds(2);
+        private Duration maxIdleTime = Duration.ofSeconds(30);
+        private Duration maxLifeTime = Duration.ofMinutes(5);
+        private Duration evictInBackground = Duration.ofSeconds(30);
+        private Duration connectTimeout = Duration.ofSeconds(2);
+        // Maximum time between two reads while a response is being received
+        private Duration responseTimeout = Duration.ofSeconds(5);
+        // Sends Accept-Encoding and transparently decompresses gzip/deflate responses
+        private boolean compression = true;
+        private Encoding encoding = Encoding.JSON;
+    }
+
+    public enum Encoding {
+        JSON,
+        // Binary Jackson; JSON stays acceptable so endpoints without a Smile writer still answer
+        SMILE
+    }
+}
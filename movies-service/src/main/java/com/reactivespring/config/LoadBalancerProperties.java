@@ -0,0 +1,31 @@
+package com.reactivespring.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@Component
+@ConfigurationProperties(prefix = "rest-client.load-balancer")
+public class LoadBalancerProperties {
+    private Downstream moviesInfo = new Downstream();
+    private Downstream reviews = new Downstream();
+
+    public enum Picker { ROUND_ROBIN, LEAST_OUTSTANDING, P2C_EWMA }
+
+    @Data
+    public static class Downstream {
+        // scheme://host:port of each replica; when empty, requests go to the host in restClient.*Url
+        private List<String> endpoints = new ArrayList<>();
+        private Picker picker = Picker.P2C_EWMA;
+        // How quickly the latency average forgets old samples
+        private Duration ewmaDecay = Duration.ofSeconds(10);
+        private int ejectionConsecutiveFailures = 5;
+        private Duration ejectionDuration = Duration.ofSeconds(30);
+        private int maxEjectedPercent = 50;
+    }
+}
@@ -0,0 +1,29 @@
+package com.reactivespring.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+@Data
+@Component
+@ConfigurationProperties(prefix = "movies.cache.movie-info")
+public class MovieInfoCacheProperties {
+    private boolean enabled = true;
+    private long maximumSize = 10_000;
+    // Entries older than this are still served, but trigger a background reload
+    private Duration refreshAfterWrite = Duration.ofMinutes(1);
+    private Duration timeToLive = Duration.ofMinutes(10);
+    private Duration notFoundTimeToLive = Duration.ofSeconds(30);
+    private Invalidation invalidation = new Invalidation();
+
+    @Data
+    public static class Invalidation {
+        private boolean enabled = true;
+        private Duration reconnectDelay = Duration.ofSeconds(1);
+        private Duration maxReconnectDelay = Duration.ofSeconds(30);
+        // Must be longer than the publisher's heartbeat interval
+        private Duration idleTimeout = Duration.ofSeconds(60);
+    }
+}
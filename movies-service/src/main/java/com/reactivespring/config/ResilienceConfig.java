@@ -0,0 +1,61 @@
+package com.reactivespring.config;
+
+import com.reactivespring.exception.MoviesInfoClientException;
+import com.reactivespring.exception.ReviewsClientException;
+import io.github.resilience4j.bulkhead.BulkheadConfig;
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerConfig;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.micrometer.tagged.TaggedBulkheadMetrics;
+import io.github.resilience4j.micrometer.tagged.TaggedCircuitBreakerMetrics;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Configuration
+public class ResilienceConfig {
+    public static final String MOVIES_INFO = "movies-info";
+    public static final String REVIEWS = "reviews";
+
+    @Bean
+    public CircuitBreakerRegistry circuitBreakerRegistry(ResilienceProperties properties, MeterRegistry meterRegistry) {
+        CircuitBreakerRegistry registry = CircuitBreakerRegistry.ofDefaults();
+        registry.circuitBreaker(MOVIES_INFO, circuitBreakerConfig(properties.getMoviesInfo()));
+        registry.circuitBreaker(REVIEWS, circuitBreakerConfig(properties.getReviews()));
+        TaggedCircuitBreakerMetrics.ofCircuitBreakerRegistry(registry).bindTo(meterRegistry);
+        return registry;
+    }
+
+    @Bean
+    public BulkheadRegistry bulkheadRegistry(ResilienceProperties properties, MeterRegistry meterRegistry) {
+        BulkheadRegistry registry = BulkheadRegistry.ofDefaults();
+        registry.bulkhead(MOVIES_INFO, bulkheadConfig(properties.getMoviesInfo()));
+        registry.bulkhead(REVIEWS, bulkheadConfig(properties.getReviews()));
+        TaggedBulkheadMetrics.ofBulkheadRegistry(registry).bindTo(meterRegistry);
+        return registry;
+    }
+
+    private CircuitBreakerConfig circuitBreakerConfig(ResilienceProperties.Downstream downstream) {
+        return CircuitBreakerConfig.custom()
+                .slidingWindowType(CircuitBreakerConfig.SlidingWindowType.COUNT_BASED)
+                .slidingWindowSize(downstream.getSlidingWindowSize())
+                .minimumNumberOfCalls(downstream.getMinimumNumberOfCalls())
+                .failureRateThreshold(downstream.getFailureRateThreshold())
+                .slowCallRateThreshold(downstream.getSlowCallRateThreshold())
+                .slowCallDurationThreshold(downstream.getSlowCallDurationThreshold())
+                .waitDurationInOpenState(downstream.getWaitDurationInOpenState())
+                .permittedNumberOfCallsInHalfOpenState(downstream.getPermittedNumberOfCallsInHalfOpenState())
+                // 4xx answers mean the downstream is healthy
+                .ignoreExceptions(MoviesInfoClientException.class, ReviewsClientException.class)
+                .build();
+    }
+
+    private BulkheadConfig bulkheadConfig(ResilienceProperties.Downstream downstream) {
+        return BulkheadConfig.custom()
+                .maxConcurrentCalls(downstream.getMaxConcurrentCalls())
+                .maxWaitDuration(Duration.ZERO)
+                .build();
+    }
+}
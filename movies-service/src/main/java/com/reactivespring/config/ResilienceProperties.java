@@ -0,0 +1,28 @@
+package com.reactivespring.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+@Data
+@Component
+@ConfigurationProperties(prefix = "rest-client.resilience")
+public class ResilienceProperties {
+    private Downstream moviesInfo = new Downstream();
+    private Downstream reviews = new Downstream();
+
+    @Data
+    public static class Downstream {
+        private int slidingWindowSize = 50;
+        private int minimumNumberOfCalls = 20;
+        private float failureRateThreshold = 50;
+        private float slowCallRateThreshold = 80;
+        private Duration slowCallDurationThreshold = Duration.ofSeconds(1);
+        private Duration waitDurationInOpenState = Duration.ofSeconds(10);
+        private int permittedNumberOfCallsInHalfOpenState = 5;
+        // Calls beyond this are rejected immediately rather than queued
+        private int maxConcurrentCalls = 100;
+    }
+}
@@ -0,0 +1,39 @@
+package com.reactivespring.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+@Data
+@Component
+@ConfigurationProperties(prefix = "rest-client.retry")
+public class RetryProperties {
+    private Policy moviesInfo = new Policy();
+    private Policy reviews = new Policy();
+
+    @Data
+    public static class Policy {
+        private int maxRetries = 3;
+        private Duration minBackoff = Duration.ofMillis(100);
+        private Duration maxBackoff = Duration.ofSeconds(2);
+        private Duration perAttemptTimeout = Duration.ofSeconds(3);
+        // Each request earns this many retry tokens; a retry spends one
+        private double budgetRatio = 0.2;
+        private int budgetCapacity = 50;
+
+        /**
+         * Longest a call can take under this policy: every attempt running into its timeout,
+         * separated by the largest backoff each retry can draw.
+         */
+        public Duration worstCaseDuration() {
+            Duration total = perAttemptTimeout.multipliedBy(maxRetries + 1L);
+            for (int retry = 0; retry < maxRetries; retry++) {
+                long cap = Math.min(maxBackoff.toMillis(), minBackoff.toMillis() << Math.min(retry, 30));
+                total = total.plusMillis(cap);
+            }
+            return total;
+        }
+    }
+}
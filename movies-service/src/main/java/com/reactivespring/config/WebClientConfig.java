@@ -1,13 +1,82 @@
 package com.reactivespring.config;
 
+import com.reactivespring.codec.SmileMediaType;
+import com.reactivespring.loadbalancer.LoadBalancer;
+import com.reactivespring.tracing.SpanTracer;
+import com.reactivespring.tracing.TracingExchangeFilterFunction;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.netty.channel.ChannelOption;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
 import org.springframework.web.reactive.function.client.WebClient;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
 
 @Configuration
 public class WebClientConfig {
+    @Bean(destroyMethod = "dispose")
+    public ConnectionProvider moviesInfoConnectionProvider(HttpClientProperties properties) {
+        return connectionProvider("movies-info", properties.getMoviesInfo());
+    }
+
+    @Bean(destroyMethod = "dispose")
+    public ConnectionProvider reviewsConnectionProvider(HttpClientProperties properties) {
+        return connectionProvider("reviews", properties.getReviews());
+    }
+
     @Bean
-    public WebClient webClient(WebClient.Builder builder) {
-        return builder.build();
+    public WebClient moviesInfoWebClient(WebClient.Builder builder, HttpClientProperties properties,
+                                         @Qualifier("moviesInfoConnectionProvider") ConnectionProvider connectionProvider,
+                                         LoadBalancerProperties loadBalancerProperties, MeterRegistry meterRegistry,
+                                         SpanTracer spanTracer) {
+        LoadBalancer loadBalancer = new LoadBalancer("movies-info", loadBalancerProperties.getMoviesInfo(), meterRegistry);
+        return webClient(builder, connectionProvider, properties.getMoviesInfo(), loadBalancer,
+                new TracingExchangeFilterFunction(spanTracer, "movies-info"));
+    }
+
+    @Bean
+    public WebClient reviewsWebClient(WebClient.Builder builder, HttpClientProperties properties,
+                                      @Qualifier("reviewsConnectionProvider") ConnectionProvider connectionProvider,
+                                      LoadBalancerProperties loadBalancerProperties, MeterRegistry meterRegistry,
+                                      SpanTracer spanTracer) {
+        LoadBalancer loadBalancer = new LoadBalancer("reviews", loadBalancerProperties.getReviews(), meterRegistry);
+        return webClient(builder, connectionProvider, properties.getReviews(), loadBalancer,
+                new TracingExchangeFilterFunction(spanTracer, "reviews"));
+    }
+
+    private ConnectionProvider connectionProvider(String name, HttpClientProperties.Pool pool) {
+        return ConnectionProvider.builder(name)
+                .maxConnections(pool.getMaxConnections())
+                .pendingAcquireMaxCount(pool.getPendingAcquireMaxCount())
+                .pendingAcquireTimeout(pool.getPendingAcquireTimeout())
+                .maxIdleTime(pool.getMaxIdleTime())
+                .maxLifeTime(pool.getMaxLifeTime())
+                .evictInBackground(pool.getEvictInBackground())
+                // active/idle/pending gauges as reactor.netty.connection.provider.*
+                .metrics(true)
+                .build();
+    }
+
+    private WebClient webClient(WebClient.Builder builder, ConnectionProvider connectionProvider,
+                                HttpClientProperties.Pool pool, LoadBalancer loadBalancer,
+                                TracingExchangeFilterFunction tracing) {
+        HttpClient httpClient = HttpClient.create(connectionProvider)
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, (int) pool.getConnectTimeout().toMillis())
+                .responseTimeout(pool.getResponseTimeout())
+                .compress(pool.isCompression());
+        if (pool.getEncoding() == HttpClientProperties.Encoding.SMILE) {
+            // Requests that set their own Accept, such as the SSE invalidation stream, keep it
+            builder.defaultHeader(HttpHeaders.ACCEPT, SmileMediaType.APPLICATION_SMILE_VALUE, MediaType.APPLICATION_JSON_VALUE + ";q=0.9");
+        }
+        return builder
+                .clientConnector(new ReactorClientHttpConnector(httpClient))
+                .filter(loadBalancer.filter())
+                // After the load balancer, so it sees the routed request of each attempt
+                .filter(tracing)
+                .build();
     }
 }
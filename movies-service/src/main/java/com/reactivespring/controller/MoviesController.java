@@ -3,36 +3,165 @@ package com.reactivespring.controller;
 import com.reactivespring.client.MovieReviewsRestClient;
 import com.reactivespring.client.MoviesInfoRestClient;
 import com.reactivespring.domain.Movie;
+import com.reactivespring.domain.MovieInfo;
 import com.reactivespring.domain.Review;
+import com.reactivespring.codec.SmileMediaType;
+import com.reactivespring.config.RetryProperties;
+import com.reactivespring.http.VersionETag;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Collectors;
 
 @RestController
+@Log4j2
 @RequestMapping("/v1/movies")
 public class MoviesController {
 
     private final MoviesInfoRestClient moviesInfoRestClient;
     private final MovieReviewsRestClient movieReviewsRestClient;
 
+    @Value("${movies.aggregation.parallel:true}")
+    private boolean parallelAggregation;
+
+    @Value("${movies.http-cache.max-age:30s}")
+    private Duration movieMaxAge;
+
+    @Value("${movies.batch.max-size:200}")
+    private int maxBatchSize;
+
+    @Value("${movies.aggregation.reviews-timeout:1s}")
+    private Duration reviewsTimeout;
+
     public MoviesController(MoviesInfoRestClient moviesInfoRestClient, MovieReviewsRestClient movieReviewsRestClient) {
         this.moviesInfoRestClient = moviesInfoRestClient;
         this.movieReviewsRestClient = movieReviewsRestClient;
     }
 
-    @GetMapping("/{id}")
-    public Mono<Movie> getMovieById(@PathVariable("id") String movieId) {
+    // The aggregation deadline is the one that controls reviews; a retry policy that outlasts it would
+    // have its later attempts cancelled and the movie degraded while they are still allowed to run
+    @Autowired
+    void checkReviewsDeadline(RetryProperties retryProperties) {
+        Duration worstCase = retryProperties.getReviews().worstCaseDuration();
+        if (worstCase.compareTo(reviewsTimeout) > 0) {
+            throw new IllegalStateException("rest-client.retry.reviews can take up to " + worstCase
+                    + ", longer than movies.aggregation.reviews-timeout " + reviewsTimeout);
+        }
+    }
+
+    @GetMapping(value = "/{id}", produces = {MediaType.APPLICATION_JSON_VALUE, SmileMediaType.APPLICATION_SMILE_VALUE})
+    public Mono<ResponseEntity<Movie>> getMovieById(@PathVariable("id") String movieId, @RequestHeader HttpHeaders headers) {
+        MediaType contentType = SmileMediaType.negotiate(headers.getAccept());
+        Mono<Movie> movie = parallelAggregation ? getMovieByIdParallel(movieId) : getMovieByIdSequential(movieId);
+        return movie.map(aggregate -> toCacheableResponse(aggregate, contentType));
+    }
+
+    private Mono<Movie> getMovieByIdParallel(String movieId) {
+        // Both downstream calls are subscribed together; zip cancels the other one as soon as either fails
+        return Mono.zip(moviesInfoRestClient.getMovieInfo(movieId), reviewsOrDegraded(movieId))
+                .map(tuple -> toMovie(tuple.getT1(), tuple.getT2()))
+                .switchIfEmpty(Mono.just(new Movie()));
+    }
+
+    // The aggregate has no version of its own, so its ETag is derived from the versions it was built from. A matching
+    // If-None-Match is then answered with 304 before the codecs encode the body.
+    private ResponseEntity<Movie> toCacheableResponse(Movie movie, MediaType contentType) {
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok().varyBy(HttpHeaders.ACCEPT);
+        if (movie.isDegraded()) {
+            // Missing reviews must not be cached by clients or the CDN
+            return response.cacheControl(CacheControl.noStore()).body(movie);
+        }
+        return response.eTag(eTag(movie, contentType))
+                .cacheControl(CacheControl.maxAge(movieMaxAge).cachePublic())
+                .body(movie);
+    }
+
+    private String eTag(Movie movie, MediaType contentType) {
+        List<String> parts = new ArrayList<>();
+        // JSON and Smile bodies differ, so each representation gets its own strong ETag
+        parts.add(contentType.toString());
+        MovieInfo movieInfo = movie.getMovieInfo();
+        if (movieInfo != null) {
+            parts.add(movieInfo.getMovieInfoId() + ":" + movieInfo.getVersion());
+        }
+        if (movie.getReviewList() != null) {
+            movie.getReviewList().forEach(review -> parts.add(review.getReviewId() + ":" + review.getVersion()));
+        }
+        return VersionETag.ofParts(parts);
+    }
+
+    @GetMapping(params = "ids")
+    public Flux<Movie> getMoviesByIds(@RequestParam("ids") List<String> movieIds) {
+        List<String> ids = movieIds.stream()
+                .map(String::trim)
+                .filter(id -> !id.isEmpty())
+                .distinct()
+                .collect(Collectors.toList());
+        if (ids.isEmpty() || ids.size() > maxBatchSize) {
+            return Flux.error(new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "ids must contain between 1 and " + maxBatchSize + " movie ids"));
+        }
+        // Two downstream calls for the whole page, regardless of how many movies it holds
+        Mono<Map<String, MovieInfo>> movieInfos = moviesInfoRestClient.getMovieInfos(ids)
+                .collectMap(MovieInfo::getMovieInfoId);
+        Mono<Optional<Map<String, List<Review>>>> reviews = degradeOnFailure(
+                movieReviewsRestClient.getReviewsByMovieInfoIds(ids), ids);
+
+        return Mono.zip(movieInfos, reviews)
+                .flatMapMany(tuple -> Flux.fromIterable(ids)
+                        .filter(tuple.getT1()::containsKey)
+                        .map(id -> toMovie(tuple.getT1().get(id),
+                                tuple.getT2().map(reviewsById -> reviewsById.getOrDefault(id, List.of())))));
+    }
+
+    private Mono<Movie> getMovieByIdSequential(String movieId) {
         return moviesInfoRestClient.getMovieInfo(movieId)
                 .flatMap(movieInfo -> {
-                    Mono<List<Review>> reviewsList = movieReviewsRestClient.getReviews(movieId)
-                            .collectList();
+                    Mono<Optional<List<Review>>> reviewsList = reviewsOrDegraded(movieId);
 
-                    return reviewsList.map(reviews -> new Movie(movieInfo, reviews));
+                    return reviewsList.map(reviews -> toMovie(movieInfo, reviews));
                 })
                 .switchIfEmpty(Mono.just(new Movie()));
     }
+
+    private Mono<Optional<List<Review>>> reviewsOrDegraded(String movieId) {
+        return degradeOnFailure(movieReviewsRestClient.getReviews(movieId).collectList(), movieId);
+    }
+
+    // Reviews are optional for the aggregate: a slow or failing reviews service yields an empty, degraded result
+    private <T> Mono<Optional<T>> degradeOnFailure(Mono<T> reviews, Object movieIds) {
+        return reviews
+                .timeout(reviewsTimeout)
+                .map(Optional::of)
+                .onErrorResume(ex -> {
+                    log.warn("Serving movies {} without reviews : {}", movieIds, ex.toString());
+                    return Mono.just(Optional.empty());
+                });
+    }
+
+    private Movie toMovie(MovieInfo movieInfo, Optional<List<Review>> reviews) {
+        return reviews
+                .map(reviewList -> new Movie(movieInfo, reviewList))
+                .orElseGet(() -> new Movie(movieInfo, List.of(), true));
+    }
 }
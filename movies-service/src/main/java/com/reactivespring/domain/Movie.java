@@ -16,4 +16,10 @@ public class Movie {
 
     private MovieInfo movieInfo;
     private List<Review> reviewList;
+    // true when reviews could not be fetched and reviewList is empty for that reason
+    private boolean degraded;
+
+    public Movie(MovieInfo movieInfo, List<Review> reviewList) {
+        this(movieInfo, reviewList, false);
+    }
 }
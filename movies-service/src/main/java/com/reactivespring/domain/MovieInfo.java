@@ -27,4 +27,5 @@ public class MovieInfo {
     @NotNull
     private List<@NotBlank(message = "movieInfo.cast must be present") String> cast;
     private LocalDate release_date;
+    private Long version;
 }
@@ -0,0 +1,21 @@
+package com.reactivespring.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class MovieInfoChangeEvent {
+    public enum Type { CREATED, UPDATED, DELETED, IMPORTED }
+
+    private String epoch;
+    private long sequence;
+    private Type type;
+    private String movieInfoId;
+    // Set instead of movieInfoId on IMPORTED events
+    private List<String> movieInfoIds;
+}
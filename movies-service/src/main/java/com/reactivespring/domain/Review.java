@@ -14,4 +14,5 @@ public class Review {
     private String comment;
     //@Min(value = 0L, message = "rating.negative : rating is negative and please pass a non-negative value")
     private Double rating;
+    private Long version;
 }
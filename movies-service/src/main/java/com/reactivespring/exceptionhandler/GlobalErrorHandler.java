@@ -0,0 +1,41 @@
+package com.reactivespring.exceptionhandler;
+
+import com.reactivespring.exception.MoviesInfoClientException;
+import com.reactivespring.exception.MoviesInfoServerException;
+import com.reactivespring.exception.ReviewsClientException;
+import com.reactivespring.exception.ReviewsServerException;
+import io.github.resilience4j.bulkhead.BulkheadFullException;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+
+@ControllerAdvice
+@Log4j2
+public class GlobalErrorHandler {
+    @ExceptionHandler(MoviesInfoClientException.class)
+    public ResponseEntity<String> handleMoviesInfoClientException(MoviesInfoClientException ex) {
+        log.error("Exception caught in handleMoviesInfoClientException : {}", ex.getMessage(), ex);
+        return ResponseEntity.status(ex.getStatusCode()).body(ex.getMessage());
+    }
+
+    @ExceptionHandler(ReviewsClientException.class)
+    public ResponseEntity<String> handleReviewsClientException(ReviewsClientException ex) {
+        log.error("Exception caught in handleReviewsClientException : {}", ex.getMessage(), ex);
+        return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(ex.getMessage());
+    }
+
+    @ExceptionHandler({MoviesInfoServerException.class, ReviewsServerException.class})
+    public ResponseEntity<String> handleServerException(RuntimeException ex) {
+        log.error("Exception caught in handleServerException : {}", ex.getMessage(), ex);
+        return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(ex.getMessage());
+    }
+
+    @ExceptionHandler({CallNotPermittedException.class, BulkheadFullException.class})
+    public ResponseEntity<String> handleDownstreamUnavailable(RuntimeException ex) {
+        log.warn("Downstream call rejected : {}", ex.getMessage());
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(ex.getMessage());
+    }
+}
@@ -0,0 +1,68 @@
+package com.reactivespring.loadbalancer;
+
+import java.net.URI;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * One replica of a downstream service together with what has been observed about it:
+ * requests in flight, an exponentially weighted moving average of latency, and ejection state.
+ */
+public class Endpoint {
+    private final URI uri;
+    private final long decayNanos;
+    private final AtomicInteger outstanding = new AtomicInteger();
+    private double ewmaNanos;
+    private long lastUpdate;
+    private int consecutiveFailures;
+    private volatile long ejectedUntil;
+
+    public Endpoint(URI uri, long decayNanos) {
+        this.uri = uri;
+        this.decayNanos = decayNanos;
+    }
+
+    public URI getUri() {
+        return uri;
+    }
+
+    public int getOutstanding() {
+        return outstanding.get();
+    }
+
+    public synchronized double getEwmaNanos() {
+        return ewmaNanos;
+    }
+
+    public boolean isEjected(long now) {
+        return now < ejectedUntil;
+    }
+
+    void start() {
+        outstanding.incrementAndGet();
+    }
+
+    void finish() {
+        outstanding.decrementAndGet();
+    }
+
+    /**
+     * Records one response and returns the number of consecutive failures seen so far.
+     */
+    synchronized int record(long latencyNanos, boolean success, long now) {
+        double weight = lastUpdate == 0 ? 0 : Math.exp(-(double) (now - lastUpdate) / decayNanos);
+        ewmaNanos = ewmaNanos * weight + latencyNanos * (1 - weight);
+        lastUpdate = now;
+        consecutiveFailures = success ? 0 : consecutiveFailures + 1;
+        return consecutiveFailures;
+    }
+
+    synchronized void eject(long until) {
+        ejectedUntil = until;
+        consecutiveFailures = 0;
+    }
+
+    @Override
+    public String toString() {
+        return uri.toString();
+    }
+}
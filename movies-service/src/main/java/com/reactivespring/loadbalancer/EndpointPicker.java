@@ -0,0 +1,10 @@
+package com.reactivespring.loadbalancer;
+
+import java.util.List;
+
+public interface EndpointPicker {
+    /**
+     * Picks one of the given endpoints, which is never empty.
+     */
+    Endpoint pick(List<Endpoint> endpoints);
+}
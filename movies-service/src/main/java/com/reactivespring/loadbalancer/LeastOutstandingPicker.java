@@ -0,0 +1,13 @@
+package com.reactivespring.loadbalancer;
+
+import java.util.Comparator;
+import java.util.List;
+
+public class LeastOutstandingPicker implements EndpointPicker {
+    @Override
+    public Endpoint pick(List<Endpoint> endpoints) {
+        return endpoints.stream()
+                .min(Comparator.comparingInt(Endpoint::getOutstanding))
+                .orElseThrow();
+    }
+}
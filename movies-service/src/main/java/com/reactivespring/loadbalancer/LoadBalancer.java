@@ -0,0 +1,142 @@
+package com.reactivespring.loadbalancer;
+
+import com.reactivespring.config.LoadBalancerProperties;
+import com.reactivespring.util.HedgingPolicy;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
+import org.springframework.web.util.UriComponentsBuilder;
+import reactor.core.publisher.Mono;
+
+import java.net.URI;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Spreads the requests of one downstream over its replicas. Requests keep their path and query,
+ * only scheme, host and port are replaced by the endpoint the {@link EndpointPicker} chooses.
+ * Endpoints failing {@code ejectionConsecutiveFailures} times in a row are ejected for
+ * {@code ejectionDuration}, as long as no more than {@code maxEjectedPercent} of them are out.
+ * Hedged calls share the endpoints they already went to through {@link HedgingPolicy#ATTEMPTED_ENDPOINTS},
+ * and a hedge is only sent to one of those when no other replica is available. Requests carrying
+ * {@link #ENDPOINT_ATTRIBUTE} go to that replica and are left out of the balancing statistics.
+ */
+@Log4j2
+public class LoadBalancer {
+    public static final String ENDPOINT_ATTRIBUTE = LoadBalancer.class.getName() + ".endpoint";
+
+    private final String client;
+    private final LoadBalancerProperties.Downstream properties;
+    private final List<Endpoint> endpoints;
+    private final EndpointPicker picker;
+    private final Counter ejectionCounter;
+
+    public LoadBalancer(String client, LoadBalancerProperties.Downstream properties, MeterRegistry meterRegistry) {
+        this.client = client;
+        this.properties = properties;
+        this.endpoints = properties.getEndpoints().stream()
+                .map(url -> new Endpoint(URI.create(url), properties.getEwmaDecay().toNanos()))
+                .collect(Collectors.toUnmodifiableList());
+        this.picker = picker(properties.getPicker());
+        this.ejectionCounter = Counter.builder("movies.client.lb.ejections")
+                .tag("client", client)
+                .register(meterRegistry);
+        for (Endpoint endpoint : endpoints) {
+            Gauge.builder("movies.client.lb.outstanding", endpoint, Endpoint::getOutstanding)
+                    .tag("client", client)
+                    .tag("endpoint", endpoint.toString())
+                    .register(meterRegistry);
+        }
+    }
+
+    public ExchangeFilterFunction filter() {
+        return (request, next) -> {
+            Optional<Object> pinned = request.attribute(ENDPOINT_ATTRIBUTE);
+            if (pinned.isPresent()) {
+                // Long-lived streams would otherwise count as outstanding on their replica for as long as they are open
+                return next.exchange(ClientRequest.from(request)
+                        .url(route(request.url(), URI.create(pinned.get().toString())))
+                        .build());
+            }
+            if (endpoints.isEmpty()) {
+                return next.exchange(request);
+            }
+            return Mono.deferContextual(contextView -> {
+                Set<URI> attempted = contextView.getOrDefault(HedgingPolicy.ATTEMPTED_ENDPOINTS, null);
+                Endpoint endpoint = choose(attempted != null ? attempted : Set.of());
+                if (attempted != null) {
+                    attempted.add(endpoint.getUri());
+                }
+                ClientRequest routed = ClientRequest.from(request)
+                        .url(route(request.url(), endpoint.getUri()))
+                        .build();
+                long start = System.nanoTime();
+                endpoint.start();
+                return next.exchange(routed)
+                        .doOnSuccess(response -> record(endpoint, start,
+                                response != null && !response.statusCode().is5xxServerError()))
+                        .doOnError(ex -> record(endpoint, start, false))
+                        .doFinally(signalType -> endpoint.finish());
+            });
+        };
+    }
+
+    Endpoint choose() {
+        return choose(Set.of());
+    }
+
+    Endpoint choose(Set<URI> attempted) {
+        long now = System.nanoTime();
+        List<Endpoint> available = endpoints.stream()
+                .filter(endpoint -> !endpoint.isEjected(now))
+                .collect(Collectors.toList());
+        // Every replica ejected: better to try them all than to fail outright
+        if (available.isEmpty()) {
+            available = endpoints;
+        }
+        List<Endpoint> untried = available.stream()
+                .filter(endpoint -> !attempted.contains(endpoint.getUri()))
+                .collect(Collectors.toList());
+        return picker.pick(untried.isEmpty() ? available : untried);
+    }
+
+    private void record(Endpoint endpoint, long start, boolean success) {
+        long now = System.nanoTime();
+        int consecutiveFailures = endpoint.record(now - start, success, now);
+        if (consecutiveFailures >= properties.getEjectionConsecutiveFailures() && canEject(now)) {
+            log.warn("Ejecting {} endpoint {} after {} consecutive failures", client, endpoint, consecutiveFailures);
+            endpoint.eject(now + properties.getEjectionDuration().toNanos());
+            ejectionCounter.increment();
+        }
+    }
+
+    private boolean canEject(long now) {
+        long ejected = endpoints.stream().filter(endpoint -> endpoint.isEjected(now)).count();
+        return (ejected + 1) * 100 <= (long) endpoints.size() * properties.getMaxEjectedPercent();
+    }
+
+    private static URI route(URI url, URI endpoint) {
+        return UriComponentsBuilder.fromUri(url)
+                .scheme(endpoint.getScheme())
+                .host(endpoint.getHost())
+                .port(endpoint.getPort())
+                .build(true)
+                .toUri();
+    }
+
+    private static EndpointPicker picker(LoadBalancerProperties.Picker picker) {
+        switch (picker) {
+            case ROUND_ROBIN:
+                return new RoundRobinPicker();
+            case LEAST_OUTSTANDING:
+                return new LeastOutstandingPicker();
+            default:
+                return new PowerOfTwoChoicesPicker();
+        }
+    }
+}
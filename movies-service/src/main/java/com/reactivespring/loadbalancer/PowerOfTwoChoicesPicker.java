@@ -0,0 +1,31 @@
+package com.reactivespring.loadbalancer;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Samples two endpoints at random and keeps the one with the lower expected cost, which is the
+ * latency average scaled by the requests already queued on it. Unmeasured endpoints cost nothing,
+ * so new replicas get traffic straight away.
+ */
+public class PowerOfTwoChoicesPicker implements EndpointPicker {
+    @Override
+    public Endpoint pick(List<Endpoint> endpoints) {
+        if (endpoints.size() == 1) {
+            return endpoints.get(0);
+        }
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int first = random.nextInt(endpoints.size());
+        int second = random.nextInt(endpoints.size() - 1);
+        if (second >= first) {
+            second++;
+        }
+        Endpoint a = endpoints.get(first);
+        Endpoint b = endpoints.get(second);
+        return cost(a) <= cost(b) ? a : b;
+    }
+
+    private double cost(Endpoint endpoint) {
+        return endpoint.getEwmaNanos() * (endpoint.getOutstanding() + 1);
+    }
+}
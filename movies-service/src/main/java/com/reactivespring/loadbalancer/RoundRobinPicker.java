@@ -0,0 +1,13 @@
+package com.reactivespring.loadbalancer;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class RoundRobinPicker implements EndpointPicker {
+    private final AtomicInteger next = new AtomicInteger();
+
+    @Override
+    public Endpoint pick(List<Endpoint> endpoints) {
+        return endpoints.get(Math.floorMod(next.getAndIncrement(), endpoints.size()));
+    }
+}
@@ -0,0 +1,132 @@
+package com.reactivespring.util;
+
+import com.reactivespring.config.HedgingProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.HistogramSnapshot;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+import reactor.util.context.Context;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * Hedged requests for idempotent calls: when the first attempt has not answered within the
+ * configured latency percentile, a second one is sent to another replica. The first value wins
+ * and the other call is cancelled. Hedges are limited by a {@link RetryBudget}, so they can never
+ * add more than {@code maxHedgeRatio} of extra load.
+ * <p>
+ * Behind a load balancer the hedge goes to the primary URL as well: both attempts share a set of
+ * endpoints under {@link #ATTEMPTED_ENDPOINTS} in the Reactor context, so the balancer keeps the hedge
+ * off the replica the primary went to. Without one, hedges rotate over the configured alternate URLs.
+ */
+public class HedgingPolicy {
+    public static final String ATTEMPTED_ENDPOINTS = HedgingPolicy.class.getName() + ".attemptedEndpoints";
+    private static final long DELAY_REFRESH_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final HedgingProperties.Policy policy;
+    private final List<String> alternateUrls;
+    private final boolean loadBalanced;
+    private final AtomicInteger nextAlternate = new AtomicInteger();
+    private final RetryBudget budget;
+    private final Timer latencyTimer;
+    private final Counter hedgedCounter;
+    private final Counter hedgeWonCounter;
+    private final Counter budgetDeniedCounter;
+    private volatile Duration hedgeDelay;
+    private volatile long hedgeDelayComputedAt;
+
+    public HedgingPolicy(String client, HedgingProperties.Policy policy, boolean loadBalanced, MeterRegistry meterRegistry) {
+        this.policy = policy;
+        this.alternateUrls = List.copyOf(policy.getAlternateUrls());
+        this.loadBalanced = loadBalanced;
+        this.budget = new RetryBudget(policy.getMaxHedgeRatio(), policy.getBudgetCapacity());
+        this.hedgeDelay = policy.getInitialDelay();
+        this.hedgeDelayComputedAt = System.nanoTime();
+        this.latencyTimer = Timer.builder("movies.client.hedging.latency")
+                .description("Latency of first attempts, until they answered or lost to a hedge, used to derive the hedge delay")
+                .tag("client", client)
+                .publishPercentiles(policy.getPercentile())
+                .distributionStatisticExpiry(Duration.ofMinutes(1))
+                .register(meterRegistry);
+        this.hedgedCounter = hedgingCounter(meterRegistry, client, "hedged");
+        this.hedgeWonCounter = hedgingCounter(meterRegistry, client, "hedge_won");
+        this.budgetDeniedCounter = hedgingCounter(meterRegistry, client, "budget_denied");
+    }
+
+    public boolean isEnabled() {
+        return policy.isEnabled() && (loadBalanced || !alternateUrls.isEmpty());
+    }
+
+    public <T> Mono<T> hedge(String primaryUrl, Function<String, Mono<T>> call) {
+        if (!isEnabled()) {
+            return call.apply(primaryUrl);
+        }
+        return Mono.defer(() -> {
+            budget.recordRequest();
+            long start = System.nanoTime();
+            // A primary cancelled because the hedge won took at least as long as it ran; leaving it out would
+            // drop exactly the slow samples and pull the hedge delay down over time
+            Mono<T> primary = call.apply(primaryUrl)
+                    .doFinally(signalType -> {
+                        if (signalType != SignalType.ON_ERROR) {
+                            latencyTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                        }
+                    });
+            // A hedge that fails or finds nothing never wins: the primary's outcome stands
+            Mono<T> hedge = Mono.delay(currentHedgeDelay())
+                    .flatMap(tick -> {
+                        if (!budget.tryAcquire()) {
+                            budgetDeniedCounter.increment();
+                            return Mono.<T>never();
+                        }
+                        hedgedCounter.increment();
+                        return call.apply(hedgeUrl(primaryUrl))
+                                .doOnNext(value -> hedgeWonCounter.increment())
+                                .onErrorResume(ex -> Mono.never())
+                                .switchIfEmpty(Mono.never());
+                    });
+            Set<URI> attemptedEndpoints = ConcurrentHashMap.newKeySet();
+            return Mono.firstWithSignal(primary, hedge)
+                    .contextWrite(Context.of(ATTEMPTED_ENDPOINTS, attemptedEndpoints));
+        });
+    }
+
+    private String hedgeUrl(String primaryUrl) {
+        if (loadBalanced) {
+            return primaryUrl;
+        }
+        return alternateUrls.get(Math.floorMod(nextAlternate.getAndIncrement(), alternateUrls.size()));
+    }
+
+    private Duration currentHedgeDelay() {
+        long now = System.nanoTime();
+        if (now - hedgeDelayComputedAt > DELAY_REFRESH_NANOS) {
+            hedgeDelayComputedAt = now;
+            HistogramSnapshot snapshot = latencyTimer.takeSnapshot();
+            if (snapshot.count() >= policy.getMinSamples()) {
+                for (ValueAtPercentile valueAtPercentile : snapshot.percentileValues()) {
+                    Duration observed = Duration.ofNanos((long) valueAtPercentile.value(TimeUnit.NANOSECONDS));
+                    hedgeDelay = observed.compareTo(policy.getMinDelay()) > 0 ? observed : policy.getMinDelay();
+                }
+            }
+        }
+        return hedgeDelay;
+    }
+
+    private static Counter hedgingCounter(MeterRegistry meterRegistry, String client, String outcome) {
+        return Counter.builder("movies.client.hedging")
+                .tag("client", client)
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+}
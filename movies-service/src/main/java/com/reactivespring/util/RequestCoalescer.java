@@ -0,0 +1,66 @@
+package com.reactivespring.util;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import reactor.core.publisher.Mono;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+/**
+ * Single-flight deduplication of downstream calls: concurrent callers asking for the same key
+ * share one upstream subscription while it is in flight. The entry is dropped as soon as the
+ * call completes, errors or is cancelled by its last subscriber, so results are never served
+ * after the fact and cancellation still reaches the downstream call.
+ */
+public class RequestCoalescer<K, V> {
+    private final Map<K, Mono<V>> inFlight = new ConcurrentHashMap<>();
+    private final Counter leaderCounter;
+    private final Counter coalescedCounter;
+
+    public RequestCoalescer(String name, MeterRegistry meterRegistry) {
+        this.leaderCounter = Counter.builder("movies.client.coalescing")
+                .description("Calls that went to the downstream service")
+                .tag("client", name)
+                .tag("result", "leader")
+                .register(meterRegistry);
+        this.coalescedCounter = Counter.builder("movies.client.coalescing")
+                .description("Calls that joined an in-flight request for the same key")
+                .tag("client", name)
+                .tag("result", "coalesced")
+                .register(meterRegistry);
+        meterRegistry.gaugeMapSize("movies.client.coalescing.inflight",
+                Tags.of("client", name), inFlight);
+    }
+
+    public Mono<V> execute(K key, Supplier<Mono<V>> call) {
+        return Mono.defer(() -> {
+            boolean[] leader = {false};
+            Mono<V> flight = inFlight.computeIfAbsent(key, k -> {
+                leader[0] = true;
+                return newFlight(k, call);
+            });
+            if (leader[0]) {
+                leaderCounter.increment();
+            } else {
+                coalescedCounter.increment();
+            }
+            return flight;
+        });
+    }
+
+    private Mono<V> newFlight(K key, Supplier<Mono<V>> call) {
+        AtomicReference<Mono<V>> self = new AtomicReference<>();
+        Mono<V> flight = Mono.defer(call)
+                .doFinally(signalType -> inFlight.remove(key, self.get()))
+                .flux()
+                .publish()
+                .refCount()
+                .singleOrEmpty();
+        self.set(flight);
+        return flight;
+    }
+}
@@ -0,0 +1,33 @@
+package com.reactivespring.util;
+
+/**
+ * Token bucket that caps retries (or hedges) at a fraction of live traffic: every request deposits
+ * {@code ratio} tokens (up to {@code capacity}) and every retry withdraws one.
+ */
+public class RetryBudget {
+    private final double ratio;
+    private final double capacity;
+    private double tokens;
+
+    public RetryBudget(double ratio, int capacity) {
+        this.ratio = ratio;
+        this.capacity = capacity;
+        this.tokens = capacity;
+    }
+
+    public synchronized void recordRequest() {
+        tokens = Math.min(capacity, tokens + ratio);
+    }
+
+    public synchronized boolean tryAcquire() {
+        if (tokens < 1) {
+            return false;
+        }
+        tokens -= 1;
+        return true;
+    }
+
+    public synchronized double getTokens() {
+        return tokens;
+    }
+}
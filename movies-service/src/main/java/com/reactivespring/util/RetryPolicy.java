@@ -0,0 +1,89 @@
+package com.reactivespring.util;
+
+import com.reactivespring.config.RetryProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.reactivestreams.Publisher;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Predicate;
+
+/**
+ * Retries with exponential backoff and full jitter (a random delay between zero and the
+ * exponential cap), so callers that failed together do not retry together. Each attempt gets
+ * its own timeout, and retries are only granted while the downstream's {@link RetryBudget} has tokens.
+ * When retries stop, the last failure is propagated as-is.
+ */
+public class RetryPolicy extends Retry {
+    private final RetryProperties.Policy policy;
+    private final Predicate<Throwable> retryable;
+    private final RetryBudget budget;
+    private final Counter retriedCounter;
+    private final Counter exhaustedCounter;
+    private final Counter budgetExhaustedCounter;
+
+    public RetryPolicy(String client, RetryProperties.Policy policy, Predicate<Throwable> retryable,
+                       MeterRegistry meterRegistry) {
+        this.policy = policy;
+        this.retryable = retryable;
+        this.budget = new RetryBudget(policy.getBudgetRatio(), policy.getBudgetCapacity());
+        this.retriedCounter = retryCounter(meterRegistry, client, "retried");
+        this.exhaustedCounter = retryCounter(meterRegistry, client, "exhausted");
+        this.budgetExhaustedCounter = retryCounter(meterRegistry, client, "budget_exhausted");
+        Gauge.builder("movies.client.retry.budget", budget, RetryBudget::getTokens)
+                .description("Retry tokens currently available")
+                .tag("client", client)
+                .register(meterRegistry);
+    }
+
+    public <T> Mono<T> retryMono(Mono<T> attempt) {
+        return Mono.defer(() -> {
+            budget.recordRequest();
+            return attempt.timeout(policy.getPerAttemptTimeout()).retryWhen(this);
+        });
+    }
+
+    public <T> Flux<T> retryFlux(Flux<T> attempt) {
+        return Flux.defer(() -> {
+            budget.recordRequest();
+            return attempt.timeout(policy.getPerAttemptTimeout()).retryWhen(this);
+        });
+    }
+
+    @Override
+    public Publisher<?> generateCompanion(Flux<RetrySignal> retrySignals) {
+        return retrySignals.concatMap(retrySignal -> {
+            Throwable failure = retrySignal.failure();
+            if (!retryable.test(failure)) {
+                return Mono.error(failure);
+            }
+            if (retrySignal.totalRetries() >= policy.getMaxRetries()) {
+                exhaustedCounter.increment();
+                return Mono.error(failure);
+            }
+            if (!budget.tryAcquire()) {
+                budgetExhaustedCounter.increment();
+                return Mono.error(failure);
+            }
+            retriedCounter.increment();
+            return Mono.delay(backoff(retrySignal.totalRetries()));
+        });
+    }
+
+    Duration backoff(long retry) {
+        long cap = Math.min(policy.getMaxBackoff().toMillis(), policy.getMinBackoff().toMillis() << Math.min(retry, 30));
+        return Duration.ofMillis(ThreadLocalRandom.current().nextLong(cap + 1));
+    }
+
+    private static Counter retryCounter(MeterRegistry meterRegistry, String client, String outcome) {
+        return Counter.builder("movies.client.retries")
+                .tag("client", client)
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+}
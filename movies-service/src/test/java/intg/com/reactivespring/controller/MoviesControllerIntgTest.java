@@ -2,33 +2,47 @@ package com.reactivespring.controller;
 
 import com.github.tomakehurst.wiremock.client.WireMock;
 import com.reactivespring.domain.Movie;
+import com.reactivespring.tracing.TraceContext;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.metrics.AutoConfigureMetrics;
 import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.cloud.contract.wiremock.AutoConfigureWireMock;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.TestPropertySource;
 import org.springframework.test.web.reactive.server.WebTestClient;
 
+import java.time.Duration;
+import java.util.List;
 import java.util.Objects;
 
 import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
 import static com.github.tomakehurst.wiremock.client.WireMock.get;
 import static com.github.tomakehurst.wiremock.client.WireMock.getRequestedFor;
+import static com.github.tomakehurst.wiremock.client.WireMock.matching;
 import static com.github.tomakehurst.wiremock.client.WireMock.stubFor;
 import static com.github.tomakehurst.wiremock.client.WireMock.urlEqualTo;
 import static com.github.tomakehurst.wiremock.client.WireMock.urlPathEqualTo;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 @SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
 @ActiveProfiles("test")
 @AutoConfigureWebTestClient
+@AutoConfigureMetrics
 @AutoConfigureWireMock(port = 8084)
 @TestPropertySource(
         properties = {
                 "restClient.moviesInfoUrl: http://localhost:8084/v1/movies-info",
-                "restClient.reviewsUrl: http://localhost:8081/v1/reviews"
+                "restClient.reviewsUrl: http://localhost:8084/v1/reviews",
+                // Every test stubs the same movie id with a different answer
+                "movies.cache.movie-info.enabled: false"
         }
 )
 class MoviesControllerIntgTest {
@@ -64,6 +78,113 @@ class MoviesControllerIntgTest {
                 });
     }
 
+    @Test
+    void getMovieByIdNotModified() {
+        String movieId = "abc";
+
+        stubFor(get(urlEqualTo("/v1/movies-info"+"/"+movieId))
+                .willReturn(aResponse()
+                        .withHeader("Content-type", "application/json")
+                        .withBodyFile("movieInfo.json")));
+
+        stubFor(get(urlPathEqualTo("/v1/reviews"))
+                .willReturn(aResponse()
+                        .withHeader("Content-type", "application/json")
+                        .withBodyFile("reviews.json")));
+
+        String eTag = webTestClient.get()
+                .uri("/v1/movies/{id}", movieId)
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectHeader()
+                .cacheControl(CacheControl.maxAge(Duration.ofSeconds(30)).cachePublic())
+                .expectBody(Movie.class)
+                .returnResult()
+                .getResponseHeaders()
+                .getETag();
+        assertNotNull(eTag);
+
+        webTestClient.get()
+                .uri("/v1/movies/{id}", movieId)
+                .ifNoneMatch(eTag)
+                .exchange()
+                .expectStatus()
+                .isNotModified()
+                .expectBody()
+                .isEmpty();
+    }
+
+    @Test
+    void getMovieByIdETagFollowsReviewVersionsAndRepresentation() {
+        String movieId = "abc";
+
+        stubFor(get(urlEqualTo("/v1/movies-info"+"/"+movieId))
+                .willReturn(aResponse()
+                        .withHeader("Content-type", "application/json")
+                        .withBodyFile("movieInfo.json")));
+
+        stubFor(get(urlPathEqualTo("/v1/reviews"))
+                .willReturn(aResponse()
+                        .withHeader("Content-type", "application/json")
+                        .withBody("[{\"reviewId\":\"1\",\"movieInfoId\":1,\"rating\":9.0,\"version\":1}]")));
+        String jsonETag = movieETag(movieId, MediaType.APPLICATION_JSON);
+        String smileETag = movieETag(movieId, MediaType.parseMediaType("application/x-jackson-smile"));
+
+        stubFor(get(urlPathEqualTo("/v1/reviews"))
+                .willReturn(aResponse()
+                        .withHeader("Content-type", "application/json")
+                        .withBody("[{\"reviewId\":\"1\",\"movieInfoId\":1,\"rating\":7.0,\"version\":2}]")));
+        String updatedETag = movieETag(movieId, MediaType.APPLICATION_JSON);
+
+        assertNotEquals(jsonETag, smileETag);
+        assertNotEquals(jsonETag, updatedETag);
+    }
+
+    private String movieETag(String movieId, MediaType accept) {
+        return webTestClient.get()
+                .uri("/v1/movies/{id}", movieId)
+                .accept(accept)
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectHeader()
+                .contentTypeCompatibleWith(accept)
+                .returnResult(byte[].class)
+                .getResponseHeaders()
+                .getETag();
+    }
+
+    @Test
+    void getMovieByIdPropagatesTraceparent() {
+        String movieId = "abc";
+        String traceId = "4bf92f3577b34da6a3ce929d0e0e4736";
+
+        stubFor(get(urlEqualTo("/v1/movies-info"+"/"+movieId))
+                .willReturn(aResponse()
+                        .withHeader("Content-type", "application/json")
+                        .withBodyFile("movieInfo.json")));
+
+        stubFor(get(urlPathEqualTo("/v1/reviews"))
+                .willReturn(aResponse()
+                        .withHeader("Content-type", "application/json")
+                        .withBodyFile("reviews.json")));
+
+        webTestClient.get()
+                .uri("/v1/movies/{id}", movieId)
+                .header(TraceContext.TRACEPARENT_HEADER, "00-" + traceId + "-00f067aa0ba902b7-01")
+                .exchange()
+                .expectStatus()
+                .isOk();
+
+        // Same trace, but each downstream call is parented by a client span of its own
+        String childOfTrace = "00-" + traceId + "-(?!00f067aa0ba902b7)[0-9a-f]{16}-01";
+        WireMock.verify(getRequestedFor(urlEqualTo("/v1/movies-info"+"/"+movieId))
+                .withHeader(TraceContext.TRACEPARENT_HEADER, matching(childOfTrace)));
+        WireMock.verify(getRequestedFor(urlPathEqualTo("/v1/reviews"))
+                .withHeader(TraceContext.TRACEPARENT_HEADER, matching(childOfTrace)));
+    }
+
     @Test
     void getMovieById5xx() {
         String movieId = "abc";
@@ -103,4 +224,134 @@ class MoviesControllerIntgTest {
 
         WireMock.verify(4, getRequestedFor(urlEqualTo("/v1/movies-info"+"/"+movieId)));
     }
+
+    @Test
+    void getMovieById404() {
+        String movieId = "abc";
+
+        // Mocking movies-info-service using Wiremock
+        stubFor(get(urlEqualTo("/v1/movies-info"+"/"+movieId))
+                .willReturn(aResponse()
+                        .withStatus(404)));
+
+        // Mocking movies-review-service using Wiremock
+        stubFor(get(urlPathEqualTo("/v1/reviews"))
+                .willReturn(aResponse()
+                        .withHeader("Content-type", "application/json")
+                        .withBodyFile("reviews.json")));
+
+        webTestClient.get()
+                .uri("/v1/movies/{id}", movieId)
+                .exchange()
+                .expectStatus()
+                .isNotFound()
+                .expectBody(String.class)
+                .isEqualTo("There is no movieInfo available for passed id:abc");
+    }
+
+    @Test
+    void getMoviesByIds() {
+        // Mocking movies-info-service using Wiremock
+        stubFor(get(urlPathEqualTo("/v1/movies-info"))
+                .withQueryParam("ids", WireMock.equalTo("1,2"))
+                .willReturn(aResponse()
+                        .withHeader("Content-type", "application/json")
+                        .withBody("[" +
+                                "{\"movieInfoId\":\"1\",\"name\":\"Batman Begins\",\"year\":2005,\"cast\":[\"Christian Bale\"]}," +
+                                "{\"movieInfoId\":\"2\",\"name\":\"The Dark Knight\",\"year\":2008,\"cast\":[\"Heath Ledger\"]}" +
+                                "]")));
+
+        // Mocking movies-review-service using Wiremock
+        stubFor(get(urlPathEqualTo("/v1/reviews/batch"))
+                .withQueryParam("movieInfoIds", WireMock.equalTo("1,2"))
+                .willReturn(aResponse()
+                        .withHeader("Content-type", "application/json")
+                        .withBody("{\"1\":[{\"reviewId\":\"1\",\"movieInfoId\":1,\"comment\":\"Awesome Movie\",\"rating\":9.0}]}")));
+
+        webTestClient.get()
+                .uri("/v1/movies?ids=1,2,1")
+                .exchange()
+                .expectStatus()
+                .is2xxSuccessful()
+                .expectBodyList(Movie.class)
+                .consumeWith(listEntityExchangeResult -> {
+                    List<Movie> movies = listEntityExchangeResult.getResponseBody();
+                    assertEquals(2, Objects.requireNonNull(movies).size());
+                    assertEquals(1, movies.get(0).getReviewList().size());
+                    assertEquals(0, movies.get(1).getReviewList().size());
+                });
+
+        WireMock.verify(1, getRequestedFor(urlPathEqualTo("/v1/movies-info")));
+        WireMock.verify(1, getRequestedFor(urlPathEqualTo("/v1/reviews/batch")));
+    }
+
+    @Test
+    void getMovieByIdWithoutReviews() {
+        String movieId = "abc";
+
+        // Mocking movies-info-service using Wiremock
+        stubFor(get(urlEqualTo("/v1/movies-info"+"/"+movieId))
+                .willReturn(aResponse()
+                        .withHeader("Content-type", "application/json")
+                        .withBodyFile("movieInfo.json")));
+
+        // Mocking movies-review-service using Wiremock
+        stubFor(get(urlPathEqualTo("/v1/reviews"))
+                .willReturn(aResponse()
+                        .withStatus(500)
+                        .withBody("ReviewsService Unavailable")));
+
+        webTestClient.get()
+                .uri("/v1/movies/{id}", movieId)
+                .exchange()
+                .expectStatus()
+                .is2xxSuccessful()
+                .expectHeader()
+                .cacheControl(CacheControl.noStore())
+                .expectHeader()
+                .doesNotExist(HttpHeaders.ETAG)
+                .expectBody(Movie.class)
+                .consumeWith(movieEntityExchangeResult -> {
+                    Movie movie = movieEntityExchangeResult.getResponseBody();
+                    assertTrue(Objects.requireNonNull(movie).isDegraded());
+                    assertEquals(0, movie.getReviewList().size());
+                    assertEquals("Batman Begins", movie.getMovieInfo().getName());
+                });
+    }
+
+    @Test
+    void prometheusEndpointHasDownstreamHistograms() {
+        String movieId = "abc";
+
+        stubFor(get(urlEqualTo("/v1/movies-info"+"/"+movieId))
+                .willReturn(aResponse()
+                        .withHeader("Content-type", "application/json")
+                        .withBodyFile("movieInfo.json")));
+
+        stubFor(get(urlPathEqualTo("/v1/reviews"))
+                .willReturn(aResponse()
+                        .withHeader("Content-type", "application/json")
+                        .withBodyFile("reviews.json")));
+
+        webTestClient.get()
+                .uri("/v1/movies/{id}", movieId)
+                .exchange()
+                .expectStatus()
+                .isOk();
+
+        String scrape = webTestClient.get()
+                .uri("/actuator/prometheus")
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectBody(String.class)
+                .returnResult()
+                .getResponseBody();
+
+        assertNotNull(scrape);
+        assertTrue(scrape.contains("http_client_requests_seconds_bucket{"));
+        assertTrue(scrape.contains("clientName=\"localhost\""));
+        assertTrue(scrape.contains("movies_downstream_flow_duration_seconds_bucket{"));
+        assertTrue(scrape.contains("client=\"reviews\""));
+    }
 }
@@ -0,0 +1,126 @@
+package com.reactivespring.cache;
+
+import com.reactivespring.config.MovieInfoCacheProperties;
+import com.reactivespring.domain.MovieInfo;
+import com.reactivespring.exception.MoviesInfoClientException;
+import com.reactivespring.exception.MoviesInfoServerException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class MovieInfoCacheTest {
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final AtomicInteger loads = new AtomicInteger();
+
+    private MovieInfo movieInfo(String name) {
+        return new MovieInfo("abc", name, 2005, List.of("Christian Bale"), LocalDate.parse("2005-06-15"), 1L);
+    }
+
+    @Test
+    void hitIsServedWithoutReload() {
+        MovieInfoCache cache = new MovieInfoCache(new MovieInfoCacheProperties(), id -> {
+            loads.incrementAndGet();
+            return Mono.just(movieInfo("Batman Begins"));
+        }, meterRegistry);
+
+        StepVerifier.create(cache.get("abc")).expectNextCount(1).verifyComplete();
+        StepVerifier.create(cache.get("abc")).expectNextCount(1).verifyComplete();
+
+        assertEquals(1, loads.get());
+        assertEquals(1.0, meterRegistry.get("cache.gets").tag("result", "hit").functionCounter().count());
+    }
+
+    @Test
+    void notFoundIsCachedNegatively() {
+        MovieInfoCache cache = new MovieInfoCache(new MovieInfoCacheProperties(), id -> {
+            loads.incrementAndGet();
+            return Mono.error(new MoviesInfoClientException("There is no movieInfo available for passed id:" + id, 404));
+        }, meterRegistry);
+
+        StepVerifier.create(cache.get("abc")).expectError(MoviesInfoClientException.class).verify();
+        StepVerifier.create(cache.get("abc"))
+                .expectErrorMatches(ex -> ((MoviesInfoClientException) ex).getStatusCode() == 404)
+                .verify();
+
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    void serverErrorsAreNotCached() {
+        MovieInfoCache cache = new MovieInfoCache(new MovieInfoCacheProperties(), id -> {
+            loads.incrementAndGet();
+            return Mono.error(new MoviesInfoServerException("Server exception in MoviesInfoService"));
+        }, meterRegistry);
+
+        StepVerifier.create(cache.get("abc")).expectError(MoviesInfoServerException.class).verify();
+        StepVerifier.create(cache.get("abc")).expectError(MoviesInfoServerException.class).verify();
+
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void staleEntryIsServedWhileRefreshing() throws InterruptedException {
+        MovieInfoCacheProperties properties = new MovieInfoCacheProperties();
+        properties.setRefreshAfterWrite(Duration.ofMillis(50));
+        MovieInfoCache cache = new MovieInfoCache(properties,
+                id -> Mono.just(movieInfo("Batman Begins " + loads.incrementAndGet())), meterRegistry);
+
+        StepVerifier.create(cache.get("abc").map(MovieInfo::getName))
+                .expectNext("Batman Begins 1")
+                .verifyComplete();
+
+        Thread.sleep(100);
+
+        StepVerifier.create(cache.get("abc").map(MovieInfo::getName))
+                .expectNext("Batman Begins 1")
+                .verifyComplete();
+
+        for (int i = 0; i < 50 && loads.get() < 2; i++) {
+            Thread.sleep(20);
+        }
+        Thread.sleep(20);
+        StepVerifier.create(cache.get("abc").map(MovieInfo::getName))
+                .expectNext("Batman Begins 2")
+                .verifyComplete();
+    }
+
+    @Test
+    void reloadRevalidatesCachedValue() throws InterruptedException {
+        MovieInfoCacheProperties properties = new MovieInfoCacheProperties();
+        properties.setRefreshAfterWrite(Duration.ofMillis(50));
+        List<String> sentETags = new CopyOnWriteArrayList<>();
+        MovieInfoCache cache = new MovieInfoCache(properties, (id, cached) -> {
+            loads.incrementAndGet();
+            if (cached == null) {
+                return Mono.just(new ValidatedMovieInfo(movieInfo("Batman Begins"), "\"1\""));
+            }
+            sentETags.add(cached.getETag());
+            // unchanged upstream: the loader hands back the cached instance, as on a 304
+            return Mono.just(cached);
+        }, meterRegistry);
+
+        StepVerifier.create(cache.get("abc")).expectNextCount(1).verifyComplete();
+        Thread.sleep(100);
+        StepVerifier.create(cache.get("abc")).expectNextCount(1).verifyComplete();
+
+        for (int i = 0; i < 50 && loads.get() < 2; i++) {
+            Thread.sleep(20);
+        }
+        Thread.sleep(20);
+        StepVerifier.create(cache.get("abc").map(MovieInfo::getName))
+                .expectNext("Batman Begins")
+                .verifyComplete();
+
+        assertEquals(List.of("\"1\""), sentETags);
+        assertEquals(1.0, meterRegistry.get("movies.cache.not-modified").counter().count());
+    }
+}
@@ -0,0 +1,103 @@
+package com.reactivespring.cache;
+
+import com.reactivespring.client.MoviesInfoRestClient;
+import com.reactivespring.config.LoadBalancerProperties;
+import com.reactivespring.config.MovieInfoCacheProperties;
+import com.reactivespring.domain.MovieInfoChangeEvent;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.codec.ServerSentEvent;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+class MovieInfoInvalidationListenerTest {
+    private final MoviesInfoRestClient moviesInfoRestClient = mock(MoviesInfoRestClient.class);
+    private final MovieInfoInvalidationListener.ReplicaStream stream = listener(List.of()).getStreams().get(0);
+
+    private MovieInfoInvalidationListener listener(List<String> endpoints) {
+        LoadBalancerProperties loadBalancerProperties = new LoadBalancerProperties();
+        loadBalancerProperties.getMoviesInfo().setEndpoints(endpoints);
+        return new MovieInfoInvalidationListener(moviesInfoRestClient, new MovieInfoCacheProperties(), loadBalancerProperties);
+    }
+
+    private ServerSentEvent<MovieInfoChangeEvent> event(String epoch, long sequence, String movieInfoId) {
+        return ServerSentEvent.builder(new MovieInfoChangeEvent(epoch, sequence, MovieInfoChangeEvent.Type.UPDATED, movieInfoId, null))
+                .id(epoch + ":" + sequence)
+                .build();
+    }
+
+    @Test
+    void contiguousEventsEvictSingleEntries() {
+        stream.onEvent(event("e1", 1, "abc"));
+        stream.onEvent(event("e1", 2, "def"));
+
+        verify(moviesInfoRestClient).evictMovieInfo("abc");
+        verify(moviesInfoRestClient).evictMovieInfo("def");
+        verify(moviesInfoRestClient, never()).evictAllMovieInfo();
+    }
+
+    @Test
+    void importEventEvictsEveryImportedEntry() {
+        stream.onEvent(event("e1", 1, "abc"));
+        stream.onEvent(ServerSentEvent.builder(new MovieInfoChangeEvent("e1", 2, MovieInfoChangeEvent.Type.IMPORTED,
+                        null, List.of("def", "ghi")))
+                .id("e1:2")
+                .build());
+
+        verify(moviesInfoRestClient).evictMovieInfo("def");
+        verify(moviesInfoRestClient).evictMovieInfo("ghi");
+        verify(moviesInfoRestClient, never()).evictAllMovieInfo();
+    }
+
+    @Test
+    void gapOrNewEpochEvictsEverything() {
+        stream.onEvent(event("e1", 1, "abc"));
+        stream.onEvent(event("e1", 5, "def"));
+        stream.onEvent(event("e2", 1, "ghi"));
+
+        verify(moviesInfoRestClient, times(2)).evictAllMovieInfo();
+    }
+
+    @Test
+    void reconnectWithoutResumeIdEvictsEverything() {
+        stream.onConnect();
+        // The stream dropped before any event arrived
+        stream.onConnect();
+        stream.onEvent(event("e1", 7, "abc"));
+
+        verify(moviesInfoRestClient).evictAllMovieInfo();
+        verify(moviesInfoRestClient).evictMovieInfo("abc");
+    }
+
+    @Test
+    void reconnectResumingFromAnEventKeepsTheCache() {
+        stream.onConnect();
+        stream.onEvent(event("e1", 1, "abc"));
+        stream.onConnect();
+        stream.onEvent(event("e1", 2, "def"));
+
+        verify(moviesInfoRestClient, never()).evictAllMovieInfo();
+    }
+
+    @Test
+    void eachReplicaIsFollowedOnItsOwn() {
+        List<MovieInfoInvalidationListener.ReplicaStream> streams =
+                listener(List.of("http://movies-info-1:8080", "http://movies-info-2:8080")).getStreams();
+
+        // Interleaved events of two publishers are contiguous per replica
+        streams.get(0).onEvent(event("e1", 1, "abc"));
+        streams.get(1).onEvent(event("e2", 1, "def"));
+        streams.get(0).onEvent(event("e1", 2, "ghi"));
+
+        assertEquals(2, streams.size());
+        verify(moviesInfoRestClient).evictMovieInfo("abc");
+        verify(moviesInfoRestClient).evictMovieInfo("def");
+        verify(moviesInfoRestClient).evictMovieInfo("ghi");
+        verify(moviesInfoRestClient, never()).evictAllMovieInfo();
+    }
+}
@@ -0,0 +1,122 @@
+package com.reactivespring.config;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.reactivespring.domain.Review;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.InflaterInputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Bytes on the wire for a review list of a popular title, for each encoding movies-service can
+ * negotiate with the upstream services. Encode/decode cost is measured by JsonCodecBenchmark in
+ * the jmh module.
+ */
+class PayloadEncodingTest {
+    private static final TypeReference<List<Review>> REVIEW_LIST = new TypeReference<>() {};
+    private static final int REVIEWS = 2_000;
+
+    private final ObjectMapper jsonMapper = Jackson2ObjectMapperBuilder.json().build();
+    private final ObjectMapper smileMapper = Jackson2ObjectMapperBuilder.json().factory(new SmileFactory()).build();
+
+    private List<Review> reviews() {
+        List<Review> reviews = new ArrayList<>(REVIEWS);
+        for (int i = 0; i < REVIEWS; i++) {
+            reviews.add(new Review(String.format("6123d5e7a1b2c3d4e5f6%04x", i), 42L,
+                    "Review " + i + ": great pacing, the second act drags a little but the ending makes up for it",
+                    (i % 11) * 0.5 + 5, 1L));
+        }
+        return reviews;
+    }
+
+    @Test
+    void compactEncodingsShrinkReviewLists() throws IOException {
+        List<Review> reviews = reviews();
+        Map<String, Codec> codecs = new LinkedHashMap<>();
+        codecs.put("json", new Codec(jsonMapper, Compression.NONE));
+        codecs.put("json+gzip", new Codec(jsonMapper, Compression.GZIP));
+        codecs.put("json+deflate", new Codec(jsonMapper, Compression.DEFLATE));
+        codecs.put("smile", new Codec(smileMapper, Compression.NONE));
+        codecs.put("smile+gzip", new Codec(smileMapper, Compression.GZIP));
+
+        Map<String, Integer> sizes = new LinkedHashMap<>();
+        for (Map.Entry<String, Codec> entry : codecs.entrySet()) {
+            Codec codec = entry.getValue();
+            byte[] encoded = codec.encode(reviews);
+            assertEquals(reviews, codec.decode(encoded));
+            sizes.put(entry.getKey(), encoded.length);
+        }
+
+        assertTrue(sizes.get("smile") < sizes.get("json"));
+        assertTrue(sizes.get("json+gzip") < sizes.get("smile"));
+        assertTrue(sizes.get("json+deflate") < sizes.get("json"));
+        assertTrue(sizes.get("smile+gzip") < sizes.get("smile"));
+    }
+
+    private enum Compression {
+        NONE, GZIP, DEFLATE
+    }
+
+    private static final class Codec {
+        private final ObjectMapper mapper;
+        private final Compression compression;
+
+        private Codec(ObjectMapper mapper, Compression compression) {
+            this.mapper = mapper;
+            this.compression = compression;
+        }
+
+        byte[] encode(List<Review> reviews) throws IOException {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            try (OutputStream out = compress(bytes)) {
+                mapper.writeValue(out, reviews);
+            }
+            return bytes.toByteArray();
+        }
+
+        List<Review> decode(byte[] encoded) throws IOException {
+            try (InputStream in = decompress(new ByteArrayInputStream(encoded))) {
+                return mapper.readValue(in, REVIEW_LIST);
+            }
+        }
+
+        private OutputStream compress(OutputStream out) throws IOException {
+            switch (compression) {
+                case GZIP:
+                    return new GZIPOutputStream(out);
+                case DEFLATE:
+                    return new DeflaterOutputStream(out);
+                default:
+                    return out;
+            }
+        }
+
+        private InputStream decompress(InputStream in) throws IOException {
+            switch (compression) {
+                case GZIP:
+                    return new GZIPInputStream(in);
+                case DEFLATE:
+                    return new InflaterInputStream(in);
+                default:
+                    return in;
+            }
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package com.reactivespring.loadbalancer;
+
+import com.reactivespring.config.HedgingProperties;
+import com.reactivespring.config.LoadBalancerProperties;
+import com.reactivespring.util.HedgingPolicy;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeFunction;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LoadBalancerTest {
+    private final List<URI> requested = new ArrayList<>();
+
+    private final ExchangeFunction exchange = request -> {
+        requested.add(request.url());
+        HttpStatus status = request.url().getHost().equals("bad-replica") ? HttpStatus.INTERNAL_SERVER_ERROR : HttpStatus.OK;
+        return Mono.just(ClientResponse.create(status).build());
+    };
+
+    private LoadBalancer loadBalancer(LoadBalancerProperties.Picker picker) {
+        LoadBalancerProperties.Downstream properties = new LoadBalancerProperties.Downstream();
+        properties.setEndpoints(List.of("http://bad-replica:8080", "http://good-replica:9090"));
+        properties.setPicker(picker);
+        properties.setEjectionConsecutiveFailures(3);
+        return new LoadBalancer("test", properties, new SimpleMeterRegistry());
+    }
+
+    private void send(LoadBalancer loadBalancer, int requests) {
+        ClientRequest request = ClientRequest.create(HttpMethod.GET, URI.create("http://movies-info/v1/movies-info/abc?x=1")).build();
+        for (int i = 0; i < requests; i++) {
+            loadBalancer.filter().filter(request, exchange).block();
+        }
+    }
+
+    @Test
+    void requestsAreRoutedToEndpointsKeepingPathAndQuery() {
+        send(loadBalancer(LoadBalancerProperties.Picker.ROUND_ROBIN), 2);
+
+        assertEquals(URI.create("http://bad-replica:8080/v1/movies-info/abc?x=1"), requested.get(0));
+        assertEquals(URI.create("http://good-replica:9090/v1/movies-info/abc?x=1"), requested.get(1));
+    }
+
+    @Test
+    void failingEndpointIsEjected() {
+        LoadBalancer loadBalancer = loadBalancer(LoadBalancerProperties.Picker.ROUND_ROBIN);
+        send(loadBalancer, 6);
+        requested.clear();
+
+        send(loadBalancer, 10);
+
+        assertTrue(requested.stream().allMatch(uri -> uri.getHost().equals("good-replica")));
+    }
+
+    @Test
+    void outstandingRequestsAreReleased() {
+        LoadBalancer loadBalancer = loadBalancer(LoadBalancerProperties.Picker.LEAST_OUTSTANDING);
+        send(loadBalancer, 4);
+
+        assertEquals(0, loadBalancer.choose().getOutstanding());
+    }
+
+    @Test
+    void pinnedRequestGoesToItsEndpoint() {
+        LoadBalancer loadBalancer = loadBalancer(LoadBalancerProperties.Picker.ROUND_ROBIN);
+        ClientRequest request = ClientRequest.create(HttpMethod.GET, URI.create("http://movies-info/v1/movies-info/events"))
+                .attribute(LoadBalancer.ENDPOINT_ATTRIBUTE, "http://good-replica:9090")
+                .build();
+
+        loadBalancer.filter().filter(request, exchange).block();
+        loadBalancer.filter().filter(request, exchange).block();
+
+        assertEquals(List.of(URI.create("http://good-replica:9090/v1/movies-info/events"),
+                URI.create("http://good-replica:9090/v1/movies-info/events")), requested);
+    }
+
+    @Test
+    void hedgeGoesToAnotherReplicaThanThePrimary() {
+        LoadBalancer loadBalancer = loadBalancer(LoadBalancerProperties.Picker.ROUND_ROBIN);
+        HedgingProperties.Policy policy = new HedgingProperties.Policy();
+        policy.setEnabled(true);
+        policy.setInitialDelay(Duration.ofMillis(50));
+        HedgingPolicy hedgingPolicy = new HedgingPolicy("test", policy, true, new SimpleMeterRegistry());
+        ExchangeFunction slowPrimary = request -> {
+            requested.add(request.url());
+            Mono<ClientResponse> response = Mono.just(ClientResponse.create(HttpStatus.OK).build());
+            return requested.size() == 1 ? response.delayElement(Duration.ofSeconds(2)) : response;
+        };
+
+        StepVerifier.withVirtualTime(() -> hedgingPolicy.hedge("http://movies-info/v1/movies-info", baseUrl ->
+                        loadBalancer.filter().filter(ClientRequest.create(HttpMethod.GET, URI.create(baseUrl + "/abc")).build(),
+                                slowPrimary)))
+                .expectSubscription()
+                // Another caller in between moves the round robin back onto the primary's replica
+                .then(() -> send(loadBalancer, 1))
+                .thenAwait(Duration.ofMillis(50))
+                .expectNextCount(1)
+                .verifyComplete();
+
+        assertEquals(3, requested.size());
+        assertNotEquals(requested.get(0).getHost(), requested.get(2).getHost());
+    }
+}
@@ -0,0 +1,105 @@
+package com.reactivespring.util;
+
+import com.reactivespring.config.HedgingProperties;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HedgingPolicyTest {
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private HedgingPolicy hedgingPolicy() {
+        HedgingProperties.Policy policy = new HedgingProperties.Policy();
+        policy.setEnabled(true);
+        policy.setAlternateUrls(List.of("http://replica-2"));
+        policy.setInitialDelay(Duration.ofMillis(50));
+        return new HedgingPolicy("test", policy, false, meterRegistry);
+    }
+
+    private double hedging(String outcome) {
+        return meterRegistry.get("movies.client.hedging").tag("outcome", outcome).counter().count();
+    }
+
+    @Test
+    void slowPrimaryIsHedgedAndCancelled() {
+        AtomicBoolean primaryCancelled = new AtomicBoolean();
+        Mono<String> call = hedgingPolicy().hedge("http://replica-1", baseUrl -> baseUrl.equals("http://replica-1")
+                ? Mono.just(baseUrl).delayElement(Duration.ofSeconds(2)).doOnCancel(() -> primaryCancelled.set(true))
+                : Mono.just(baseUrl));
+
+        StepVerifier.create(call)
+                .expectNext("http://replica-2")
+                .verifyComplete();
+
+        assertTrue(primaryCancelled.get());
+        assertEquals(1.0, hedging("hedged"));
+        assertEquals(1.0, hedging("hedge_won"));
+    }
+
+    @Test
+    void primaryLosingToTheHedgeIsStillTimed() {
+        Mono<String> call = hedgingPolicy().hedge("http://replica-1", baseUrl -> baseUrl.equals("http://replica-1")
+                ? Mono.just(baseUrl).delayElement(Duration.ofSeconds(2))
+                : Mono.just(baseUrl));
+
+        StepVerifier.create(call)
+                .expectNext("http://replica-2")
+                .verifyComplete();
+
+        Timer latency = meterRegistry.get("movies.client.hedging.latency").timer();
+        assertEquals(1, latency.count());
+        // Timed until it was cancelled, which is no earlier than the hedge delay
+        assertTrue(latency.totalTime(TimeUnit.MILLISECONDS) >= 50);
+    }
+
+    @Test
+    void loadBalancedHedgeGoesToThePrimaryUrl() {
+        HedgingProperties.Policy policy = new HedgingProperties.Policy();
+        policy.setEnabled(true);
+        policy.setInitialDelay(Duration.ofMillis(50));
+        HedgingPolicy hedgingPolicy = new HedgingPolicy("test", policy, true, meterRegistry);
+        AtomicInteger attempts = new AtomicInteger();
+        Mono<String> call = hedgingPolicy.hedge("http://movies-info", baseUrl -> attempts.incrementAndGet() == 1
+                ? Mono.just("primary").delayElement(Duration.ofSeconds(2))
+                : Mono.just(baseUrl));
+
+        assertTrue(hedgingPolicy.isEnabled());
+        StepVerifier.create(call)
+                .expectNext("http://movies-info")
+                .verifyComplete();
+        assertEquals(1.0, hedging("hedge_won"));
+    }
+
+    @Test
+    void fastPrimaryIsNotHedged() {
+        Mono<String> call = hedgingPolicy().hedge("http://replica-1", Mono::just);
+
+        StepVerifier.create(call)
+                .expectNext("http://replica-1")
+                .verifyComplete();
+
+        assertEquals(0.0, hedging("hedged"));
+    }
+
+    @Test
+    void failedHedgeLeavesThePrimaryOutcome() {
+        Mono<String> call = hedgingPolicy().hedge("http://replica-1", baseUrl -> baseUrl.equals("http://replica-1")
+                ? Mono.just(baseUrl).delayElement(Duration.ofMillis(200))
+                : Mono.error(new IllegalStateException("replica down")));
+
+        StepVerifier.create(call)
+                .expectNext("http://replica-1")
+                .verifyComplete();
+    }
+}
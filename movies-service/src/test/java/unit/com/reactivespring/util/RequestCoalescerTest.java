@@ -0,0 +1,62 @@
+package com.reactivespring.util;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class RequestCoalescerTest {
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final RequestCoalescer<String, String> coalescer = new RequestCoalescer<>("test", meterRegistry);
+
+    @Test
+    void concurrentCallersShareOneUpstreamCall() {
+        AtomicInteger upstreamCalls = new AtomicInteger();
+        Mono<String> call = coalescer.execute("abc", () -> Mono.fromCallable(upstreamCalls::incrementAndGet)
+                .delayElement(Duration.ofMillis(200))
+                .map(count -> "movie-" + count));
+
+        StepVerifier.create(Flux.merge(call, call, call))
+                .expectNext("movie-1", "movie-1", "movie-1")
+                .verifyComplete();
+
+        assertEquals(1, upstreamCalls.get());
+        assertEquals(2.0, meterRegistry.get("movies.client.coalescing").tag("result", "coalesced").counter().count());
+    }
+
+    @Test
+    void entryIsDroppedAfterCompletion() {
+        AtomicInteger upstreamCalls = new AtomicInteger();
+        Mono<String> call = coalescer.execute("abc", () -> Mono.fromCallable(upstreamCalls::incrementAndGet)
+                .map(count -> "movie-" + count));
+
+        StepVerifier.create(call).expectNext("movie-1").verifyComplete();
+        StepVerifier.create(call).expectNext("movie-2").verifyComplete();
+
+        assertEquals(2, upstreamCalls.get());
+    }
+
+    @Test
+    void errorsAreSharedAndNotRetained() {
+        AtomicInteger upstreamCalls = new AtomicInteger();
+        Mono<String> call = coalescer.execute("abc", () -> Mono.defer(() -> {
+            upstreamCalls.incrementAndGet();
+            return Mono.<String>error(new IllegalStateException("boom"));
+        }).delaySubscription(Duration.ofMillis(100)));
+
+        StepVerifier.create(Flux.merge(call, call))
+                .expectError(IllegalStateException.class)
+                .verify();
+        StepVerifier.create(call)
+                .expectError(IllegalStateException.class)
+                .verify();
+
+        assertEquals(2, upstreamCalls.get());
+    }
+}
@@ -0,0 +1,94 @@
+package com.reactivespring.util;
+
+import com.reactivespring.config.RetryProperties;
+import com.reactivespring.exception.MoviesInfoClientException;
+import com.reactivespring.exception.MoviesInfoServerException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RetryPolicyTest {
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final AtomicInteger attempts = new AtomicInteger();
+
+    private RetryPolicy retryPolicy(RetryProperties.Policy policy) {
+        policy.setMinBackoff(Duration.ofMillis(1));
+        policy.setMaxBackoff(Duration.ofMillis(5));
+        return new RetryPolicy("test", policy, MoviesInfoServerException.class::isInstance, meterRegistry);
+    }
+
+    private Mono<String> failing(RuntimeException ex) {
+        return Mono.defer(() -> {
+            attempts.incrementAndGet();
+            return Mono.error(ex);
+        });
+    }
+
+    @Test
+    void retriesUpToMaxRetriesAndPropagatesLastFailure() {
+        RetryPolicy retryPolicy = retryPolicy(new RetryProperties.Policy());
+
+        StepVerifier.create(failing(new MoviesInfoServerException("Server exception")).transform(retryPolicy::retryMono))
+                .expectError(MoviesInfoServerException.class)
+                .verify(Duration.ofSeconds(5));
+
+        assertEquals(4, attempts.get());
+        assertEquals(3.0, meterRegistry.get("movies.client.retries").tag("outcome", "retried").counter().count());
+    }
+
+    @Test
+    void nonRetryableFailuresAreNotRetried() {
+        RetryPolicy retryPolicy = retryPolicy(new RetryProperties.Policy());
+
+        StepVerifier.create(failing(new MoviesInfoClientException("Not found", 404)).transform(retryPolicy::retryMono))
+                .expectError(MoviesInfoClientException.class)
+                .verify(Duration.ofSeconds(5));
+
+        assertEquals(1, attempts.get());
+    }
+
+    @Test
+    void retriesStopWhenBudgetIsSpent() {
+        RetryProperties.Policy policy = new RetryProperties.Policy();
+        policy.setBudgetCapacity(2);
+        policy.setBudgetRatio(0);
+        RetryPolicy retryPolicy = retryPolicy(policy);
+
+        StepVerifier.create(failing(new MoviesInfoServerException("Server exception")).transform(retryPolicy::retryMono))
+                .expectError(MoviesInfoServerException.class)
+                .verify(Duration.ofSeconds(5));
+
+        assertEquals(3, attempts.get());
+        assertEquals(1.0, meterRegistry.get("movies.client.retries").tag("outcome", "budget_exhausted").counter().count());
+    }
+
+    @Test
+    void backoffIsJitteredBelowExponentialCap() {
+        RetryProperties.Policy policy = new RetryProperties.Policy();
+        RetryPolicy retryPolicy = new RetryPolicy("test", policy, ex -> true, meterRegistry);
+
+        for (int retry = 0; retry < 10; retry++) {
+            long cap = Math.min(policy.getMaxBackoff().toMillis(), policy.getMinBackoff().toMillis() << retry);
+            assertTrue(retryPolicy.backoff(retry).toMillis() <= cap);
+        }
+    }
+
+    @Test
+    void worstCaseCoversEveryAttemptAndBackoff() {
+        RetryProperties.Policy policy = new RetryProperties.Policy();
+        policy.setMaxRetries(2);
+        policy.setMinBackoff(Duration.ofMillis(50));
+        policy.setMaxBackoff(Duration.ofMillis(80));
+        policy.setPerAttemptTimeout(Duration.ofMillis(250));
+
+        // 3 attempts of 250ms, then backoffs capped at 50ms and min(100ms, 80ms)
+        assertEquals(Duration.ofMillis(880), policy.worstCaseDuration());
+    }
+}
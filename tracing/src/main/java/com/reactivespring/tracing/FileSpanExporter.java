@@ -0,0 +1,105 @@
+package com.reactivespring.tracing;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.DisposableBean;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Local stand-in for an OTLP exporter: finished spans are queued and appended to a file as
+ * newline-delimited OTLP/JSON by a single background thread. The queue is bounded and a full queue
+ * drops spans, so request threads never wait on the disk.
+ */
+@Log4j2
+public class FileSpanExporter implements DisposableBean {
+    private final SpanTracingProperties properties;
+    private final ObjectMapper objectMapper;
+    private final BlockingQueue<Map<String, Object>> queue;
+    private final AtomicLong dropped = new AtomicLong();
+    private final Thread writer;
+    private volatile boolean running;
+
+    public FileSpanExporter(SpanTracingProperties properties, ObjectMapper objectMapper) {
+        this.properties = properties;
+        this.objectMapper = objectMapper;
+        this.queue = new ArrayBlockingQueue<>(Math.max(1, properties.getQueueCapacity()));
+        this.writer = new Thread(this::writeSpans, "span-exporter");
+        this.writer.setDaemon(true);
+        if (properties.isEnabled()) {
+            running = true;
+            writer.start();
+        }
+    }
+
+    void export(Map<String, Object> span) {
+        span.put("resource", Map.of("service.name", properties.getServiceName()));
+        if (!queue.offer(span)) {
+            dropped.incrementAndGet();
+        }
+    }
+
+    public long getDropped() {
+        return dropped.get();
+    }
+
+    private void writeSpans() {
+        Path file = Paths.get(properties.getFile());
+        try (BufferedWriter out = Files.newBufferedWriter(file, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+            List<Map<String, Object>> batch = new ArrayList<>();
+            // Stopped by a flag rather than an interrupt: an interrupt would close the file channel mid-write
+            while (running || !queue.isEmpty()) {
+                Map<String, Object> span = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (span != null) {
+                    batch.add(span);
+                    queue.drainTo(batch);
+                    write(out, batch);
+                }
+            }
+        } catch (IOException ex) {
+            log.warn("Span export to {} stopped: {}", file, ex.toString());
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void write(BufferedWriter out, List<Map<String, Object>> batch) throws IOException {
+        if (batch.isEmpty()) {
+            return;
+        }
+        for (Map<String, Object> span : batch) {
+            try {
+                out.write(objectMapper.writeValueAsString(span));
+                out.newLine();
+            } catch (JsonProcessingException ex) {
+                dropped.incrementAndGet();
+            }
+        }
+        out.flush();
+        batch.clear();
+    }
+
+    @Override
+    public void destroy() throws InterruptedException {
+        running = false;
+        writer.join(1_000);
+        if (dropped.get() > 0) {
+            log.info("Dropped {} spans because the export queue was full", dropped.get());
+        }
+    }
+}
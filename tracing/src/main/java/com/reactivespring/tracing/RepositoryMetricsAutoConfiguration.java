@@ -0,0 +1,67 @@
+package com.reactivespring.tracing;
+
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.repository.core.support.RepositoryFactoryBeanSupport;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Reactor metrics for every repository method, derived methods and custom fragments alike. Each call
+ * is published as {@code movies.repository.*} (flow duration by status, subscriptions, onNext delay,
+ * requests), tagged with the repository and method. Spring Data's own invocation metrics only time
+ * the call that assembles the publisher, which says nothing for reactive repositories.
+ */
+@Configuration(proxyBeanMethods = false)
+@ConditionalOnClass(RepositoryFactoryBeanSupport.class)
+public class RepositoryMetricsAutoConfiguration {
+    public static final String REPOSITORY_METRICS = "movies.repository";
+
+    // static: bean post processors are created before the rest of the configuration
+    @Bean
+    public static BeanPostProcessor repositoryMetricsBeanPostProcessor() {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessBeforeInitialization(Object bean, String beanName) {
+                if (bean instanceof RepositoryFactoryBeanSupport) {
+                    ((RepositoryFactoryBeanSupport<?, ?, ?>) bean).addRepositoryFactoryCustomizer(factory ->
+                            factory.addRepositoryProxyPostProcessor((proxyFactory, repositoryInformation) ->
+                                    proxyFactory.addAdvice(new RepositoryMetricsInterceptor(
+                                            repositoryInformation.getRepositoryInterface().getSimpleName()))));
+                }
+                return bean;
+            }
+        };
+    }
+
+    private static final class RepositoryMetricsInterceptor implements MethodInterceptor {
+        private final String repository;
+
+        private RepositoryMetricsInterceptor(String repository) {
+            this.repository = repository;
+        }
+
+        @Override
+        public Object invoke(MethodInvocation invocation) throws Throwable {
+            Object result = invocation.proceed();
+            String method = invocation.getMethod().getName();
+            if (result instanceof Mono) {
+                return ((Mono<?>) result).name(REPOSITORY_METRICS)
+                        .tag("repository", repository)
+                        .tag("method", method)
+                        .metrics();
+            }
+            if (result instanceof Flux) {
+                return ((Flux<?>) result).name(REPOSITORY_METRICS)
+                        .tag("repository", repository)
+                        .tag("method", method)
+                        .metrics();
+            }
+            return result;
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package com.reactivespring.tracing;
+
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.repository.core.support.RepositoryFactoryBeanSupport;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Map;
+
+/**
+ * A client span around every repository call, named {@code Repository.method}, as a child of the
+ * request's server span. Calls made outside a traced request are not traced.
+ */
+@Configuration(proxyBeanMethods = false)
+@ConditionalOnClass(RepositoryFactoryBeanSupport.class)
+public class RepositoryTracingAutoConfiguration {
+
+    // static: bean post processors are created before the rest of the configuration
+    @Bean
+    public static BeanPostProcessor repositoryTracingBeanPostProcessor(ObjectProvider<SpanTracer> spanTracer) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessBeforeInitialization(Object bean, String beanName) {
+                if (bean instanceof RepositoryFactoryBeanSupport) {
+                    ((RepositoryFactoryBeanSupport<?, ?, ?>) bean).addRepositoryFactoryCustomizer(factory ->
+                            factory.addRepositoryProxyPostProcessor((proxyFactory, repositoryInformation) ->
+                                    proxyFactory.addAdvice(new RepositoryTracingInterceptor(spanTracer,
+                                            repositoryInformation.getRepositoryInterface().getSimpleName()))));
+                }
+                return bean;
+            }
+        };
+    }
+
+    private static final class RepositoryTracingInterceptor implements MethodInterceptor {
+        private final ObjectProvider<SpanTracer> spanTracer;
+        private final String repository;
+
+        private RepositoryTracingInterceptor(ObjectProvider<SpanTracer> spanTracer, String repository) {
+            this.spanTracer = spanTracer;
+            this.repository = repository;
+        }
+
+        @Override
+        public Object invoke(MethodInvocation invocation) throws Throwable {
+            Object result = invocation.proceed();
+            String method = invocation.getMethod().getName();
+            Map<String, Object> attributes = Map.of("db.system", "mongodb", "db.operation", method);
+            if (result instanceof Mono) {
+                return spanTracer.getObject().traceMono((Mono<?>) result, repository + "." + method,
+                        Span.Kind.CLIENT, attributes);
+            }
+            if (result instanceof Flux) {
+                return spanTracer.getObject().traceFlux((Flux<?>) result, repository + "." + method,
+                        Span.Kind.CLIENT, attributes);
+            }
+            return result;
+        }
+    }
+}
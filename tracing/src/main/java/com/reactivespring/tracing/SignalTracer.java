@@ -0,0 +1,84 @@
+package com.reactivespring.tracing;
+
+import lombok.extern.log4j.Log4j2;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Sampled replacement for per-signal {@code .log()} operators: a traced subscription produces a single
+ * structured line (route, id, outcome, latency, element count) when it terminates. Tracing is off by
+ * default, and unsampled subscriptions run the publisher untouched. Lines go to the
+ * {@code signal-trace} logger, which logback-spring.xml sends through a non-blocking async appender.
+ */
+@Log4j2(topic = "signal-trace")
+public class SignalTracer {
+    private final SignalTracingProperties properties;
+
+    public SignalTracer(SignalTracingProperties properties) {
+        this.properties = properties;
+    }
+
+    public <T> Function<Mono<T>, Mono<T>> mono(String route, Object id) {
+        if (!properties.isEnabled()) {
+            return source -> source;
+        }
+        return source -> Mono.defer(() -> {
+            if (!sampled(route)) {
+                return source;
+            }
+            Trace trace = new Trace(route, id);
+            return source.doOnNext(value -> trace.elements++)
+                    .doOnError(trace::failed)
+                    .doFinally(trace::emit);
+        });
+    }
+
+    public <T> Function<Flux<T>, Flux<T>> flux(String route, Object id) {
+        if (!properties.isEnabled()) {
+            return source -> source;
+        }
+        return source -> Flux.defer(() -> {
+            if (!sampled(route)) {
+                return source;
+            }
+            Trace trace = new Trace(route, id);
+            return source.doOnNext(value -> trace.elements++)
+                    .doOnError(trace::failed)
+                    .doFinally(trace::emit);
+        });
+    }
+
+    private boolean sampled(String route) {
+        double rate = properties.sampleRateFor(route);
+        return rate >= 1.0 || (rate > 0.0 && ThreadLocalRandom.current().nextDouble() < rate);
+    }
+
+    private static final class Trace {
+        private final String route;
+        private final Object id;
+        private final long start = System.nanoTime();
+        private long elements;
+        private Throwable error;
+
+        private Trace(String route, Object id) {
+            this.route = route;
+            this.id = id;
+        }
+
+        private void failed(Throwable error) {
+            this.error = error;
+        }
+
+        private void emit(SignalType signalType) {
+            long latencyMicros = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start);
+            log.info("route={} id={} outcome={} latencyMicros={} elements={} error={}", route,
+                    id == null ? "-" : id, signalType, latencyMicros, elements,
+                    error == null ? "-" : error.getClass().getSimpleName());
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package com.reactivespring.tracing;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.HashMap;
+import java.util.Map;
+
+@Data
+@ConfigurationProperties(prefix = "tracing.signals")
+public class SignalTracingProperties {
+    private boolean enabled = false;
+    // Fraction of subscriptions traced on routes without a rate of their own
+    private double sampleRate = 0.01;
+    // Per-route rates, keyed by the route names passed to SignalTracer
+    private Map<String, Double> routes = new HashMap<>();
+
+    public double sampleRateFor(String route) {
+        return routes.getOrDefault(route, sampleRate);
+    }
+}
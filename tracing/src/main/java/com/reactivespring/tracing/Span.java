@@ -0,0 +1,110 @@
+package com.reactivespring.tracing;
+
+import reactor.core.publisher.SignalType;
+
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * A timed operation within a trace. Spans that are not recorded (tracing off or trace not sampled)
+ * accept every call and export nothing.
+ */
+public class Span {
+    public enum Kind {
+        SERVER, CLIENT, INTERNAL
+    }
+
+    private static final Span NOT_RECORDED = new Span(null, null, null, null, null);
+
+    private final FileSpanExporter exporter;
+    private final TraceContext context;
+    private final String parentSpanId;
+    private final Kind kind;
+    private final long startEpochNanos;
+    private final long startNanos;
+    private final Map<String, Object> attributes = new LinkedHashMap<>();
+    private final AtomicBoolean ended = new AtomicBoolean();
+    private volatile String name;
+    private volatile Throwable error;
+
+    Span(FileSpanExporter exporter, TraceContext context, String parentSpanId, String name, Kind kind) {
+        this.exporter = exporter;
+        this.context = context;
+        this.parentSpanId = parentSpanId;
+        this.name = name;
+        this.kind = kind;
+        Instant now = Instant.now();
+        this.startEpochNanos = TimeUnit.SECONDS.toNanos(now.getEpochSecond()) + now.getNano();
+        this.startNanos = System.nanoTime();
+    }
+
+    static Span notRecorded() {
+        return NOT_RECORDED;
+    }
+
+    public boolean isRecording() {
+        return exporter != null;
+    }
+
+    public Span updateName(String name) {
+        if (isRecording()) {
+            this.name = name;
+        }
+        return this;
+    }
+
+    public Span attribute(String key, Object value) {
+        if (isRecording() && value != null) {
+            synchronized (attributes) {
+                attributes.put(key, value);
+            }
+        }
+        return this;
+    }
+
+    public void error(Throwable error) {
+        if (isRecording()) {
+            this.error = error;
+        }
+    }
+
+    public void end(SignalType signalType) {
+        if (!isRecording() || !ended.compareAndSet(false, true)) {
+            return;
+        }
+        if (signalType == SignalType.CANCEL) {
+            attribute("reactor.cancelled", true);
+        }
+        long endEpochNanos = startEpochNanos + (System.nanoTime() - startNanos);
+        exporter.export(toOtlpJson(endEpochNanos));
+    }
+
+    // Field names follow the OTLP/JSON span encoding, so the file can be replayed into a collector
+    private Map<String, Object> toOtlpJson(long endEpochNanos) {
+        Map<String, Object> span = new LinkedHashMap<>();
+        span.put("traceId", context.getTraceId());
+        span.put("spanId", context.getSpanId());
+        if (parentSpanId != null) {
+            span.put("parentSpanId", parentSpanId);
+        }
+        span.put("name", name);
+        span.put("kind", "SPAN_KIND_" + kind.name());
+        span.put("startTimeUnixNano", startEpochNanos);
+        span.put("endTimeUnixNano", endEpochNanos);
+        synchronized (attributes) {
+            span.put("attributes", new LinkedHashMap<>(attributes));
+        }
+        Map<String, Object> status = new LinkedHashMap<>();
+        if (error != null) {
+            status.put("code", "STATUS_CODE_ERROR");
+            status.put("message", error.getClass().getSimpleName() + ": " + error.getMessage());
+        } else {
+            status.put("code", "STATUS_CODE_UNSET");
+        }
+        span.put("status", status);
+        return span;
+    }
+}
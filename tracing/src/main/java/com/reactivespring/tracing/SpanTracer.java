@@ -0,0 +1,75 @@
+package com.reactivespring.tracing;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Starts spans and wraps publishers in child spans of the {@link TraceContext} found in the
+ * subscriber's Reactor Context. Without a trace in the context the publisher runs untraced.
+ */
+public class SpanTracer {
+    private final SpanTracingProperties properties;
+    private final FileSpanExporter exporter;
+
+    public SpanTracer(SpanTracingProperties properties, FileSpanExporter exporter) {
+        this.properties = properties;
+        this.exporter = exporter;
+    }
+
+    /**
+     * The context for a span continuing {@code parent}, or the root of a new trace when there is no parent.
+     */
+    public TraceContext continueOrStart(TraceContext parent) {
+        if (parent != null) {
+            return parent.child();
+        }
+        double rate = properties.getSampleRate();
+        return TraceContext.root(rate >= 1.0 || ThreadLocalRandom.current().nextDouble() < rate);
+    }
+
+    public Span start(String name, Span.Kind kind, TraceContext context, TraceContext parent) {
+        if (!properties.isEnabled() || !context.isSampled()) {
+            return Span.notRecorded();
+        }
+        return new Span(exporter, context, parent == null ? null : parent.getSpanId(), name, kind);
+    }
+
+    public <T> Mono<T> traceMono(Mono<T> source, String name, Span.Kind kind, Map<String, Object> attributes) {
+        if (!properties.isEnabled()) {
+            return source;
+        }
+        return Mono.deferContextual(contextView -> {
+            TraceContext parent = contextView.getOrDefault(TraceContext.CONTEXT_KEY, null);
+            if (parent == null || !parent.isSampled()) {
+                return source;
+            }
+            TraceContext context = parent.child();
+            Span span = start(name, kind, context, parent);
+            attributes.forEach(span::attribute);
+            return source.doOnError(span::error)
+                    .doFinally(span::end)
+                    .contextWrite(ctx -> ctx.put(TraceContext.CONTEXT_KEY, context));
+        });
+    }
+
+    public <T> Flux<T> traceFlux(Flux<T> source, String name, Span.Kind kind, Map<String, Object> attributes) {
+        if (!properties.isEnabled()) {
+            return source;
+        }
+        return Flux.deferContextual(contextView -> {
+            TraceContext parent = contextView.getOrDefault(TraceContext.CONTEXT_KEY, null);
+            if (parent == null || !parent.isSampled()) {
+                return source;
+            }
+            TraceContext context = parent.child();
+            Span span = start(name, kind, context, parent);
+            attributes.forEach(span::attribute);
+            return source.doOnError(span::error)
+                    .doFinally(span::end)
+                    .contextWrite(ctx -> ctx.put(TraceContext.CONTEXT_KEY, context));
+        });
+    }
+}
@@ -0,0 +1,23 @@
+package com.reactivespring.tracing;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Data
+@ConfigurationProperties(prefix = "tracing.spans")
+public class SpanTracingProperties {
+    // traceparent is always propagated; this only switches recording and export of this service's spans
+    private boolean enabled = false;
+    // Share of new traces that are sampled; incoming traceparent flags are honoured as sent
+    private double sampleRate = 1.0;
+    // Defaults to spring.application.name
+    private String serviceName;
+    // One OTLP/JSON span per line; defaults to spans-<service-name>.ndjson
+    private String file;
+    // Finished spans waiting to be written; spans beyond this are dropped, never blocking a request
+    private int queueCapacity = 10_000;
+
+    public String getFile() {
+        return file != null ? file : "spans-" + serviceName + ".ndjson";
+    }
+}
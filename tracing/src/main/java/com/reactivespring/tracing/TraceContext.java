@@ -0,0 +1,73 @@
+package com.reactivespring.tracing;
+
+import lombok.Value;
+
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * The W3C trace context of the current span. It travels in the Reactor {@code Context} under
+ * {@link #CONTEXT_KEY}, never in a ThreadLocal, and crosses service boundaries as a
+ * {@code traceparent} header.
+ */
+@Value
+public class TraceContext {
+    public static final String TRACEPARENT_HEADER = "traceparent";
+    public static final Class<TraceContext> CONTEXT_KEY = TraceContext.class;
+
+    private static final Pattern TRACEPARENT =
+            Pattern.compile("([0-9a-f]{2})-([0-9a-f]{32})-([0-9a-f]{16})-([0-9a-f]{2})(-.*)?");
+    private static final String INVALID_TRACE_ID = "00000000000000000000000000000000";
+    private static final String INVALID_SPAN_ID = "0000000000000000";
+
+    String traceId;
+    String spanId;
+    boolean sampled;
+
+    public static TraceContext root(boolean sampled) {
+        return new TraceContext(randomId() + randomId(), randomId(), sampled);
+    }
+
+    public TraceContext child() {
+        return new TraceContext(traceId, randomId(), sampled);
+    }
+
+    public String toTraceparent() {
+        return "00-" + traceId + "-" + spanId + (sampled ? "-01" : "-00");
+    }
+
+    /**
+     * Empty for a missing or malformed header, in which case the receiver starts a new trace.
+     */
+    public static Optional<TraceContext> parse(String traceparent) {
+        if (traceparent == null) {
+            return Optional.empty();
+        }
+        Matcher matcher = TRACEPARENT.matcher(traceparent.trim());
+        if (!matcher.matches()) {
+            return Optional.empty();
+        }
+        String version = matcher.group(1);
+        // Version 00 has exactly four fields; later versions may append more
+        if (version.equals("ff") || (version.equals("00") && matcher.group(5) != null)) {
+            return Optional.empty();
+        }
+        String traceId = matcher.group(2);
+        String parentId = matcher.group(3);
+        if (traceId.equals(INVALID_TRACE_ID) || parentId.equals(INVALID_SPAN_ID)) {
+            return Optional.empty();
+        }
+        boolean sampled = (Integer.parseInt(matcher.group(4), 16) & 0x01) != 0;
+        return Optional.of(new TraceContext(traceId, parentId, sampled));
+    }
+
+    private static String randomId() {
+        long id;
+        do {
+            id = ThreadLocalRandom.current().nextLong();
+        } while (id == 0L);
+        return String.format("%016x", id);
+    }
+}
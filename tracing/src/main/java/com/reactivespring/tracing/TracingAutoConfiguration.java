@@ -0,0 +1,50 @@
+package com.reactivespring.tracing;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+/**
+ * Signal and span tracing for every service that has this module on its classpath, including their
+ * {@code @WebFluxTest} slices. Spans are attributed to {@code spring.application.name} unless
+ * {@code tracing.spans.service-name} says otherwise.
+ */
+@Configuration(proxyBeanMethods = false)
+public class TracingAutoConfiguration {
+
+    @Bean
+    public SignalTracingProperties signalTracingProperties() {
+        return new SignalTracingProperties();
+    }
+
+    @Bean
+    public SignalTracer signalTracer(SignalTracingProperties properties) {
+        return new SignalTracer(properties);
+    }
+
+    @Bean
+    public SpanTracingProperties spanTracingProperties(Environment environment) {
+        SpanTracingProperties properties = new SpanTracingProperties();
+        // Bound afterwards, so an explicit tracing.spans.service-name still wins
+        properties.setServiceName(environment.getProperty("spring.application.name", "unknown_service"));
+        return properties;
+    }
+
+    @Bean
+    public FileSpanExporter fileSpanExporter(SpanTracingProperties properties, ObjectMapper objectMapper) {
+        return new FileSpanExporter(properties, objectMapper);
+    }
+
+    @Bean
+    public SpanTracer spanTracer(SpanTracingProperties properties, FileSpanExporter exporter) {
+        return new SpanTracer(properties, exporter);
+    }
+
+    @Bean
+    @ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+    public TracingWebFilter tracingWebFilter(SpanTracer spanTracer) {
+        return new TracingWebFilter(spanTracer);
+    }
+}
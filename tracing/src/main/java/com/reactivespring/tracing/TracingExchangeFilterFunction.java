@@ -0,0 +1,42 @@
+package com.reactivespring.tracing;
+
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
+import org.springframework.web.reactive.function.client.ExchangeFunction;
+import reactor.core.publisher.Mono;
+
+/**
+ * Client span per outgoing request, and the {@code traceparent} header that makes the downstream
+ * server span its child. Registered inside the load balancer, so every attempt - retries and hedges
+ * included - gets its own span naming the replica it went to.
+ */
+public class TracingExchangeFilterFunction implements ExchangeFilterFunction {
+    private final SpanTracer spanTracer;
+    private final String client;
+
+    public TracingExchangeFilterFunction(SpanTracer spanTracer, String client) {
+        this.spanTracer = spanTracer;
+        this.client = client;
+    }
+
+    @Override
+    public Mono<ClientResponse> filter(ClientRequest request, ExchangeFunction next) {
+        return Mono.deferContextual(contextView -> {
+            TraceContext parent = contextView.getOrDefault(TraceContext.CONTEXT_KEY, null);
+            TraceContext context = spanTracer.continueOrStart(parent);
+            String method = request.method().name();
+            Span span = spanTracer.start(method + " " + client, Span.Kind.CLIENT, context, parent)
+                    .attribute("http.method", method)
+                    .attribute("http.url", request.url().toString())
+                    .attribute("peer.service", client);
+            ClientRequest traced = ClientRequest.from(request)
+                    .headers(headers -> headers.set(TraceContext.TRACEPARENT_HEADER, context.toTraceparent()))
+                    .build();
+            return next.exchange(traced)
+                    .doOnNext(response -> span.attribute("http.status_code", response.rawStatusCode()))
+                    .doOnError(span::error)
+                    .doFinally(span::end);
+        });
+    }
+}
@@ -0,0 +1,59 @@
+package com.reactivespring.tracing;
+
+import org.springframework.core.Ordered;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.reactive.HandlerMapping;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import org.springframework.web.util.pattern.PathPattern;
+import reactor.core.publisher.Mono;
+
+/**
+ * Server span for every request, for annotated controllers and router functions alike. The span's
+ * {@link TraceContext} continues an incoming {@code traceparent} and is written into the Reactor
+ * Context, where repository and WebClient spans pick it up as their parent.
+ */
+public class TracingWebFilter implements WebFilter, Ordered {
+    private final SpanTracer spanTracer;
+
+    public TracingWebFilter(SpanTracer spanTracer) {
+        this.spanTracer = spanTracer;
+    }
+
+    @Override
+    public int getOrder() {
+        // Just inside the metrics filter, so the span covers everything but metrics bookkeeping
+        return Ordered.HIGHEST_PRECEDENCE + 2;
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        TraceContext parent = TraceContext.parse(exchange.getRequest().getHeaders().getFirst(TraceContext.TRACEPARENT_HEADER))
+                .orElse(null);
+        TraceContext context = spanTracer.continueOrStart(parent);
+        String method = exchange.getRequest().getMethodValue();
+        Span span = spanTracer.start(method, Span.Kind.SERVER, context, parent)
+                .attribute("http.method", method)
+                .attribute("http.target", exchange.getRequest().getURI().getRawPath());
+        return chain.filter(exchange)
+                .doOnError(span::error)
+                .doFinally(signalType -> {
+                    String route = route(exchange);
+                    HttpStatus status = exchange.getResponse().getStatusCode();
+                    span.updateName(method + " " + (route == null ? "unmatched" : route))
+                            .attribute("http.route", route)
+                            .attribute("http.status_code", status == null ? null : status.value())
+                            .end(signalType);
+                })
+                .contextWrite(ctx -> ctx.put(TraceContext.CONTEXT_KEY, context));
+    }
+
+    private String route(ServerWebExchange exchange) {
+        Object pattern = exchange.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        if (pattern instanceof PathPattern) {
+            return ((PathPattern) pattern).getPatternString();
+        }
+        return pattern == null ? null : pattern.toString();
+    }
+}
@@ -0,0 +1,49 @@
+package com.reactivespring.tracing;
+
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class SignalTracerTest {
+
+    @Test
+    void disabledTracerLeavesPublisherUntouched() {
+        SignalTracer signalTracer = new SignalTracer(new SignalTracingProperties());
+        Mono<String> movieInfo = Mono.just("Batman Begins");
+
+        assertSame(movieInfo, movieInfo.transform(signalTracer.mono("getMovieInfo", "abc")));
+    }
+
+    @Test
+    void sampledSubscriptionsKeepTheirSignals() {
+        SignalTracingProperties properties = new SignalTracingProperties();
+        properties.setEnabled(true);
+        properties.setRoutes(Map.of("getReviews", 1.0));
+        SignalTracer signalTracer = new SignalTracer(properties);
+
+        StepVerifier.create(Flux.just("Awesome Movie", "Excellent Movie")
+                        .transform(signalTracer.flux("getReviews", "abc")))
+                .expectNext("Awesome Movie", "Excellent Movie")
+                .verifyComplete();
+        StepVerifier.create(Mono.error(new IllegalStateException("boom"))
+                        .transform(signalTracer.mono("getReviews", "abc")))
+                .expectError(IllegalStateException.class)
+                .verify();
+    }
+
+    @Test
+    void routeRateOverridesDefaultRate() {
+        SignalTracingProperties properties = new SignalTracingProperties();
+        properties.setSampleRate(0.0);
+        properties.setRoutes(Map.of("getMovieInfo", 0.5));
+
+        assertEquals(0.5, properties.sampleRateFor("getMovieInfo"));
+        assertEquals(0.0, properties.sampleRateFor("getReviews"));
+    }
+}
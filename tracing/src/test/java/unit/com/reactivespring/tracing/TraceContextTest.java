@@ -0,0 +1,86 @@
+package com.reactivespring.tracing;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TraceContextTest {
+    private static final String TRACEPARENT = "00-4bf92f3577b34da6a3ce929d0e0e4736-00f067aa0ba902b7-01";
+
+    @Test
+    void parseAndFormatRoundTrip() {
+        TraceContext context = TraceContext.parse(TRACEPARENT).orElseThrow();
+
+        assertEquals("4bf92f3577b34da6a3ce929d0e0e4736", context.getTraceId());
+        assertEquals("00f067aa0ba902b7", context.getSpanId());
+        assertTrue(context.isSampled());
+        assertEquals(TRACEPARENT, context.toTraceparent());
+    }
+
+    @Test
+    void parseRejectsInvalidHeaders() {
+        assertFalse(TraceContext.parse(null).isPresent());
+        assertFalse(TraceContext.parse("00-4bf92f3577b34da6a3ce929d0e0e4736-00f067aa0ba902b7").isPresent());
+        assertFalse(TraceContext.parse("00-00000000000000000000000000000000-00f067aa0ba902b7-01").isPresent());
+        assertFalse(TraceContext.parse("00-4bf92f3577b34da6a3ce929d0e0e4736-0000000000000000-01").isPresent());
+        assertFalse(TraceContext.parse("ff-4bf92f3577b34da6a3ce929d0e0e4736-00f067aa0ba902b7-01").isPresent());
+        assertFalse(TraceContext.parse("00-4BF92F3577B34DA6A3CE929D0E0E4736-00f067aa0ba902b7-01").isPresent());
+    }
+
+    @Test
+    void childKeepsTraceAndSampling() {
+        TraceContext parent = TraceContext.parse("00-4bf92f3577b34da6a3ce929d0e0e4736-00f067aa0ba902b7-00").orElseThrow();
+        TraceContext child = parent.child();
+
+        assertEquals(parent.getTraceId(), child.getTraceId());
+        assertNotEquals(parent.getSpanId(), child.getSpanId());
+        assertFalse(child.isSampled());
+    }
+
+    @Test
+    void tracedPublisherExportsChildSpan(@TempDir Path dir) throws Exception {
+        SpanTracingProperties properties = new SpanTracingProperties();
+        properties.setEnabled(true);
+        properties.setServiceName("movies-service");
+        properties.setFile(dir.resolve("spans.ndjson").toString());
+        ObjectMapper objectMapper = new ObjectMapper();
+        FileSpanExporter exporter = new FileSpanExporter(properties, objectMapper);
+        SpanTracer spanTracer = new SpanTracer(properties, exporter);
+        TraceContext parent = TraceContext.parse(TRACEPARENT).orElseThrow();
+
+        Mono<String> traced = spanTracer.traceMono(
+                Mono.deferContextual(ctx -> Mono.just(ctx.get(TraceContext.CONTEXT_KEY).toTraceparent())),
+                "getMovieInfo", Span.Kind.CLIENT, Map.of("peer.service", "movies-info"));
+
+        StepVerifier.create(traced.contextWrite(ctx -> ctx.put(TraceContext.CONTEXT_KEY, parent)))
+                .assertNext(traceparent -> {
+                    assertTrue(traceparent.startsWith("00-" + parent.getTraceId() + "-"));
+                    assertNotEquals(TRACEPARENT, traceparent);
+                })
+                .verifyComplete();
+        exporter.destroy();
+
+        List<String> lines = Files.readAllLines(dir.resolve("spans.ndjson"));
+        assertEquals(1, lines.size());
+        JsonNode span = objectMapper.readTree(lines.get(0));
+        assertEquals(parent.getTraceId(), span.get("traceId").asText());
+        assertEquals(parent.getSpanId(), span.get("parentSpanId").asText());
+        assertEquals("getMovieInfo", span.get("name").asText());
+        assertEquals("SPAN_KIND_CLIENT", span.get("kind").asText());
+        assertEquals("movies-info", span.get("attributes").get("peer.service").asText());
+        assertEquals("movies-service", span.get("resource").get("service.name").asText());
+    }
+}
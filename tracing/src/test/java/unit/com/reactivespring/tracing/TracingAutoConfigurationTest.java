@@ -0,0 +1,39 @@
+package com.reactivespring.tracing;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.autoconfigure.AutoConfigurations;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.context.properties.ConfigurationPropertiesAutoConfiguration;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+class TracingAutoConfigurationTest {
+    private final ApplicationContextRunner contextRunner = new ApplicationContextRunner()
+            .withConfiguration(AutoConfigurations.of(ConfigurationPropertiesAutoConfiguration.class,
+                    JacksonAutoConfiguration.class, TracingAutoConfiguration.class));
+
+    @Test
+    void spansDefaultToTheApplicationName() {
+        contextRunner.withPropertyValues("spring.application.name=movies-review-service")
+                .run(context -> {
+                    SpanTracingProperties properties = context.getBean(SpanTracingProperties.class);
+                    assertEquals("movies-review-service", properties.getServiceName());
+                    assertEquals("spans-movies-review-service.ndjson", properties.getFile());
+                    assertNotNull(context.getBean(SpanTracer.class));
+                    assertNotNull(context.getBean(SignalTracer.class));
+                });
+    }
+
+    @Test
+    void configuredSpanPropertiesWin() {
+        contextRunner.withPropertyValues("spring.application.name=movies-review-service",
+                        "tracing.spans.service-name=reviews", "tracing.spans.file=/tmp/reviews.ndjson")
+                .run(context -> {
+                    SpanTracingProperties properties = context.getBean(SpanTracingProperties.class);
+                    assertEquals("reviews", properties.getServiceName());
+                    assertEquals("/tmp/reviews.ndjson", properties.getFile());
+                });
+    }
+}